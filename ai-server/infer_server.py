@@ -1,7 +1,10 @@
-from fastapi import FastAPI
+from fastapi import FastAPI, Request
+from starlette.concurrency import run_in_threadpool
 from pydantic import BaseModel
 from ultralytics import YOLO
 from pathlib import Path
+import cv2
+import numpy as np
 import os
 import time
 
@@ -22,15 +25,7 @@ class InferReq(BaseModel):
 def health():
     return {"ok": True, "model": MODEL_PATH}
 
-@app.post("/infer")
-def infer(req: InferReq):
-    p = Path(req.path)
-    if not p.exists() or not p.is_file():
-        return {"ok": False, "error": "file_not_found", "path": req.path}
-
-    t0 = time.time()
-    r = model(str(p), verbose=False, conf=req.conf)[0]
-
+def _person_result(r, t0):
     persons = []
     for b in r.boxes:
         cls = int(b.cls[0])
@@ -51,4 +46,77 @@ def infer(req: InferReq):
         "ms": int((time.time() - t0) * 1000)
     }
 
+@app.post("/infer")
+def infer(req: InferReq):
+    p = Path(req.path)
+    if not p.exists() or not p.is_file():
+        return {"ok": False, "error": "file_not_found", "path": req.path}
+
+    t0 = time.time()
+    r = model(str(p), verbose=False, conf=req.conf)[0]
+    return _person_result(r, t0)
+
+# JPEG 바이트를 그대로 받는 경로 (디스크 왕복 없음)
+#   POST /infer/bytes?conf=0.35
+#   Content-Type: application/octet-stream, body = JPEG bytes
+#   본문만 비동기로 읽고, 디코딩/추론은 스레드풀에서 (이벤트 루프를 막지 않음 → 다른 요청 본문 수신과 겹침)
+@app.post("/infer/bytes")
+async def infer_bytes(request: Request, conf: float = 0.25):
+    body = await request.body()
+    if not body:
+        return {"ok": False, "error": "empty_body"}
+    return await run_in_threadpool(_infer_bytes, body, conf)
+
+def _infer_bytes(body, conf):
+    img = cv2.imdecode(np.frombuffer(body, dtype=np.uint8), cv2.IMREAD_COLOR)
+    if img is None:
+        return {"ok": False, "error": "decode_failed", "bytes": len(body)}
+
+    t0 = time.time()
+    r = model(img, verbose=False, conf=conf)[0]
+    return _person_result(r, t0)
+
+# 여러 프레임을 한 번에 (백엔드 VisionClient 마이크로 배치)
+#   POST /infer/batch?conf=0.35
+#   Content-Type: application/octet-stream, body = ([4바이트 big-endian 길이][JPEG bytes]) 반복
+#   응답 results[i]는 i번째 프레임의 /infer/bytes 응답과 같은 형식 (ms는 배치 전체 시간)
+#   /infer/bytes처럼 디코딩/추론은 스레드풀에서 (다음 배치 본문 수신이 추론에 막히지 않게)
+@app.post("/infer/batch")
+async def infer_batch(request: Request, conf: float = 0.25):
+    body = await request.body()
+    return await run_in_threadpool(_infer_batch, body, conf)
+
+def _infer_batch(body, conf):
+    imgs = []
+    off = 0
+    while off + 4 <= len(body):
+        n = int.from_bytes(body[off:off + 4], "big")
+        off += 4
+        if n <= 0 or off + n > len(body):
+            return {"ok": False, "error": "bad_frame", "index": len(imgs)}
+        imgs.append(cv2.imdecode(np.frombuffer(body, dtype=np.uint8, count=n, offset=off), cv2.IMREAD_COLOR))
+        off += n
+    if off != len(body):
+        return {"ok": False, "error": "bad_frame", "index": len(imgs)}
+    if not imgs:
+        return {"ok": False, "error": "empty_body"}
+
+    t0 = time.time()
+    valid = [img for img in imgs if img is not None]
+    rs = iter(model(valid, verbose=False, conf=conf)) if valid else iter(())
+
+    results = []
+    for img in imgs:
+        if img is None:
+            results.append({"ok": False, "error": "decode_failed"})
+        else:
+            results.append(_person_result(next(rs), t0))
+
+    return {
+        "ok": True,
+        "count": len(results),
+        "results": results,
+        "ms": int((time.time() - t0) * 1000)
+    }
+
 print("🔥 THIS infer_server.py IS RUNNING 🔥")
\ No newline at end of file
@@ -2,23 +2,29 @@ package org.example;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import org.example.database.Db;
+import org.example.metrics.Metrics;
+import org.example.robot.RobotRegistry;
+import org.example.robot.RobotSession;
 import org.example.service.AgentService;
+import org.example.service.LlmDispatcher;
 import org.example.service.PromptBuilder;
 import org.example.service.VisionClient;
 import org.example.socket.GUISocketService;
+import org.example.socket.GUIVideoSocketService;
 import org.example.socket.ImageSocketService;
 import org.example.socket.RobotSocketService;
 import org.example.socket.VideoSocketService;
+import org.example.socket.nio.NioServer;
 import org.example.state.SensorState;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicLong;
 
 public class Main {
 
+    // 동시에 LLM을 부를 수 있는 로봇 수 (Ollama 한 대 기준)
+    private static final int LLM_THREADS = 2;
+
     private static String jstr(JsonObject o, String key) {
         if (o == null || !o.has(key) || o.get(key).isJsonNull()) return "";
         try { return o.get(key).getAsString(); } catch (Exception e) { return ""; }
@@ -26,32 +32,40 @@ public class Main {
 
     public static void main(String[] args) throws Exception {
 
-        // ====== 센서 상태 ======
-        SensorState state = new SensorState();
+        // ====== DB 풀 워밍업 + 통계 주기 출력 ======
+        Db.pool();
+        Metrics.startReporter(60_000);
 
-        // ✅ LLM 루프 제어 상태는 SensorState에 두지 말고 Main에서 관리 (시연용 안정)
-        AtomicLong lastLlmCallAtMs = new AtomicLong(0);
-        AtomicBoolean manualLlmTriggered = new AtomicBoolean(false);
+        // ====== 로봇 레지스트리 (로봇별 SensorState + 공유 스케줄러) ======
+        RobotRegistry registry = new RobotRegistry();
 
         // ====== 로봇 및 GUI 서버 ======
-        RobotSocketService robotServer = new RobotSocketService(state);
-        GUISocketService guiServer = new GUISocketService(robotServer, manualLlmTriggered);
+        RobotSocketService robotServer = new RobotSocketService(registry);
+        GUISocketService guiServer = new GUISocketService(robotServer, registry);
 
         robotServer.setGuiService(guiServer);
 
         // ======= 이미지 모델 서버 =======
         VisionClient visionClient = new VisionClient("http://127.0.0.1:8008");
-        ImageSocketService imageServer = new ImageSocketService(guiServer, visionClient, state, robotServer);
+        // ======= LLM 전용 실행기 (로봇별 single-flight, 비전/스냅샷 스레드를 막지 않음) =======
+        LlmDispatcher llm = new LlmDispatcher(LLM_THREADS);
+
+        ImageSocketService imageServer = new ImageSocketService(guiServer, visionClient, registry, robotServer, llm);
 
-        VideoSocketService video = new VideoSocketService();
+        VideoSocketService video = new VideoSocketService(registry);
+        GUIVideoSocketService guiVideo = new GUIVideoSocketService();
         video.setGuiService(guiServer);
+        video.setGuiVideoService(guiVideo);
 
 
-        // ====== Start Servers ======
-        robotServer.startServer(); // 6000
-        guiServer.startServer();   // 6001
-        imageServer.startServer(); // 6002
-        video.startServer(); // 6003
+        // ====== Start Servers (전 포트를 NIO 이벤트 루프 하나에서) ======
+        NioServer nio = new NioServer();
+        robotServer.startServer(nio); // 6000
+        guiServer.startServer(nio);   // 6001
+        imageServer.startServer(nio); // 6002
+        video.startServer(nio); // 6003
+        guiVideo.startServer(nio); // 6004
+        nio.start();
 
 
         System.out.println("⏳ 로봇 접속을 기다리는 중...");
@@ -60,101 +74,136 @@ public class Main {
         }
         System.out.println("✨ 로봇 감지됨! 명령 전송 준비 완료");
 
-        // ====== LLM Trigger Loop (poll state) ======
-        ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor();
-
-        exec.scheduleAtFixedRate(() -> {
-            try {
-                boolean visionPerson = Boolean.TRUE.equals(state.getVisionPerson());
-
-                // ====== ✅ GUI로 사람 탐지 상태 전송 ======
-                JsonObject personStatus = new JsonObject();
-                personStatus.addProperty("type", "PERSON_STATUS");
-                personStatus.addProperty("detected", visionPerson);
-                guiServer.sendToGui(personStatus.toString());
-                // ==========================================
-
-                // Check for manual trigger
-                boolean manualTrigger = manualLlmTriggered.getAndSet(false);
-
-                // LLM Trigger: মানুষ সনাক্ত এবং ম্যানুয়াল ট্রিগার উভয়ই সত্য হতে হবে
-                if (!visionPerson || !manualTrigger) {
-                    return;
-                }
-
-                // LLM call proceeds if both are true
-                System.out.println("🔥 LLM Triggered by Vision & Manual Key!");
-
-                boolean hasHumanLikeSpeech =
-                        state.getLastStt() != null && !state.getLastStt().isBlank();
-
-                // phase (임시 규칙)
-                PromptBuilder.Phase phase =
-                        hasHumanLikeSpeech ? PromptBuilder.Phase.RESCUE_GUIDE
-                                : PromptBuilder.Phase.CONFIRMED_CONTACT;
-
-                // ✅ gas 제거했으니 co2로 통일 (PromptBuilder가 인자를 gas라고 받아도 값은 co2)
-                Double co2 = state.getCo2();
-                boolean survivorUnconscious = false; // 임시
-
-                String prompt = PromptBuilder.buildSevenKeyFewShotPrompt(
-                        phase,
-                        state,
-                        co2,                  // (기존 gas 인자 자리에 co2 전달)
-                        true,                 // visionPerson
-                        hasHumanLikeSpeech,
-                        survivorUnconscious
-                );
-
-                // LLM 호출
-                String raw = AgentService.ask(prompt);
-                System.out.println("🧠 LLM RAW:\n" + raw);
-
-                // ====== LLM JSON 파싱 ======
-                JsonObject obj;
-                try {
-                    obj = JsonParser.parseString(raw.trim()).getAsJsonObject();
-                } catch (Exception pe) {
-                    System.out.println("🧠 LLM JSON parse failed: " + pe.getMessage());
-                    return;
-                }
-
-                String survivorSpeech = jstr(obj, "survivor_speech");
-                String guiMessage     = jstr(obj, "gui_message");
-                String voiceInstruction = jstr(obj, "voice_instruction"); // Extract voice instruction
-
-                // ====== 로봇으로 전송 (6000) ======
-                if (!survivorSpeech.isBlank()) {
-                    JsonObject toRobot = new JsonObject();
-                    toRobot.addProperty("type", "TTS");
-                    toRobot.addProperty("text", survivorSpeech);
-                    robotServer.sendToRobot(toRobot.toString());
-                }
-
-                // ====== GUI로 전송 (6001) ======
-                if (!guiMessage.isBlank()) {
-                    JsonObject toGui = new JsonObject();
-                    toGui.addProperty("type", "GUI_MESSAGE");
-                    toGui.addProperty("text", guiMessage);
-                    guiServer.sendToGui(toGui.toString());
-                }
-
-                // NEW: Also send voice instruction to GUI
-                if (!voiceInstruction.isBlank()) {
-                    JsonObject toGuiVoice = new JsonObject();
-                    toGuiVoice.addProperty("type", "VOICE_INSTRUCTION"); // New type for GUI
-                    toGuiVoice.addProperty("text", voiceInstruction);
-                    guiServer.sendToGui(toGuiVoice.toString());
-                }
-
-            } catch (Exception e) {
-                System.out.println("🧠 LLM loop error: " + e.getMessage());
-            }
-        }, 0, 200, TimeUnit.MILLISECONDS);
+        // ====== LLM Trigger Loop (로봇별, 공유 스케줄러 / 세션 정리 시 취소) ======
+        registry.onSessionCreated(session -> session.cancelOnClose(registry.scheduler().scheduleAtFixedRate(
+                () -> llmTick(session, robotServer, guiServer, llm), 0, 200, TimeUnit.MILLISECONDS)));
 
         // 메인 스레드 종료 방지
         while (true) {
             Thread.sleep(10_000);
         }
     }
-}
\ No newline at end of file
+
+    /** 로봇 한 대의 LLM 트리거 확인 (200ms 주기, 호출은 LlmDispatcher로 넘기고 바로 반환) */
+    private static void llmTick(RobotSession session,
+                                RobotSocketService robotServer,
+                                GUISocketService guiServer,
+                                LlmDispatcher llm) {
+        SensorState state = session.state();
+        if (!session.isConnected()) return;
+
+        try {
+            boolean visionPerson = state.isVisionPerson();
+
+            // ====== ✅ GUI로 사람 탐지 상태 전송 ======
+            JsonObject personStatus = new JsonObject();
+            personStatus.addProperty("type", "PERSON_STATUS");
+            personStatus.addProperty("robotId", session.robotId());
+            personStatus.addProperty("detected", visionPerson);
+            guiServer.sendToGui("PERSON_STATUS", personStatus.toString());
+            // ==========================================
+
+            // Check for manual trigger
+            boolean manualTrigger = session.manualLlmTriggered().getAndSet(false);
+
+            // LLM Trigger: মানুষ সনাক্ত এবং ম্যানুয়াল ট্রিগার উভয়ই সত্য হতে হবে
+            if (!visionPerson || !manualTrigger) {
+                return;
+            }
+
+            // LLM call proceeds if both are true
+            System.out.println("🔥 LLM Triggered by Vision & Manual Key! (" + session.robotId() + ")");
+            llm.submit(session.robotId(), LlmDispatcher.Kind.MANUAL, () -> manualLlmCall(session, robotServer, guiServer));
+
+        } catch (Exception e) {
+            System.out.println("🧠 LLM loop error (" + session.robotId() + "): " + e.getMessage());
+        }
+    }
+
+    /** 수동 트리거 LLM 호출 (LLM 실행기 스레드) */
+    private static void manualLlmCall(RobotSession session,
+                                      RobotSocketService robotServer,
+                                      GUISocketService guiServer) {
+        SensorState state = session.state();
+
+        try {
+            // 판단과 프롬프트가 같은 시점의 값을 보도록 한 번만 읽음
+            SensorState.Snapshot snap = state.snapshot();
+            boolean hasHumanLikeSpeech = snap.hasStt();
+
+            // phase (임시 규칙)
+            PromptBuilder.Phase phase =
+                    hasHumanLikeSpeech ? PromptBuilder.Phase.RESCUE_GUIDE
+                            : PromptBuilder.Phase.CONFIRMED_CONTACT;
+
+            // ✅ gas 제거했으니 co2로 통일 (PromptBuilder가 인자를 gas라고 받아도 값은 co2)
+            Double co2 = SensorState.Snapshot.has(snap.co2()) ? snap.co2() : null;
+            boolean survivorUnconscious = false; // 임시
+
+            String prompt = PromptBuilder.buildSevenKeyFewShotPrompt(
+                    phase,
+                    state,
+                    co2,                  // (기존 gas 인자 자리에 co2 전달)
+                    true,                 // visionPerson
+                    hasHumanLikeSpeech,
+                    survivorUnconscious
+            );
+
+            // LLM 호출 (스트리밍: gui_message는 생성되는 대로 GUI에 미리보기, 객체가 닫히면 바로 반환)
+            String streamId = session.robotId() + "-" + System.currentTimeMillis();
+            String raw = AgentService.askStreaming(prompt, partial -> {
+                if (!guiServer.isConnected()) return;
+                JsonObject p = new JsonObject();
+                p.addProperty("type", "GUI_MESSAGE_PARTIAL");
+                p.addProperty("robotId", session.robotId());
+                p.addProperty("stream", streamId);
+                p.addProperty("text", partial);
+                guiServer.sendToGui("GUI_MESSAGE_PARTIAL", p.toString());
+            });
+            System.out.println("🧠 LLM RAW:\n" + raw);
+
+            // ====== LLM JSON 파싱 ======
+            JsonObject obj;
+            try {
+                obj = JsonParser.parseString(raw.trim()).getAsJsonObject();
+            } catch (Exception pe) {
+                System.out.println("🧠 LLM JSON parse failed: " + pe.getMessage());
+                return;
+            }
+
+            String survivorSpeech = jstr(obj, "survivor_speech");
+            String guiMessage     = jstr(obj, "gui_message");
+            String voiceInstruction = jstr(obj, "voice_instruction"); // Extract voice instruction
+
+            // ====== 로봇으로 전송 (6000) ======
+            if (!survivorSpeech.isBlank()) {
+                JsonObject toRobot = new JsonObject();
+                toRobot.addProperty("type", "TTS");
+                toRobot.addProperty("text", survivorSpeech);
+                robotServer.sendToRobot(session.robotId(), toRobot.toString());
+            }
+
+            // ====== GUI로 전송 (6001) ======
+            if (!guiMessage.isBlank()) {
+                JsonObject toGui = new JsonObject();
+                toGui.addProperty("type", "GUI_MESSAGE");
+                toGui.addProperty("robotId", session.robotId());
+                toGui.addProperty("stream", streamId);   // 같은 stream의 미리보기를 이 메시지로 확정
+                toGui.addProperty("text", guiMessage);
+                guiServer.sendToGui("GUI_MESSAGE", toGui.toString());
+            }
+
+            // NEW: Also send voice instruction to GUI
+            if (!voiceInstruction.isBlank()) {
+                JsonObject toGuiVoice = new JsonObject();
+                toGuiVoice.addProperty("type", "VOICE_INSTRUCTION"); // New type for GUI
+                toGuiVoice.addProperty("robotId", session.robotId());
+                toGuiVoice.addProperty("text", voiceInstruction);
+                guiServer.sendToGui("VOICE_INSTRUCTION", toGuiVoice.toString());
+            }
+
+        } catch (Exception e) {
+            System.out.println("🧠 LLM call error (" + session.robotId() + "): " + e.getMessage());
+        }
+    }
+}
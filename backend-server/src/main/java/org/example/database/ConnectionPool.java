@@ -0,0 +1,351 @@
+package org.example.database;
+
+import org.example.metrics.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 크기 제한이 있는 JDBC 커넥션 풀
+ *
+ * - 빌려준 Connection은 프록시라서 close() 하면 실제로 닫지 않고 풀로 반납된다
+ *   → 기존 repo 코드의 try-with-resources 그대로 사용 가능
+ * - idle 커넥션은 LIFO로 꺼냄 (가장 최근에 쓴 = 가장 따뜻한 커넥션 우선)
+ * - 오래 놀던 커넥션은 빌려주기 전 isValid()로 검증
+ * - housekeeper 스레드: idle 검증/축소, min 유지, 누수 의심 로그
+ */
+public class ConnectionPool {
+
+    private static final int VALIDATE_TIMEOUT_SEC = 2;
+    private static final long HOUSEKEEPING_PERIOD_MS = 5_000;
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long validateAfterMs;
+    private final long maxIdleMs;
+    private final long leakThresholdMs;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger total = new AtomicInteger();
+
+    // ===== metrics =====
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaksReported = new AtomicLong();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown = false;
+
+    public ConnectionPool(String url, String user, String password,
+                          int minSize, int maxSize,
+                          long acquireTimeoutMs, long validateAfterMs,
+                          long maxIdleMs, long leakThresholdMs) {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("invalid pool size min=" + minSize + " max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.validateAfterMs = validateAfterMs;
+        this.maxIdleMs = maxIdleMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Db-Pool-Housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        // ✅ DB가 아직 안 떠 있어도 서버 기동은 막지 않도록 워밍업도 백그라운드에서
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, HOUSEKEEPING_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // =========================================================
+    // borrow / release
+    // =========================================================
+
+    public Connection getConnection() throws SQLException {
+        if (shutdown) throw new SQLException("connection pool is shut down");
+
+        long t0 = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for a pooled connection", e);
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLTimeoutException("no pooled connection available within " + acquireTimeoutMs
+                    + "ms (max=" + maxSize + ", borrowed=" + borrowed.size() + ")");
+        }
+
+        try {
+            PooledConnection pc = takeIdleValidated();
+            if (pc == null) pc = create();
+
+            pc.borrowedAtMs = System.currentTimeMillis();
+            pc.borrowSite = leakThresholdMs > 0 ? new Exception("connection borrowed here") : null;
+            pc.leakReported = false;
+            borrowed.add(pc);
+
+            acquireLatency.recordSince(t0);
+            return pc.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleValidated() {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - pc.lastCheckedAtMs() < validateAfterMs || isValid(pc)) return pc;
+            destroy(pc);
+        }
+        return null;
+    }
+
+    private void release(PooledConnection pc) {
+        borrowed.remove(pc);
+        try {
+            if (pc.broken || shutdown || !reset(pc)) {
+                destroy(pc);
+            } else {
+                pc.lastReturnedAtMs = System.currentTimeMillis();
+                idle.offerFirst(pc);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** 다음 사용자를 위해 트랜잭션 상태 원복. 실패하면 false → 폐기 */
+    private boolean reset(PooledConnection pc) {
+        try {
+            Connection c = pc.physical;
+            if (c.isClosed()) return false;
+            if (!c.getAutoCommit()) {
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+            c.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection c = DriverManager.getConnection(url, user, password);
+        total.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(c);
+    }
+
+    private void destroy(PooledConnection pc) {
+        total.decrementAndGet();
+        destroyed.incrementAndGet();
+        try { pc.physical.close(); } catch (Exception ignored) {}
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            if (pc.physical.isValid(VALIDATE_TIMEOUT_SEC)) return true;
+        } catch (SQLException ignored) {}
+        validationFailures.incrementAndGet();
+        return false;
+    }
+
+    // =========================================================
+    // housekeeping
+    // =========================================================
+
+    private void housekeep() {
+        if (shutdown) return;
+        try {
+            long now = System.currentTimeMillis();
+
+            // 1) idle 검증 + min 초과분 축소
+            List<PooledConnection> snapshot = new ArrayList<>(idle);
+            // 축소는 "마지막으로 반납된 뒤" 시간 기준 (검증 시각은 따로 → 검증이 idle 시간을 되돌리지 않음)
+            for (PooledConnection pc : snapshot) {
+                long idleFor = now - pc.lastReturnedAtMs;
+                boolean shrink = idleFor >= maxIdleMs && total.get() > minSize;
+                if (!shrink && now - pc.lastCheckedAtMs() < validateAfterMs) continue;
+                if (!idle.remove(pc)) continue; // 그 사이 누가 빌려감
+
+                if (shrink || !isValid(pc)) {
+                    destroy(pc);
+                } else {
+                    pc.lastValidatedAtMs = now;
+                    idle.offerLast(pc);
+                }
+            }
+
+            // 2) min 유지 (permit을 잡고 만들어야 max를 넘지 않음)
+            while (total.get() < minSize && permits.tryAcquire()) {
+                try {
+                    PooledConnection pc = create();
+                    pc.lastReturnedAtMs = System.currentTimeMillis();
+                    idle.offerLast(pc);
+                } finally {
+                    permits.release();
+                }
+            }
+
+            // 3) 누수 의심
+            if (leakThresholdMs > 0) {
+                for (PooledConnection pc : borrowed) {
+                    if (pc.leakReported) continue;
+                    long heldMs = now - pc.borrowedAtMs;
+                    if (heldMs < leakThresholdMs) continue;
+
+                    pc.leakReported = true;
+                    leaksReported.incrementAndGet();
+                    System.out.println("⚠ DB connection leak suspected: held " + heldMs + "ms");
+                    if (pc.borrowSite != null) pc.borrowSite.printStackTrace(System.out);
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("⚠ DB pool warm-up failed: " + e.getMessage());
+        } catch (Exception e) {
+            System.out.println("⚠ DB pool housekeeping error: " + e.getMessage());
+        }
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) destroy(pc);
+    }
+
+    // =========================================================
+    // metrics
+    // =========================================================
+
+    public LatencyHistogram getAcquireLatency() {
+        return acquireLatency;
+    }
+
+    public String stats() {
+        return String.format(
+                "total=%d idle=%d borrowed=%d created=%d destroyed=%d timeouts=%d invalid=%d leaks=%d acquire{%s}",
+                total.get(), idle.size(), borrowed.size(), created.get(), destroyed.get(),
+                timeouts.get(), validationFailures.get(), leaksReported.get(), acquireLatency.summary());
+    }
+
+    // =========================================================
+    // pooled connection + 프록시 핸들
+    // =========================================================
+
+    private final class PooledConnection {
+        final Connection physical;
+        volatile long lastReturnedAtMs = System.currentTimeMillis();   // 호출자가 반납한 시각 (idle 축소 기준)
+        volatile long lastValidatedAtMs = 0;                            // housekeep 검증 통과 시각
+        volatile long borrowedAtMs;
+        volatile Exception borrowSite;
+        volatile boolean leakReported;
+        volatile boolean broken;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /** 마지막으로 살아 있음이 확인된 시각 (반납 또는 검증) */
+        long lastCheckedAtMs() {
+            return Math.max(lastReturnedAtMs, lastValidatedAtMs);
+        }
+
+        /** 빌릴 때마다 새 핸들: close()가 두 번 불려도 한 번만 반납되게 */
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new Handle(this));
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean closed = false;
+
+        Handle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            switch (name) {
+                case "close" -> {
+                    if (!closed) {
+                        closed = true;
+                        release(pc);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || pc.physical.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection[" + pc.physical + "]";
+                }
+                default -> {
+                    if (closed) throw new SQLException("connection already returned to pool");
+                }
+            }
+
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException ite) {
+                Throwable cause = ite.getCause();
+                // 08xxx = connection exception → 반납 시 폐기
+                if (cause instanceof SQLException se
+                        && se.getSQLState() != null && se.getSQLState().startsWith("08")) {
+                    pc.broken = true;
+                }
+                throw cause;
+            }
+        }
+    }
+}
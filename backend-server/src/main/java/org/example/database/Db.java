@@ -1,23 +1,47 @@
 package org.example.database;
 
+import org.example.metrics.Metrics;
+
 import java.sql.Connection;
-import java.sql.DriverManager;
 
 public class Db {
 
+    private static final ConnectionPool POOL;
+
     static {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
-    }
 
-    public static Connection getConnection() throws Exception {
-        return DriverManager.getConnection(
+        POOL = new ConnectionPool(
                 DbConfig.URL,
                 DbConfig.USER,
-                DbConfig.PASSWORD
+                DbConfig.PASSWORD,
+                DbConfig.POOL_MIN_SIZE,
+                DbConfig.POOL_MAX_SIZE,
+                DbConfig.POOL_ACQUIRE_TIMEOUT_MS,
+                DbConfig.POOL_VALIDATE_AFTER_MS,
+                DbConfig.POOL_MAX_IDLE_MS,
+                DbConfig.POOL_LEAK_THRESHOLD_MS
         );
+        Metrics.register("db.pool", POOL::stats);
+    }
+
+    /**
+     * 풀에서 커넥션을 빌려온다.
+     * ✅ 반드시 close() 해야 반납됨 (try-with-resources 사용)
+     */
+    public static Connection getConnection() throws Exception {
+        return POOL.getConnection();
+    }
+
+    public static ConnectionPool pool() {
+        return POOL;
+    }
+
+    public static void shutdown() {
+        POOL.shutdown();
     }
-}
\ No newline at end of file
+}
@@ -1,8 +1,23 @@
 package org.example.database;
 
 public class DbConfig {
+    // cachePrepStmts: 풀에서 재사용되는 물리 커넥션마다 PreparedStatement 캐시 유지
+    // rewriteBatchedStatements: executeBatch()를 multi-row INSERT 한 번으로 전송
     public static final String URL =
-            "jdbc:mysql://localhost:3306/serbot?useSSL=false&serverTimezone=Asia/Seoul";
+            "jdbc:mysql://localhost:3306/serbot?useSSL=false&serverTimezone=Asia/Seoul"
+                    + "&cachePrepStmts=true&prepStmtCacheSize=64&useServerPrepStmts=true"
+                    + "&rewriteBatchedStatements=true";
     public static final String USER = "root";
     public static final String PASSWORD = "";
-}
\ No newline at end of file
+
+    // ===== connection pool =====
+    public static final int POOL_MIN_SIZE = 2;
+    public static final int POOL_MAX_SIZE = 8;
+    public static final long POOL_ACQUIRE_TIMEOUT_MS = 3_000;
+    // 이 시간 이상 놀던 커넥션은 빌려주기 전에 isValid()로 확인 (MySQL wait_timeout 대비)
+    public static final long POOL_VALIDATE_AFTER_MS = 30_000;
+    // min 초과분은 이 시간 이상 놀면 닫음
+    public static final long POOL_MAX_IDLE_MS = 5 * 60_000;
+    // 이 시간 넘게 반납 안 되면 누수 의심 로그 (0이면 끔)
+    public static final long POOL_LEAK_THRESHOLD_MS = 10_000;
+}
@@ -8,11 +8,11 @@ import java.sql.Types;
 
 public class SensorSnapshotRepo {
 
-    // ✅ DB 스키마에 맞춤: received_at_ms, fire, co2, pm25, pm10, pir, source
+    // ✅ DB 스키마에 맞춤: received_at_ms, fire, co2, pm25, pm10, pir, source, robot_id
     private static final String SQL = """
         INSERT INTO sensor_snapshot
-        (received_at_ms, fire, co2, pm25, pm10, pir, source)
-        VALUES (?, ?, ?, ?, ?, ?, ?)
+        (received_at_ms, fire, co2, pm25, pm10, pir, source, robot_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
         """;
 
     public void insert(long receivedAtMs,
@@ -21,7 +21,8 @@ public class SensorSnapshotRepo {
                        double pm25,
                        double pm10,
                        Boolean pir,     // ✅ 테이블이 NULL 허용이라 Boolean
-                       String source) {
+                       String source,
+                       String robotId) {
 
         try (Connection c = Db.getConnection();
              PreparedStatement ps = c.prepareStatement(SQL)) {
@@ -38,6 +39,7 @@ public class SensorSnapshotRepo {
             else ps.setInt(6, pir ? 1 : 0);
 
             ps.setString(7, (source == null || source.isBlank()) ? "REAL" : source);
+            ps.setString(8, robotId);
 
             ps.executeUpdate();
 
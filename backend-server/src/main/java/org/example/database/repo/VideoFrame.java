@@ -0,0 +1,8 @@
+package org.example.database.repo;
+
+/**
+ * video_frame 한 행에 해당하는 프레임 (저장 대기열/배치에서 사용)
+ * - jpeg 배열은 소켓 리더가 프레임마다 새로 만든 것을 그대로 넘겨받는다 (복사 없음, 이후 수정 금지)
+ */
+public record VideoFrame(long sessionId, long receivedAtMs, int frameIndex, String mime, byte[] jpeg) {
+}
@@ -0,0 +1,189 @@
+package org.example.database.repo;
+
+import org.example.database.store.FrameStore;
+import org.example.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 영상 프레임 비동기 배치 저장기 (실제 저장은 FrameStore에 위임)
+ *
+ * - 소켓 리더 스레드는 submit()으로 큐에 넣기만 하고 바로 readInt()로 돌아간다
+ * - 전용 writer 스레드가 batchSize개가 모이거나, 가장 오래된 프레임이 maxAgeMs를 넘기면 flush
+ * - 큐가 가득 차면 OverflowPolicy에 따라 가장 오래된 프레임을 버리거나(DROP_OLDEST) 리더를 막는다(BLOCK)
+ */
+public class VideoFrameBatchWriter {
+
+    public enum OverflowPolicy {
+        /** 녹화보다 실시간 수신이 우선: 오래된 프레임부터 버림 */
+        DROP_OLDEST,
+        /** 프레임 유실 금지: 큐에 자리가 날 때까지 리더 스레드 대기 */
+        BLOCK
+    }
+
+    private static final long IDLE_POLL_MS = 500;
+
+    private final FrameStore store;
+    private final ArrayBlockingQueue<VideoFrame> queue;
+    private final int batchSize;
+    private final long maxAgeMs;
+    private final OverflowPolicy overflowPolicy;
+
+    // ===== metrics =====
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    // close()가 깨우는 건 큐 대기(poll) 중일 때만 (flush 중 인터럽트는 FileChannel을 닫아버림)
+    private final Object wakeLock = new Object();
+    private boolean polling = false;   // wakeLock으로 보호
+
+    public VideoFrameBatchWriter(FrameStore store,
+                                 int capacity,
+                                 int batchSize,
+                                 long maxAgeMs,
+                                 OverflowPolicy overflowPolicy) {
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAgeMs = maxAgeMs;
+        this.overflowPolicy = overflowPolicy;
+
+        this.writerThread = new Thread(this::runLoop, "VideoFrame-Writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * 프레임 저장 요청 (리더 스레드에서 호출)
+     * @return 큐에 들어갔으면 true
+     */
+    public boolean submit(VideoFrame frame) {
+        if (!running || frame == null || frame.sessionId() <= 0) return false;
+
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(frame);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped.incrementAndGet();
+                return false;
+            }
+        } else {
+            while (!queue.offer(frame)) {
+                if (queue.poll() != null) dropped.incrementAndGet();
+            }
+        }
+
+        queued.incrementAndGet();
+        return true;
+    }
+
+    private void runLoop() {
+        List<VideoFrame> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                VideoFrame first = pollQueue(IDLE_POLL_MS);
+                if (first == null) continue;
+                batch.add(first);
+
+                // 첫 프레임 수신 시각 기준으로 maxAgeMs 안에서 최대 batchSize까지 모음
+                long deadline = first.receivedAtMs() + maxAgeMs;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    if (batch.size() >= batchSize) break;
+
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0 || !running) break;
+
+                    // 여기서 깨어나도 이미 모은 batch는 아래 InterruptedException에서 flush
+                    VideoFrame next = pollQueue(remaining);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+
+                flush(batch);
+
+            } catch (InterruptedException e) {
+                // close()에서 깨움 → 이미 모은 프레임이 있으면 버리지 않고 저장 후 종료
+                running = false;
+                flush(batch);
+            } catch (Exception e) {
+                System.out.println("⚠ video frame writer error: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+
+        // 종료 시 잔여분 flush
+        List<VideoFrame> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        for (int i = 0; i < rest.size(); i += batchSize) {
+            flush(rest.subList(i, Math.min(rest.size(), i + batchSize)));
+        }
+        store.close();
+    }
+
+    /** close()가 인터럽트로 깨울 수 있는 대기. 종료 중이면 기다리지 않음 */
+    private VideoFrame pollQueue(long timeoutMs) throws InterruptedException {
+        synchronized (wakeLock) {
+            if (!running) return queue.poll();
+            polling = true;
+        }
+        try {
+            return queue.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            synchronized (wakeLock) {
+                polling = false;
+                Thread.interrupted();   // poll이 끝난 직후 도착한 인터럽트가 flush까지 남지 않게
+            }
+        }
+    }
+
+    private void flush(List<VideoFrame> batch) {
+        if (batch.isEmpty()) return;
+
+        long t0 = System.nanoTime();
+        boolean ok = store.writeBatch(batch);
+        flushLatency.recordSince(t0);
+        batches.incrementAndGet();
+
+        if (ok) flushed.addAndGet(batch.size());
+        else failed.addAndGet(batch.size());
+    }
+
+    /** 큐에 남은 프레임을 최대 timeoutMs 동안 저장하고 종료 */
+    public void close(long timeoutMs) {
+        running = false;
+        synchronized (wakeLock) {
+            if (polling) writerThread.interrupt();   // 대기 중이면 바로 깨워서 잔여분 정리로
+        }
+        try {
+            writerThread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getQueuedCount() { return queued.get(); }
+    public long getFlushedCount() { return flushed.get(); }
+    public long getDroppedCount() { return dropped.get(); }
+    public long getFailedCount()  { return failed.get(); }
+
+    public String stats() {
+        return String.format("queued=%d flushed=%d dropped=%d failed=%d pending=%d batches=%d flush{%s}",
+                queued.get(), flushed.get(), dropped.get(), failed.get(), queue.size(), batches.get(),
+                flushLatency.summary());
+    }
+}
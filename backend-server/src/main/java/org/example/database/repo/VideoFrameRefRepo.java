@@ -0,0 +1,56 @@
+package org.example.database.repo;
+
+import org.example.database.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+
+/**
+ * video_frame_ref : 세그먼트 파일에 저장된 프레임의 위치만 기록
+ * (JPEG 바이트는 DB에 넣지 않는다 → SegmentFrameStore 참고)
+ */
+public class VideoFrameRefRepo {
+
+    private static final String SQL = """
+        INSERT INTO video_frame_ref
+        (session_id, frame_index, received_at_ms, segment_no, byte_offset, bytes_len)
+        VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+    public record Ref(long sessionId, int frameIndex, long receivedAtMs, int segmentNo, long byteOffset, int bytesLen) {
+    }
+
+    public boolean insertBatch(List<Ref> refs) {
+        if (refs == null || refs.isEmpty()) return true;
+
+        try (Connection c = Db.getConnection()) {
+            c.setAutoCommit(false);
+
+            try (PreparedStatement ps = c.prepareStatement(SQL)) {
+                for (Ref r : refs) {
+                    ps.setLong(1, r.sessionId());
+                    ps.setInt(2, r.frameIndex());
+                    ps.setLong(3, r.receivedAtMs());
+                    ps.setInt(4, r.segmentNo());
+                    ps.setLong(5, r.byteOffset());
+                    ps.setInt(6, r.bytesLen());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+                return true;
+
+            } catch (Exception e) {
+                try { c.rollback(); } catch (Exception ignored) {}
+                throw e;
+            } finally {
+                try { c.setAutoCommit(true); } catch (Exception ignored) {}
+            }
+
+        } catch (Exception e) {
+            System.out.println("⚠ DB batch insert video_frame_ref failed (" + refs.size() + " refs): " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package org.example.database.repo;
 
 import org.example.database.Db;
+import org.example.database.store.FrameStore;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.util.List;
 
-public class VideoFrameRepo {
+public class VideoFrameRepo implements FrameStore {
 
     private static final String SQL = """
         INSERT INTO video_frame
@@ -32,4 +34,49 @@ public class VideoFrameRepo {
             System.out.println("⚠ DB insert video_frame failed: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 여러 프레임을 한 트랜잭션 + addBatch/executeBatch로 저장
+     * @return 성공하면 true (실패 시 전체 롤백)
+     */
+    public boolean insertBatch(List<VideoFrame> frames) {
+        if (frames == null || frames.isEmpty()) return true;
+
+        try (Connection c = Db.getConnection()) {
+            c.setAutoCommit(false);
+
+            try (PreparedStatement ps = c.prepareStatement(SQL)) {
+                for (VideoFrame f : frames) {
+                    if (f.sessionId() <= 0) continue;
+
+                    byte[] jpeg = f.jpeg();
+                    ps.setLong(1, f.sessionId());
+                    ps.setLong(2, f.receivedAtMs());
+                    ps.setInt(3, f.frameIndex());
+                    ps.setString(4, (f.mime() == null || f.mime().isBlank()) ? "image/jpeg" : f.mime());
+                    ps.setBytes(5, jpeg);
+                    ps.setInt(6, jpeg == null ? 0 : jpeg.length);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                c.commit();
+                return true;
+
+            } catch (Exception e) {
+                try { c.rollback(); } catch (Exception ignored) {}
+                throw e;
+            } finally {
+                try { c.setAutoCommit(true); } catch (Exception ignored) {}
+            }
+
+        } catch (Exception e) {
+            System.out.println("⚠ DB batch insert video_frame failed (" + frames.size() + " frames): " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public boolean writeBatch(List<VideoFrame> frames) {
+        return insertBatch(frames);
+    }
+}
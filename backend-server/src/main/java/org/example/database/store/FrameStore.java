@@ -0,0 +1,19 @@
+package org.example.database.store;
+
+import org.example.database.repo.VideoFrame;
+
+import java.util.List;
+
+/**
+ * 영상 프레임 저장소 (VideoFrameBatchWriter의 writer 스레드에서만 호출됨)
+ * - VideoFrameRepo : video_frame.jpeg_bytes(LONGBLOB)에 통째로 저장 (기존 방식)
+ * - SegmentFrameStore : 세그먼트 파일에 append + DB에는 위치(ref)만 저장
+ */
+public interface FrameStore {
+
+    /** 배치 저장. 실패하면 false (배치 전체 실패로 집계) */
+    boolean writeBatch(List<VideoFrame> frames);
+
+    /** 저장소가 잡고 있는 파일/자원 정리 */
+    default void close() {}
+}
@@ -0,0 +1,202 @@
+package org.example.database.store;
+
+import org.example.database.repo.VideoFrame;
+import org.example.database.repo.VideoFrameRefRepo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 세그먼트 파일 기반 프레임 저장소
+ *
+ * 디렉토리 구조:
+ *   {baseDir}/{sessionId}/seg-000000.dat   ← 프레임 레코드를 이어붙인 큰 파일 (segmentMaxBytes 넘으면 다음 번호)
+ *   {baseDir}/{sessionId}/index.idx        ← 프레임마다 고정 길이(INDEX_ENTRY_BYTES) 위치 정보
+ *
+ * 세그먼트 레코드 (big-endian):
+ *   [int len][long receivedAtMs][int frameIndex][len bytes JPEG]
+ *   → DB/인덱스의 byte_offset은 JPEG 본문 시작 위치 (헤더 다음)
+ *
+ * 인덱스 엔트리 (28 bytes):
+ *   [int frameIndex][long receivedAtMs][int segmentNo][long byteOffset][int len]
+ *   → n번째 프레임 위치 = n * 28 (DB 없이도 O(1) 탐색)
+ *
+ * DB(video_frame_ref)에는 위치 정보만 남기고 JPEG는 넣지 않는다.
+ * writer 스레드 하나에서만 호출된다는 전제 (VideoFrameBatchWriter).
+ */
+public class SegmentFrameStore implements FrameStore {
+
+    public static final int RECORD_HEADER_BYTES = 4 + 8 + 4;
+    public static final int INDEX_ENTRY_BYTES = 4 + 8 + 4 + 8 + 4;
+
+    // 이 시간 동안 프레임이 안 오면 세션 파일 핸들을 닫음 (다시 오면 이어서 append)
+    private static final long SESSION_IDLE_CLOSE_MS = 30_000;
+
+    private final Path baseDir;
+    private final long segmentMaxBytes;
+    private final VideoFrameRefRepo refRepo;
+
+    private final Map<Long, SessionFiles> open = new HashMap<>();
+
+    public SegmentFrameStore(Path baseDir, long segmentMaxBytes, VideoFrameRefRepo refRepo) {
+        this.baseDir = baseDir;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.refRepo = refRepo;
+    }
+
+    public static Path segmentPath(Path sessionDir, int segmentNo) {
+        return sessionDir.resolve(String.format("seg-%06d.dat", segmentNo));
+    }
+
+    @Override
+    public boolean writeBatch(List<VideoFrame> frames) {
+        if (frames == null || frames.isEmpty()) return true;
+
+        List<VideoFrameRefRepo.Ref> refs = new ArrayList<>(frames.size());
+        long failedSession = -1;
+        try {
+            for (VideoFrame f : frames) {
+                if (f.sessionId() <= 0 || f.jpeg() == null) continue;
+                failedSession = f.sessionId();
+                SessionFiles sf = open.get(f.sessionId());
+                if (sf == null) {
+                    sf = SessionFiles.open(baseDir.resolve(Long.toString(f.sessionId())));
+                    open.put(f.sessionId(), sf);
+                }
+                refs.add(sf.append(f, segmentMaxBytes));
+            }
+        } catch (IOException e) {
+            System.out.println("⚠ segment append failed (session=" + failedSession + "): " + e.getMessage());
+
+            // 깨진 채널은 버림 → 다음 배치는 파일을 다시 열어 현재 끝에서 이어씀
+            SessionFiles broken = open.remove(failedSession);
+            if (broken != null) broken.close();
+
+            // 실패 전까지 파일에 들어간 프레임은 ref라도 남김 (없으면 재생에서 안 보임)
+            if (!refs.isEmpty()) refRepo.insertBatch(refs);
+            return false;
+        } finally {
+            closeIdleSessions();
+        }
+
+        // 파일에 먼저 쓰고 DB ref는 배치로
+        return refRepo.insertBatch(refs);
+    }
+
+    private void closeIdleSessions() {
+        long now = System.currentTimeMillis();
+        Iterator<SessionFiles> it = open.values().iterator();
+        while (it.hasNext()) {
+            SessionFiles sf = it.next();
+            if (now - sf.lastWriteAtMs >= SESSION_IDLE_CLOSE_MS) {
+                sf.close();
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (SessionFiles sf : open.values()) sf.close();
+        open.clear();
+    }
+
+    // =========================================================
+    // 세션 하나의 세그먼트/인덱스 파일 핸들
+    // =========================================================
+
+    private static final class SessionFiles {
+        final Path dir;
+        final FileChannel index;
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+
+        int segmentNo;
+        FileChannel segment;
+        long lastWriteAtMs = System.currentTimeMillis();
+
+        private SessionFiles(Path dir, FileChannel index, int segmentNo, FileChannel segment) {
+            this.dir = dir;
+            this.index = index;
+            this.segmentNo = segmentNo;
+            this.segment = segment;
+        }
+
+        static SessionFiles open(Path dir) throws IOException {
+            Files.createDirectories(dir);
+
+            // 이미 있던 세션이면(핸들을 닫았다가 다시 온 경우) 마지막 세그먼트에 이어서 씀
+            int last = 0;
+            while (Files.exists(segmentPath(dir, last + 1))) last++;
+
+            // 쓰다 실패해 반쪽 엔트리가 남았으면 잘라냄 (n * INDEX_ENTRY_BYTES 정렬 유지)
+            Path indexPath = dir.resolve("index.idx");
+            if (Files.exists(indexPath)) {
+                long size = Files.size(indexPath);
+                if (size % INDEX_ENTRY_BYTES != 0) {
+                    try (FileChannel fc = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+                        fc.truncate(size - size % INDEX_ENTRY_BYTES);
+                    }
+                }
+            }
+
+            FileChannel index = FileChannel.open(indexPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return new SessionFiles(dir, index, last, openSegment(dir, last));
+        }
+
+        static FileChannel openSegment(Path dir, int no) throws IOException {
+            return FileChannel.open(segmentPath(dir, no),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        VideoFrameRefRepo.Ref append(VideoFrame f, long segmentMaxBytes) throws IOException {
+            byte[] jpeg = f.jpeg();
+
+            long pos = segment.size();
+            if (pos > 0 && pos + RECORD_HEADER_BYTES + jpeg.length > segmentMaxBytes) {
+                segment.force(false);
+                segment.close();
+                segmentNo++;
+                segment = openSegment(dir, segmentNo);
+                pos = 0;
+            }
+
+            header.clear();
+            header.putInt(jpeg.length).putLong(f.receivedAtMs()).putInt(f.frameIndex()).flip();
+            ByteBuffer body = ByteBuffer.wrap(jpeg);
+            ByteBuffer[] record = {header, body};
+            while (body.hasRemaining()) segment.write(record);
+
+            long payloadOffset = pos + RECORD_HEADER_BYTES;
+
+            indexEntry.clear();
+            indexEntry.putInt(f.frameIndex())
+                    .putLong(f.receivedAtMs())
+                    .putInt(segmentNo)
+                    .putLong(payloadOffset)
+                    .putInt(jpeg.length)
+                    .flip();
+            while (indexEntry.hasRemaining()) index.write(indexEntry);
+
+            lastWriteAtMs = System.currentTimeMillis();
+            return new VideoFrameRefRepo.Ref(f.sessionId(), f.frameIndex(), f.receivedAtMs(),
+                    segmentNo, payloadOffset, jpeg.length);
+        }
+
+        void close() {
+            try { segment.force(false); } catch (Exception ignored) {}
+            try { segment.close(); } catch (Exception ignored) {}
+            try { index.close(); } catch (Exception ignored) {}
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package org.example.hazard;
 
+import org.example.state.SensorHistory;
+import org.example.state.SensorHistory.Channel;
+import org.example.state.SensorSeries;
 import org.example.state.SensorState;
 import org.example.service.PromptBuilder.HazardLevel;
 
 public class HazardEvaluator {
 
+    // 추세 기반 한 단계 상향 기준 (최근 윈도우 첫 값 → 마지막 값 기울기)
+    private static final double CO2_RISE_PPM_PER_SEC = 10.0;
+    private static final double PM25_RISE_PER_SEC = 2.0;
+    private static final int TREND_MIN_SAMPLES = 3;
+
     public static HazardLevel compute(SensorState s) {
-        double flame = safe(s.getFlame());
-        double co2   = safe(s.getCo2());
-        double pm25  = safe(s.getPm25());
-        double pm10  = safe(s.getPm10());
+        return compute(s.snapshot(), s.history(), System.currentTimeMillis());
+    }
+
+    /** 한 시점의 값으로 판단 (flame/co2/dust가 서로 다른 패킷 시점으로 섞이지 않음) */
+    public static HazardLevel compute(SensorState.Snapshot s) {
+        double flame = SensorState.Snapshot.or(s.flame(), 0.0);
+        double co2   = SensorState.Snapshot.or(s.co2(), 0.0);
+        double pm25  = SensorState.Snapshot.or(s.pm25(), 0.0);
+        double pm10  = SensorState.Snapshot.or(s.pm10(), 0.0);
 
         // 너가 쓰는 기준에 맞게 조정하면 됨 (일단 “현실적인” 기본값)
         if (flame >= 0.8 || co2 >= 2600 || pm25 >= 250 || pm10 >= 350) return HazardLevel.CRITICAL;
@@ -18,7 +31,26 @@ public class HazardEvaluator {
         return HazardLevel.LOW;
     }
 
-    private static double safe(Double v) {
-        return v == null ? 0.0 : v;
+    /**
+     * 현재값 + 최근 추세
+     * - 윈도우 안에서 불꽃이 한 번이라도 강하게 잡혔으면(max) 깜빡여도 CRITICAL 유지
+     * - CO2/PM2.5가 빠르게 오르는 중이면 한 단계 올림 (임계치 도달 전에 미리 대응)
+     */
+    public static HazardLevel compute(SensorState.Snapshot s, SensorHistory history, long nowMs) {
+        HazardLevel level = compute(s);
+        if (level == HazardLevel.CRITICAL) return level;
+
+        SensorSeries.Window flame = history.window(Channel.FLAME, nowMs);
+        if (!flame.isEmpty() && flame.max() >= 0.8) return HazardLevel.CRITICAL;
+
+        if (rising(history.window(Channel.CO2, nowMs), CO2_RISE_PPM_PER_SEC)
+                || rising(history.window(Channel.PM25, nowMs), PM25_RISE_PER_SEC)) {
+            return HazardLevel.values()[level.ordinal() + 1];
+        }
+        return level;
+    }
+
+    private static boolean rising(SensorSeries.Window w, double perSec) {
+        return w.count() >= TREND_MIN_SAMPLES && w.ratePerSec() >= perSec;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,197 @@
+package org.example.http;
+
+import okhttp3.*;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 백엔드에서 나가는 HTTP 호출(YOLO/Ollama/OpenAI)이 같이 쓰는 전송 계층
+ *
+ * - OkHttpClient 하나의 커넥션 풀/디스패처를 공유 → 호출마다 TCP(TLS) 연결을 새로 맺지 않음
+ *   (OpenAI는 TLS 위 HTTP/2 다중화, 로컬 서버는 HTTP/1.1 keep-alive 재사용)
+ * - 엔드포인트별로 타임아웃/동시 호출 수 제한/지연 통계를 따로 둠 (풀은 공유)
+ *
+ * 튜닝 (시스템 프로퍼티):
+ *   serbot.http.maxIdle, serbot.http.keepAliveMs      커넥션 풀
+ *   serbot.http.maxRequests, serbot.http.maxPerHost   비동기 디스패처
+ *   serbot.http.<name>.timeoutMs, serbot.http.<name>.maxConcurrent  엔드포인트별
+ */
+public final class HttpTransport {
+
+    private static final int MAX_IDLE = Integer.getInteger("serbot.http.maxIdle", 16);
+    private static final long KEEP_ALIVE_MS = Long.getLong("serbot.http.keepAliveMs", 5 * 60_000L);
+    private static final int MAX_REQUESTS = Integer.getInteger("serbot.http.maxRequests", 64);
+    private static final int MAX_PER_HOST = Integer.getInteger("serbot.http.maxPerHost", 16);
+
+    private static final ConnectionPool POOL = new ConnectionPool(MAX_IDLE, KEEP_ALIVE_MS, TimeUnit.MILLISECONDS);
+    private static final Dispatcher DISPATCHER = newDispatcher();
+
+    private static final OkHttpClient BASE = new OkHttpClient.Builder()
+            .connectionPool(POOL)
+            .dispatcher(DISPATCHER)
+            .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+            .retryOnConnectionFailure(true)
+            .build();
+
+    static {
+        Metrics.register("http", () -> String.format("connections=%d idle=%d running=%d queued=%d",
+                POOL.connectionCount(), POOL.idleConnectionCount(),
+                DISPATCHER.runningCallsCount(), DISPATCHER.queuedCallsCount()));
+    }
+
+    private HttpTransport() {}
+
+    private static Dispatcher newDispatcher() {
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService exec = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "Http-Dispatch-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Dispatcher d = new Dispatcher(exec);
+        d.setMaxRequests(MAX_REQUESTS);
+        d.setMaxRequestsPerHost(MAX_PER_HOST);
+        return d;
+    }
+
+    /**
+     * 엔드포인트 하나 (공유 풀 위에 타임아웃/동시성만 다르게)
+     * @param name          통계/프로퍼티 이름 (serbot.http.<name>.*)
+     * @param connectMs     연결 타임아웃
+     * @param timeoutMs     호출 전체 타임아웃 기본값 (요청 쓰기 ~ 응답 본문 끝)
+     * @param maxConcurrent 동시에 나가는 호출 수 기본값 (넘으면 execute는 대기, enqueue는 바로 BusyException)
+     */
+    public static Endpoint endpoint(String name, long connectMs, long timeoutMs, int maxConcurrent) {
+        return new Endpoint(name, connectMs,
+                Long.getLong("serbot.http." + name + ".timeoutMs", timeoutMs),
+                Integer.getInteger("serbot.http." + name + ".maxConcurrent", maxConcurrent));
+    }
+
+    /** 동시 호출 수 제한에 걸려 요청을 보내지 못함 (execute는 timeoutMs 대기 후, enqueue는 즉시) */
+    public static final class BusyException extends IOException {
+        BusyException(String message) {
+            super(message);
+        }
+    }
+
+    /** 응답 본문까지 읽는 쪽 (Response는 호출 후 닫힘) */
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    public static final class Endpoint {
+        private final String name;
+        private final OkHttpClient client;
+        private final long timeoutMs;
+        private final Semaphore permits;
+
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram waitLatency = new LatencyHistogram();
+
+        private Endpoint(String name, long connectMs, long timeoutMs, int maxConcurrent) {
+            this.name = name;
+            this.timeoutMs = timeoutMs;
+            this.permits = new Semaphore(Math.max(1, maxConcurrent), true);
+            // newBuilder(): 풀/디스패처는 BASE와 공유, 타임아웃만 다름
+            this.client = BASE.newBuilder()
+                    .connectTimeout(Duration.ofMillis(connectMs))
+                    .readTimeout(Duration.ofMillis(timeoutMs))
+                    .writeTimeout(Duration.ofMillis(timeoutMs))
+                    .callTimeout(Duration.ofMillis(timeoutMs))
+                    .build();
+
+            Metrics.register("http." + name, () -> String.format(
+                    "calls=%d failed=%d inFlight=%d timeoutMs=%d wait{%s} latency{%s}",
+                    calls.get(), failed.get(), inFlight.get(), this.timeoutMs,
+                    waitLatency.summary(), latency.summary()));
+        }
+
+        public long timeoutMs() {
+            return timeoutMs;
+        }
+
+        /** 블로킹 호출: 동시성 제한 → 실행 → handler로 본문 처리 → 닫기 */
+        public <T> T execute(Request request, ResponseHandler<T> handler) throws IOException {
+            acquire();
+            long t0 = System.nanoTime();
+            try (Response resp = client.newCall(request).execute()) {
+                return handler.handle(resp);
+            } catch (IOException | RuntimeException e) {
+                failed.incrementAndGet();
+                throw e;
+            } finally {
+                latency.recordSince(t0);
+                release();
+            }
+        }
+
+        /**
+         * 비동기 호출 (OkHttp 디스패처 스레드에서 callback 실행)
+         * 호출 스레드는 절대 기다리지 않음: 동시성 제한이 꽉 차 있으면 바로 onFailure(BusyException)
+         * 해제는 callback이 끝난 뒤
+         */
+        public void enqueue(Request request, Callback callback) {
+            calls.incrementAndGet();
+            if (!permits.tryAcquire()) {
+                failed.incrementAndGet();
+                callback.onFailure(null, new BusyException("http." + name + " busy (동시 호출 제한)"));
+                return;
+            }
+            inFlight.incrementAndGet();
+            long t0 = System.nanoTime();
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    failed.incrementAndGet();
+                    latency.recordSince(t0);
+                    release();
+                    callback.onFailure(call, e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    try {
+                        callback.onResponse(call, response);
+                    } finally {
+                        latency.recordSince(t0);
+                        release();
+                    }
+                }
+            });
+        }
+
+        private void acquire() throws IOException {
+            calls.incrementAndGet();
+            long t0 = System.nanoTime();
+            try {
+                if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    failed.incrementAndGet();
+                    throw new BusyException("http." + name + " busy (" + timeoutMs + "ms 대기 초과)");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("http." + name + " interrupted", e);
+            } finally {
+                waitLatency.recordSince(t0);
+            }
+            inFlight.incrementAndGet();
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+            permits.release();
+        }
+    }
+}
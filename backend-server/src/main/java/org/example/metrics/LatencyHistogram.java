@@ -0,0 +1,73 @@
+package org.example.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 락 없는 지연시간 히스토그램 (µs 단위 log2 버킷)
+ * - record()는 할당 없이 카운터만 올린다 → 핫패스(프레임/쿼리마다)에서 써도 됨
+ * - 백분위는 버킷 상한 기준 근사값
+ */
+public class LatencyHistogram {
+
+    // bucket i = [2^(i-1), 2^i) µs, 0번은 1µs 미만
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int idx = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(idx);
+        count.incrementAndGet();
+        sumMicros.addAndGet(micros);
+
+        long prev;
+        while (micros > (prev = maxMicros.get())) {
+            if (maxMicros.compareAndSet(prev, micros)) break;
+        }
+    }
+
+    /** System.nanoTime() 시작값을 받아 지금까지 걸린 시간을 기록 */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public double meanMillis() {
+        long n = count.get();
+        return n == 0 ? 0.0 : (sumMicros.get() / (double) n) / 1000.0;
+    }
+
+    public double maxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /** p(0~1) 백분위 근사값(ms) */
+    public double percentileMillis(double p) {
+        long n = count.get();
+        if (n == 0) return 0.0;
+
+        long target = (long) Math.ceil(n * p);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                long upperMicros = (i == 0) ? 1 : (1L << i);
+                return Math.min(upperMicros, maxMicros.get()) / 1000.0;
+            }
+        }
+        return maxMillis();
+    }
+
+    public String summary() {
+        return String.format("n=%d avg=%.2fms p50=%.2fms p99=%.2fms max=%.2fms",
+                count(), meanMillis(), percentileMillis(0.50), percentileMillis(0.99), maxMillis());
+    }
+}
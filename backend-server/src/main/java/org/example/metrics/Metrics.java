@@ -0,0 +1,57 @@
+package org.example.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 각 컴포넌트가 자기 통계 문자열을 등록해두면 주기적으로 콘솔에 찍어주는 간단한 레지스트리.
+ * (별도 모니터링 스택 없이 시연/튜닝할 때 보려고 만든 것)
+ */
+public final class Metrics {
+
+    private static final Map<String, Supplier<String>> SOURCES = new ConcurrentSkipListMap<>();
+    private static volatile ScheduledExecutorService reporter;
+
+    private Metrics() {}
+
+    /** 같은 이름으로 다시 등록하면 덮어쓴다 */
+    public static void register(String name, Supplier<String> source) {
+        SOURCES.put(name, source);
+    }
+
+    public static void unregister(String name) {
+        SOURCES.remove(name);
+    }
+
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Supplier<String>> e : SOURCES.entrySet()) {
+            String line;
+            try {
+                line = e.getValue().get();
+            } catch (Exception ex) {
+                line = "error: " + ex.getMessage();
+            }
+            sb.append("📊 [").append(e.getKey()).append("] ").append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static synchronized void startReporter(long periodMs) {
+        if (reporter != null) return;
+
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Metrics-Reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            String out = dump();
+            if (!out.isEmpty()) System.out.print(out);
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -1,16 +1,20 @@
 package org.example.openai;
 
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
 import org.example.config.EnvLoader;
-
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import org.example.http.HttpTransport;
 
 public class OpenAiClient {
 
     private static final String API_KEY = EnvLoader.get("OPENAI_API_KEY");
     private static final String OPENAI_URL = "https://api.openai.com/v1/responses";
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    // 공유 풀 위의 OpenAI 엔드포인트 (TLS/HTTP2 연결을 호출마다 새로 맺지 않음)
+    private static final HttpTransport.Endpoint OPENAI = HttpTransport.endpoint("openai", 10_000, 60_000, 4);
+
     public static String callOpenAi(String prompt) {
     System.out.println("API_KEY = " + API_KEY);
         try {
@@ -22,17 +26,13 @@ public class OpenAiClient {
             """.formatted(quoteJson(prompt));
             System.out.println("jsonBody = " + jsonBody);
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(OPENAI_URL))
-                    .header("Content-Type", "application/json")
+            Request request = new Request.Builder()
+                    .url(OPENAI_URL)
                     .header("Authorization", "Bearer " + API_KEY)
-                    .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                    .post(RequestBody.create(jsonBody, JSON))
                     .build();
 
-            HttpClient client = HttpClient.newHttpClient();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-
-            return response.body();
+            return OPENAI.execute(request, response -> response.body() != null ? response.body().string() : "");
 
         } catch (Exception e) {
             throw new RuntimeException("OpenAI API 호출 실패", e);
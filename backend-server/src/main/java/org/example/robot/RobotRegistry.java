@@ -0,0 +1,193 @@
+package org.example.robot;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.example.metrics.Metrics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * robotId → RobotSession
+ *
+ * 핸드셰이크: 로봇은 접속 직후 첫 줄(바이너리 채널은 첫 프레임)로
+ *   {"type":"HELLO","robotId":"r1"}
+ * 을 보낸다. HELLO 없이 바로 데이터를 보내는 기존 로봇은 DEFAULT_ROBOT_ID로 취급.
+ *
+ * 로봇별 주기 작업(스냅샷/비전/LLM 트리거)은 전부 scheduler() 하나를 공유 → 로봇 수만큼 스레드가 늘지 않음
+ * (짧은 작업만. YOLO HTTP/파일 쓰기처럼 블로킹하는 단계는 ImageSocketService 전용 실행기에서)
+ *
+ * 끊긴 채 SESSION_IDLE_MS 동안 아무것도 안 온 세션은 정리 → 세션 맵/주기 작업이 접속했던 로봇 수만큼 쌓이지 않음
+ * (주기 작업은 session.cancelOnClose()로 걸어두면 같이 취소됨)
+ */
+public class RobotRegistry {
+
+    public static final String DEFAULT_ROBOT_ID = "default";
+
+    private static final Pattern ROBOT_ID = Pattern.compile("[A-Za-z0-9_.:-]{1,64}");
+    private static final int SCHEDULER_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+    private static final long SESSION_IDLE_MS = Long.getLong("serbot.robot.sessionIdleMs", 10 * 60_000L);
+    private static final long REAP_INTERVAL_MS = Math.min(60_000L, SESSION_IDLE_MS);
+
+    private final ConcurrentHashMap<String, RobotSession> sessions = new ConcurrentHashMap<>();
+    private final List<Consumer<RobotSession>> createdListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<RobotSession>> removedListeners = new CopyOnWriteArrayList<>();
+    private final AtomicInteger removedCount = new AtomicInteger();
+
+    private final ScheduledExecutorService scheduler;
+
+    public RobotRegistry() {
+        AtomicInteger seq = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS, r -> {
+            Thread t = new Thread(r, "Robot-Scheduler-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        Metrics.register("robots", () -> {
+            long connected = sessions.values().stream().filter(RobotSession::isConnected).count();
+            return String.format("sessions=%d connected=%d removed=%d", sessions.size(), connected, removedCount.get());
+        });
+
+        scheduler.scheduleWithFixedDelay(this::reapIdle, REAP_INTERVAL_MS, REAP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * 없으면 만들고, 새로 만들었으면 등록된 리스너(주기 작업 시작 등)를 호출
+     * - 연결(HELLO)마다 한 번이라 전부 락 안에서: 정리 중인 세션을 돌려주지 않도록
+     */
+    public synchronized RobotSession getOrCreate(String robotId) {
+        String id = (robotId == null || robotId.isBlank()) ? DEFAULT_ROBOT_ID : robotId;
+
+        RobotSession s = sessions.get(id);
+        if (s != null) {
+            s.touch();   // 받아간 직후 정리되지 않도록
+            return s;
+        }
+
+        RobotSession created = new RobotSession(id);
+        sessions.put(id, created);
+        notifyCreated(created);
+        return created;
+    }
+
+    /** 끊긴 채 SESSION_IDLE_MS가 지난 세션을 맵에서 빼고 close() (주기 작업 취소) */
+    private void reapIdle() {
+        long now = System.currentTimeMillis();
+        for (RobotSession s : sessions.values()) {
+            if (s.isConnected() || now - s.lastSeenAtMs() < SESSION_IDLE_MS) continue;
+
+            synchronized (this) {
+                // 그 사이 getOrCreate/재접속이 있었으면 유지
+                if (s.isConnected() || now - s.lastSeenAtMs() < SESSION_IDLE_MS) continue;
+                if (!sessions.remove(s.robotId(), s)) continue;
+            }
+
+            s.close();
+            removedCount.incrementAndGet();
+            System.out.println("🤖 robot session removed (idle " + (now - s.lastSeenAtMs()) / 1000 + "s): " + s.robotId());
+            for (Consumer<RobotSession> l : removedListeners) {
+                try {
+                    l.accept(s);
+                } catch (Exception e) {
+                    System.out.println("⚠ robot session listener error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void notifyCreated(RobotSession created) {
+        System.out.println("🤖 robot session created: " + created.robotId());
+        for (Consumer<RobotSession> l : createdListeners) {
+            try {
+                l.accept(created);
+            } catch (Exception e) {
+                System.out.println("⚠ robot session listener error: " + e.getMessage());
+            }
+        }
+    }
+
+    public RobotSession get(String robotId) {
+        return robotId == null ? null : sessions.get(robotId);
+    }
+
+    /**
+     * 명령 대상 로봇 결정
+     * - robotId가 있으면 그 로봇
+     * - 없으면(기존 GUI/단일 로봇 코드) DEFAULT 로봇 → 없으면 접속 중인 로봇이 딱 하나일 때 그 로봇
+     */
+    public RobotSession resolve(String robotId) {
+        if (robotId != null && !robotId.isBlank()) return sessions.get(robotId);
+
+        RobotSession def = sessions.get(DEFAULT_ROBOT_ID);
+        if (def != null && def.isConnected()) return def;
+
+        RobotSession only = null;
+        for (RobotSession s : sessions.values()) {
+            if (!s.isConnected()) continue;
+            if (only != null) return def; // 여러 대면 모호 → 기본 로봇(없으면 null)
+            only = s;
+        }
+        return only != null ? only : def;
+    }
+
+    public Collection<RobotSession> sessions() {
+        return sessions.values();
+    }
+
+    public boolean anyConnected() {
+        for (RobotSession s : sessions.values()) {
+            if (s.isConnected()) return true;
+        }
+        return false;
+    }
+
+    /** 세션 생성 리스너 등록 (이미 있는 세션에도 즉시 호출) */
+    public synchronized void onSessionCreated(Consumer<RobotSession> listener) {
+        createdListeners.add(listener);
+        for (RobotSession s : sessions.values()) listener.accept(s);
+    }
+
+    /** 유휴 세션 정리 리스너 등록 (세션별로 들고 있던 것 해제용, close() 뒤에 호출) */
+    public void onSessionRemoved(Consumer<RobotSession> listener) {
+        removedListeners.add(listener);
+    }
+
+    /**
+     * HELLO 프레임이면 robotId, 아니면 null
+     * - 바이너리 채널(JPEG)은 첫 바이트가 '{'가 아니므로 파싱 비용 없이 걸러짐
+     * - robotId 형식이 잘못되면 IllegalArgumentException
+     */
+    public static String parseHello(byte[] frame) {
+        if (frame == null || frame.length == 0 || frame[0] != '{') return null;
+
+        JsonObject o;
+        try {
+            o = JsonParser.parseString(new String(frame, StandardCharsets.UTF_8)).getAsJsonObject();
+        } catch (Exception e) {
+            return null;
+        }
+        if (!o.has("type") || !"HELLO".equals(o.get("type").getAsString())) return null;
+
+        String id = (o.has("robotId") && !o.get("robotId").isJsonNull())
+                ? o.get("robotId").getAsString().trim()
+                : DEFAULT_ROBOT_ID;
+        if (!ROBOT_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("invalid robotId: " + id);
+        }
+        return id;
+    }
+}
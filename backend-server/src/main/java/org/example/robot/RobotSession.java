@@ -0,0 +1,117 @@
+package org.example.robot;
+
+import org.example.socket.nio.NioConnection;
+import org.example.state.SensorState;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 로봇 한 대의 서버 측 상태
+ * - 센서 상태(SensorState)는 로봇마다 따로
+ * - 제어 채널(6000) 연결은 로봇당 하나: 같은 id로 다시 붙으면 이전 연결을 닫음
+ * - 연결이 끊겨도 세션(상태)은 남겨둔다 → 재접속 시 이어서 사용
+ *   (오래 끊겨 있으면 RobotRegistry가 정리하고 close() → 걸어둔 주기 작업 취소)
+ */
+public class RobotSession {
+
+    private final String robotId;
+    private final SensorState state = new SensorState();
+    private final AtomicReference<NioConnection> control = new AtomicReference<>();
+
+    // ✅ GUI의 MANUAL_LLM_TRIGGER (로봇별)
+    private final AtomicBoolean manualLlmTriggered = new AtomicBoolean(false);
+
+    // 마지막으로 뭔가 오간 시각 (정리 대상 판단용). 제어 연결 중이면 보지 않음
+    private volatile long lastSeenAtMs = System.currentTimeMillis();
+
+    // 세션이 정리될 때 실행 (주기 작업 취소 등)
+    private final List<Runnable> closeHooks = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    RobotSession(String robotId) {
+        this.robotId = robotId;
+    }
+
+    public String robotId() {
+        return robotId;
+    }
+
+    public SensorState state() {
+        return state;
+    }
+
+    public AtomicBoolean manualLlmTriggered() {
+        return manualLlmTriggered;
+    }
+
+    /** @return 교체된 이전 연결 (없으면 null) */
+    public NioConnection attachControl(NioConnection conn) {
+        touch();
+        return control.getAndSet(conn);
+    }
+
+    /** conn이 현재 연결일 때만 떼어냄 (교체된 옛 연결의 onClose가 새 연결을 지우지 않도록) */
+    public boolean detachControl(NioConnection conn) {
+        touch();   // 유휴 시간은 끊긴 시점부터
+        return control.compareAndSet(conn, null);
+    }
+
+    /** 제어 채널 밖(이미지 스트림 등)에서 이 로봇이 살아 있다고 알림 */
+    public void touch() {
+        lastSeenAtMs = System.currentTimeMillis();
+    }
+
+    long lastSeenAtMs() {
+        return lastSeenAtMs;
+    }
+
+    /** 세션 정리 시 실행할 작업 등록 (이미 정리됐으면 바로 실행) */
+    public void onClose(Runnable hook) {
+        closeHooks.add(hook);
+        if (closed.get() && closeHooks.remove(hook)) hook.run();
+    }
+
+    /** 세션 정리 시 주기 작업 취소 */
+    public void cancelOnClose(Future<?> task) {
+        onClose(() -> task.cancel(false));
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /** RobotRegistry에서 세션을 뺀 뒤 한 번만 호출 */
+    void close() {
+        if (!closed.compareAndSet(false, true)) return;
+        for (Runnable hook : closeHooks) {
+            if (!closeHooks.remove(hook)) continue;   // onClose()가 이미 실행함
+            try {
+                hook.run();
+            } catch (Exception e) {
+                System.out.println("⚠ robot session close hook error (" + robotId + "): " + e.getMessage());
+            }
+        }
+    }
+
+    public boolean isConnected() {
+        NioConnection c = control.get();
+        return c != null && c.isOpen();
+    }
+
+    /** 제어 채널로 한 줄 전송 (연결 없거나 송신 대기 초과면 false) */
+    public boolean send(String msg) {
+        NioConnection c = control.get();
+        if (c == null || msg == null) return false;
+        return c.send(msg.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public long pendingBytes() {
+        NioConnection c = control.get();
+        return c == null ? 0 : c.pendingBytes();
+    }
+}
@@ -3,17 +3,16 @@ package org.example.service;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import okhttp3.*;
+import okio.BufferedSource;
+import org.example.http.HttpTransport;
 
 import java.io.IOException;
-import java.time.Duration;
+import java.util.function.Consumer;
 
 public class AgentService {
 
-    private static final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(Duration.ofMinutes(1))
-            .writeTimeout(Duration.ofMinutes(1))
-            .readTimeout(Duration.ofMinutes(1))
-            .build();
+    // 공유 커넥션 풀 위의 Ollama 엔드포인트 (LLM 스레드 수만큼만 동시에)
+    private static final HttpTransport.Endpoint OLLAMA = HttpTransport.endpoint("ollama", 5_000, 60_000, 2);
 
     private static final String OLLAMA_URL = "http://localhost:11434/api/generate";
     private static final MediaType JSON
@@ -35,19 +34,21 @@ public class AgentService {
                 .post(body)
                 .build();
 
-        try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new RuntimeException("HTTP 실패: " + response.code());
-            }
+        try {
+            return OLLAMA.execute(request, response -> {
+                if (!response.isSuccessful()) {
+                    throw new RuntimeException("HTTP 실패: " + response.code());
+                }
 
-            String resBody = response.body().string();
-            JsonObject json = gson.fromJson(resBody, JsonObject.class);
+                String resBody = response.body().string();
+                JsonObject json = gson.fromJson(resBody, JsonObject.class);
 
-            // ✅ 1) raw 응답 문자열
-            String raw = json.get("response").getAsString();
+                // ✅ 1) raw 응답 문자열
+                String raw = json.get("response").getAsString();
 
-            // ✅ 2) raw에서 첫 번째 JSON 객체만 추출해서 반환
-            return extractFirstJsonObject(raw);
+                // ✅ 2) raw에서 첫 번째 JSON 객체만 추출해서 반환
+                return extractFirstJsonObject(raw);
+            });
 
         } catch (IOException e) {
             throw new RuntimeException("🔥 Ollama 요청 실패: " + e.getMessage(), e);
@@ -55,54 +56,73 @@ public class AgentService {
     }
 
     /**
-     * LLM이 설명/코드블록/여러 JSON을 섞어도, 첫 번째 완전한 JSON 객체({ ... })만 뽑는다.
-     * - 문자열 내부의 중괄호는 무시(따옴표 처리)
+     * 스트리밍 호출 (Ollama NDJSON): 첫 JSON 객체가 닫히는 즉시 반환
+     * - 응답을 더 읽지 않고 닫음 → 연결이 끊기면서 Ollama도 남은 생성을 중단
+     * - gui_message 값이 늘어날 때마다 onGuiMessage(지금까지의 전체 텍스트) 호출 (null이면 생략)
+     * @return ask()와 같은 형식 (첫 번째 JSON 객체 문자열)
      */
-    private static String extractFirstJsonObject(String text) {
-        if (text == null) throw new IllegalArgumentException("LLM response is null");
+    public static String askStreaming(String prompt, Consumer<String> onGuiMessage) {
 
-        int start = -1;
-        int depth = 0;
-        boolean inString = false;
-        boolean escape = false;
+        JsonObject req = new JsonObject();
+        req.addProperty("model", "robot-agent");
+        req.addProperty("prompt", prompt);
+        req.addProperty("stream", true);
 
-        for (int i = 0; i < text.length(); i++) {
-            char c = text.charAt(i);
+        Request request = new Request.Builder()
+                .url(OLLAMA_URL)
+                .post(RequestBody.create(gson.toJson(req), JSON))
+                .build();
 
-            if (start == -1) {
-                if (c == '{') {
-                    start = i;
-                    depth = 1;
+        try {
+            return OLLAMA.execute(request, response -> {
+                if (!response.isSuccessful()) {
+                    throw new RuntimeException("HTTP 실패: " + response.code());
                 }
-                continue;
-            }
-
-            if (escape) {
-                escape = false;
-                continue;
-            }
-
-            if (c == '\\') {
-                escape = true;
-                continue;
-            }
-
-            if (c == '"') {
-                inString = !inString;
-                continue;
-            }
-
-            if (!inString) {
-                if (c == '{') depth++;
-                else if (c == '}') {
-                    depth--;
-                    if (depth == 0) {
-                        return text.substring(start, i + 1).trim();
+
+                JsonObjectScanner scanner = new JsonObjectScanner();
+                StringBuilder raw = new StringBuilder();
+                BufferedSource src = response.body().source();
+
+                String line;
+                while ((line = src.readUtf8Line()) != null) {
+                    if (line.isBlank()) continue;
+                    JsonObject chunk = gson.fromJson(line, JsonObject.class);
+
+                    if (chunk.has("error")) {
+                        throw new RuntimeException("Ollama 오류: " + chunk.get("error").getAsString());
                     }
+                    if (chunk.has("response")) {
+                        String token = chunk.get("response").getAsString();
+                        raw.append(token);
+
+                        String obj = scanner.feed(token);
+                        if (onGuiMessage != null && scanner.takePartialChanged()) {
+                            onGuiMessage.accept(scanner.guiMessagePartial());
+                        }
+                        if (obj != null) return obj;   // 나머지 생성은 버림 (응답 닫힘)
+                    }
+                    if (chunk.has("done") && chunk.get("done").getAsBoolean()) break;
                 }
-            }
+
+                throw new IllegalStateException("❌ LLM 응답에서 JSON 객체를 찾지 못함. raw=" + raw);
+            });
+
+        } catch (IOException e) {
+            throw new RuntimeException("🔥 Ollama 요청 실패: " + e.getMessage(), e);
         }
+    }
+
+    /**
+     * LLM이 설명/코드블록/여러 JSON을 섞어도, 첫 번째 완전한 JSON 객체({ ... })만 뽑는다.
+     * - 문자열 내부의 중괄호는 무시(따옴표 처리)
+     */
+    private static String extractFirstJsonObject(String text) {
+        if (text == null) throw new IllegalArgumentException("LLM response is null");
 
-        throw new IllegalStateException("❌ LLM 응답에서 JSON 객체를 찾지 못함. raw=" + text);
+        String obj = new JsonObjectScanner().feed(text);
+        if (obj == null) {
+            throw new IllegalStateException("❌ LLM 응답에서 JSON 객체를 찾지 못함. raw=" + text);
+        }
+        return obj;
     }
 }
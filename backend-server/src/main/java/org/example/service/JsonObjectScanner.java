@@ -0,0 +1,147 @@
+package org.example.service;
+
+/**
+ * LLM 출력에서 첫 번째 완전한 JSON 객체({ ... })를 조각 단위로 찾는 스캐너
+ *
+ * - 토큰이 올 때마다 feed() → 첫 객체가 닫히는 순간 그 문자열을 돌려줌 (그 뒤 출력은 볼 필요 없음)
+ * - 객체 앞의 설명/코드블록은 무시, 문자열 안의 중괄호/따옴표는 무시(이스케이프 처리)
+ * - 최상위 "gui_message" 값은 닫히기 전에도 guiMessagePartial()로 꺼낼 수 있음 (관제 화면 미리보기)
+ *
+ * 스레드 안전하지 않음 (호출 하나당 하나)
+ */
+final class JsonObjectScanner {
+
+    private final StringBuilder obj = new StringBuilder();
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escape = false;
+    private String result;
+
+    // 최상위(depth 1) 키/값 추적
+    private boolean expectKey = false;
+    private boolean stringIsKey = false;
+    private final StringBuilder key = new StringBuilder();
+    private String currentKey;
+
+    // gui_message 값 디코딩 (\\uXXXX는 조각 경계에 걸칠 수 있음)
+    private static final String PARTIAL_KEY = "gui_message";
+    private boolean inPartial = false;
+    private final StringBuilder partial = new StringBuilder();
+    private boolean partialChanged = false;
+    private int unicodeLeft = 0;
+    private int unicodeAcc = 0;
+
+    /** @return 첫 객체가 이번 조각에서(또는 이미) 닫혔으면 그 JSON 문자열, 아니면 null */
+    String feed(CharSequence chunk) {
+        if (result != null) return result;
+
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+
+            if (depth == 0) {
+                if (c == '{') {
+                    obj.append(c);
+                    depth = 1;
+                    expectKey = true;
+                }
+                continue;
+            }
+            obj.append(c);
+
+            if (inString) {
+                onStringChar(c);
+                continue;
+            }
+
+            switch (c) {
+                case '"' -> {
+                    inString = true;
+                    stringIsKey = (depth == 1 && expectKey);
+                    inPartial = (depth == 1 && !stringIsKey && PARTIAL_KEY.equals(currentKey));
+                    if (stringIsKey) key.setLength(0);
+                }
+                case '{', '[' -> depth++;
+                case '}', ']' -> {
+                    depth--;
+                    if (depth == 0) {
+                        result = obj.toString().trim();
+                        return result;
+                    }
+                }
+                case ',' -> {
+                    if (depth == 1) expectKey = true;
+                }
+                default -> { }
+            }
+        }
+        return null;
+    }
+
+    private void onStringChar(char c) {
+        if (escape) {
+            escape = false;
+            if (stringIsKey) {
+                key.append(c);
+            } else if (inPartial) {
+                switch (c) {
+                    case 'n' -> appendPartial('\n');
+                    case 't' -> appendPartial('\t');
+                    case 'r' -> { }
+                    case 'b', 'f' -> { }
+                    case 'u' -> {
+                        unicodeLeft = 4;
+                        unicodeAcc = 0;
+                    }
+                    default -> appendPartial(c);   // \" \\ \/
+                }
+            }
+            return;
+        }
+
+        if (unicodeLeft > 0) {
+            int d = Character.digit(c, 16);
+            unicodeAcc = (unicodeAcc << 4) | Math.max(d, 0);
+            if (--unicodeLeft == 0 && inPartial) appendPartial((char) unicodeAcc);
+            return;
+        }
+
+        if (c == '\\') {
+            escape = true;
+            return;
+        }
+
+        if (c == '"') {
+            inString = false;
+            if (stringIsKey) {
+                currentKey = key.toString();
+                expectKey = false;
+            }
+            inPartial = false;
+            return;
+        }
+
+        if (stringIsKey) key.append(c);
+        else if (inPartial) appendPartial(c);
+    }
+
+    private void appendPartial(char c) {
+        partial.append(c);
+        partialChanged = true;
+    }
+
+    /** 지금까지 나온 gui_message 값 (아직 없으면 빈 문자열) */
+    String guiMessagePartial() {
+        return partial.toString();
+    }
+
+    /** 마지막 호출 이후 gui_message가 늘었는지 (읽으면 초기화) */
+    boolean takePartialChanged() {
+        boolean c = partialChanged;
+        partialChanged = false;
+        return c;
+    }
+
+    boolean isComplete() {
+        return result != null;
+    }
+}
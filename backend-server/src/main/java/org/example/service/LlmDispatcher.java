@@ -0,0 +1,118 @@
+package org.example.service;
+
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LLM 호출 전용 실행기 (로봇별 single-flight)
+ *
+ * - AgentService.ask는 최대 1분 걸리는 블로킹 HTTP 호출 → 비전/스냅샷이 쓰는 공유 스케줄러에서 돌리면 안 됨
+ * - 로봇당 동시에 1건만 실행. 실행 중에 들어온 요청은 "다음 1건"으로 합쳐짐 (마지막 것만 남김)
+ *   → 트리거가 몰려도 Ollama에 쌓이지 않고, 끝나자마자 최신 상태로 한 번 더 호출
+ * - 단, 대기 중인 MANUAL(운영자 트리거)은 VISION(2초마다 자동 재제출)으로 덮어쓰지 않음
+ *   → 사람이 보이는 동안에도 운영자 요청이 사라지지 않음 (들어온 VISION 쪽을 버림)
+ * - 작업은 실행 시점에 프롬프트를 만들도록 넘길 것 (대기 중 상태가 바뀌어도 최신 값 반영)
+ */
+public class LlmDispatcher {
+
+    /** 요청 종류 (대기 슬롯에서 MANUAL이 VISION보다 우선) */
+    public enum Kind { VISION, MANUAL }
+
+    // 로봇별 실행 상태 (slots로 동기화)
+    private static final class Slot {
+        boolean running;
+        Runnable pending;
+        Kind pendingKind;
+    }
+
+    private final ExecutorService exec;
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * @param threads 동시에 LLM을 부를 수 있는 로봇 수 (Ollama 한 대면 작게)
+     */
+    public LlmDispatcher(int threads) {
+        AtomicInteger seq = new AtomicInteger();
+        this.exec = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "LLM-Worker-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        Metrics.register("llm", () -> String.format("submitted=%d coalesced=%d inFlight=%d failed=%d latency{%s}",
+                submitted.get(), coalesced.get(), inFlight.get(), failed.get(), latency.summary()));
+    }
+
+    /**
+     * 바로 반환 (호출 스레드는 절대 막히지 않음)
+     * @param robotId single-flight 단위
+     * @param kind    대기 중인 MANUAL은 VISION으로 교체되지 않음
+     * @param job     LLM 호출 + 결과 전송까지. 예외는 여기서 잡아 로그만 남김
+     */
+    public void submit(String robotId, Kind kind, Runnable job) {
+        submitted.incrementAndGet();
+        synchronized (slots) {
+            Slot s = slots.computeIfAbsent(robotId, k -> new Slot());
+            if (s.running) {
+                if (s.pending != null) {
+                    coalesced.incrementAndGet();
+                    if (s.pendingKind == Kind.MANUAL && kind == Kind.VISION) return;   // 운영자 요청 유지
+                }
+                s.pending = job;
+                s.pendingKind = kind;
+                return;
+            }
+            s.running = true;
+        }
+        exec.execute(() -> run(robotId, job));
+    }
+
+    /** 이 로봇의 LLM 호출이 실행 중인지 */
+    public boolean isBusy(String robotId) {
+        synchronized (slots) {
+            Slot s = slots.get(robotId);
+            return s != null && s.running;
+        }
+    }
+
+    private void run(String robotId, Runnable job) {
+        inFlight.incrementAndGet();
+        long t0 = System.nanoTime();
+        try {
+            job.run();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.out.println("🧠 LLM job error (" + robotId + "): " + e.getMessage());
+        } finally {
+            latency.recordSince(t0);
+            inFlight.decrementAndGet();
+        }
+
+        // 실행 중에 합쳐진 요청이 있으면 이어서 (다른 로봇이 기다리지 않게 큐 뒤로 다시 넣음)
+        Runnable next;
+        synchronized (slots) {
+            Slot s = slots.get(robotId);
+            next = s.pending;
+            s.pending = null;
+            s.pendingKind = null;
+            if (next == null) s.running = false;
+        }
+        if (next != null) {
+            Runnable n = next;
+            exec.execute(() -> run(robotId, n));
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package org.example.service;
 
+import org.example.state.SensorHistory;
+import org.example.state.SensorSeries;
 import org.example.state.SensorState;
 
+import java.util.Locale;
+
 /**
  * PromptBuilder
  * - 2키 메시지(JSON) 프롬프트 (voice_to_survivor, gui_message)
  * - 2키 + gui 고정(voice만 생성) 프롬프트
  * - 7키 Few-shot(Output 7 keys) 프롬프트
  *
- * ⚠️ 유틸(n/b/q)은 이 클래스 내부에서만 사용한다.
+ * ⚠️ 유틸(n/r1/b/q)은 이 클래스 내부에서만 사용한다.
  */
 public class PromptBuilder {
 
@@ -69,6 +73,7 @@ public class PromptBuilder {
             SensorState s,
             String guiMessageFixed
     ) {
+        SensorState.Snapshot v = s.snapshot();
         String inputJson = "{\n"
                 + "  \"decision\": {\n"
                 + "    \"phase\": \"" + phase + "\",\n"
@@ -76,14 +81,14 @@ public class PromptBuilder {
                 + "    \"robot_action\": \"" + robotAction + "\"\n"
                 + "  },\n"
                 + "  \"sensors\": {\n"
-                + "    \"flame\": " + n(s.getFlame()) + ",\n"
-                + "    \"co2\": " + n(s.getCo2()) + ",\n"
-                + "    \"pm25\": " + n(s.getPm25()) + ",\n"
-                + "    \"pm10\": " + n(s.getPm10()) + ",\n"
-                + "    \"pir\": " + b(s.getPir()) + "\n"
+                + "    \"flame\": " + n(v.flame()) + ",\n"
+                + "    \"co2\": " + n(v.co2()) + ",\n"
+                + "    \"pm25\": " + n(v.pm25()) + ",\n"
+                + "    \"pm10\": " + n(v.pm10()) + ",\n"
+                + "    \"pir\": " + b(v.pirDetected()) + "\n"
                 + "  },\n"
                 + "  \"audio\": {\n"
-                + "    \"last_stt\": \"" + q(s.getLastStt()) + "\"\n"
+                + "    \"last_stt\": \"" + q(v.lastStt()) + "\"\n"
                 + "  },\n"
                 + "  \"gui_message_fixed\": \"" + q(guiMessageFixed) + "\"\n"
                 + "}";
@@ -116,20 +121,22 @@ public class PromptBuilder {
             boolean hasHumanLikeSpeech, // 임시 추정 가능
             boolean survivorUnconscious // 없으면 false
     ) {
+        SensorState.Snapshot v = s.snapshot();
         String inputJson =
                 "{\n" +
                         "  \"phase\": \"" + phase + "\",\n" +
                         "  \"sensors\": {\n" +
-                        "    \"flame\": " + n(s.getFlame()) + ",\n" +
-                        "    \"co2\": " + n(s.getCo2()) + ",\n" +
-                        "    \"pm25\": " + n(s.getPm25()) + ",\n" +
-                        "    \"pm10\": " + n(s.getPm10()) + ",\n" +
+                        "    \"flame\": " + n(v.flame()) + ",\n" +
+                        "    \"co2\": " + n(v.co2()) + ",\n" +
+                        "    \"pm25\": " + n(v.pm25()) + ",\n" +
+                        "    \"pm10\": " + n(v.pm10()) + ",\n" +
                         "    \"gas\": " + (gas == null ? "null" : gas) + ",\n" +
-                        "    \"pir\": " + b(s.getPir()) + ",\n" +
+                        "    \"pir\": " + b(v.pirDetected()) + ",\n" +
                         "    \"vision_person\": " + (visionPerson ? "true" : "false") + "\n" +
                         "  },\n" +
+                        trendsJson(s.history()) +
                         "  \"audio\": {\n" +
-                        "    \"recent_stt\": \"" + q(s.getLastStt()) + "\",\n" +
+                        "    \"recent_stt\": \"" + q(v.lastStt()) + "\",\n" +
                         "    \"has_human_like_speech\": " + (hasHumanLikeSpeech ? "true" : "false") + "\n" +
                         "  },\n" +
                         "  \"survivor\": {\n" +
@@ -253,6 +260,7 @@ public class PromptBuilder {
             RobotAction robotAction,
             SensorState s
     ) {
+        SensorState.Snapshot v = s.snapshot();
         return "{\n"
                 + "  \"decision\": {\n"
                 + "    \"phase\": \"" + phase + "\",\n"
@@ -260,20 +268,46 @@ public class PromptBuilder {
                 + "    \"robot_action\": \"" + robotAction + "\"\n"
                 + "  },\n"
                 + "  \"sensors\": {\n"
-                + "    \"flame\": " + n(s.getFlame()) + ",\n"
-                + "    \"co2\": " + n(s.getCo2()) + ",\n"
-                + "    \"pm25\": " + n(s.getPm25()) + ",\n"
-                + "    \"pm10\": " + n(s.getPm10()) + ",\n"
-                + "    \"pir\": " + b(s.getPir()) + ",\n"
-                + "    \"ultrasonic\": " + n(s.getUltrasonic()) + "\n"
+                + "    \"flame\": " + n(v.flame()) + ",\n"
+                + "    \"co2\": " + n(v.co2()) + ",\n"
+                + "    \"pm25\": " + n(v.pm25()) + ",\n"
+                + "    \"pm10\": " + n(v.pm10()) + ",\n"
+                + "    \"pir\": " + b(v.pirDetected()) + ",\n"
+                + "    \"ultrasonic\": " + n(v.ultrasonic()) + "\n"
                 + "  },\n"
+                + trendsJson(s.history())
                 + "  \"audio\": {\n"
-                + "    \"last_stt\": \"" + q(s.getLastStt()) + "\",\n"
-                + "    \"last_stt_time\": " + s.getLastSttTime() + "\n"
+                + "    \"last_stt\": \"" + q(v.lastStt()) + "\",\n"
+                + "    \"last_stt_time\": " + v.lastSttTime() + "\n"
                 + "  }\n"
                 + "}";
     }
 
+    /* =======================
+       최근 추세 (메모리 시계열, DB 조회 없음)
+       ======================= */
+    private static String trendsJson(SensorHistory h) {
+        long now = System.currentTimeMillis();
+        SensorSeries.Window co2 = h.window(SensorHistory.Channel.CO2, now);
+        SensorSeries.Window pm25 = h.window(SensorHistory.Channel.PM25, now);
+        SensorSeries.Window flame = h.window(SensorHistory.Channel.FLAME, now);
+
+        return "  \"trends_" + (co2.windowMs() / 1000) + "s\": {\n"
+                + "    \"co2\": " + w(co2) + ",\n"
+                + "    \"pm25\": " + w(pm25) + ",\n"
+                + "    \"flame_max\": " + n(flame.max()) + "\n"
+                + "  },\n";
+    }
+
+    private static String w(SensorSeries.Window w) {
+        if (w.isEmpty()) return "null";
+        return "{\"mean\": " + r1(w.mean())
+                + ", \"min\": " + r1(w.min())
+                + ", \"max\": " + r1(w.max())
+                + ", \"ewma\": " + r1(w.ewma())
+                + ", \"rate_per_s\": " + r1(w.ratePerSec()) + "}";
+    }
+
     /* =======================
        Enum 정의
        ======================= */
@@ -296,12 +330,16 @@ public class PromptBuilder {
     /* =======================
        유틸 (이 클래스 내부 사용)
        ======================= */
-    private static String n(Object v) {
-        return v == null ? "null" : v.toString();
+    private static String n(double v) {
+        return Double.isNaN(v) ? "null" : Double.toString(v);
+    }
+
+    private static String r1(double v) {
+        return Double.isNaN(v) ? "null" : String.format(Locale.ROOT, "%.1f", v);
     }
 
-    private static String b(Boolean v) {
-        return v != null && v ? "true" : "false";
+    private static String b(boolean v) {
+        return v ? "true" : "false";
     }
 
     private static String q(String s) {
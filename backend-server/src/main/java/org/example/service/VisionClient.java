@@ -1,23 +1,49 @@
 package org.example.service;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import okhttp3.*;
+import org.example.http.HttpTransport;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
 
-import java.time.Duration;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class VisionClient {
-    private final OkHttpClient client = new OkHttpClient.Builder()
-            .callTimeout(Duration.ofSeconds(5))
-            .build();
+    // 공유 커넥션 풀 위의 YOLO 전용 엔드포인트 (프레임마다 keep-alive 연결 재사용)
+    private static final HttpTransport.Endpoint YOLO = HttpTransport.endpoint("yolo", 1_000, 5_000, 8);
 
     private final String baseUrl;
     private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final MediaType OCTET = MediaType.get("application/octet-stream");
+
+    // /infer/bytes가 없는 구버전 추론 서버면 한 번 확인 후 경로 모드로 고정
+    private volatile boolean bytesSupported = true;
+
+    // 마이크로 배치: 최대 BATCH_MAX장 또는 첫 프레임 후 BATCH_WAIT_MS 중 먼저 오는 쪽에서 한 요청으로
+    // (파이프라인은 로봇당 1장씩만 추론을 기다리므로 배치가 차는 건 로봇이 여러 대일 때)
+    private static final int BATCH_MAX = Integer.getInteger("serbot.vision.batchMax", 4);
+    private static final long BATCH_WAIT_MS = Long.getLong("serbot.vision.batchWaitMs", 5);
+
+    private final Batcher batcher;   // BATCH_MAX <= 1 이면 null (프레임마다 /infer/bytes)
+    private volatile boolean batchSupported = true;
 
     public VisionClient(String baseUrl) {
         this.baseUrl = baseUrl;
+        this.batcher = (BATCH_MAX > 1) ? new Batcher(BATCH_MAX, BATCH_WAIT_MS) : null;
+    }
+
+    /** JPEG 바이트를 그대로 보낼 수 있는지 (false면 infer(path)를 쓸 것) */
+    public boolean supportsBytes() {
+        return bytesSupported;
     }
-    
 
     public JsonObject infer(String absoluteImagePath, double conf) throws Exception {
         JsonObject req = new JsonObject();
@@ -30,17 +56,213 @@ public class VisionClient {
                 .post(RequestBody.create(bodyStr, JSON))
                 .build();
 
-        try (Response resp = client.newCall(request).execute()) {
-            String respBody = resp.body() != null ? resp.body().string() : "";
-            System.out.println("🧠 YOLO RESP " + resp.code() + " = " + respBody);
+        return YOLO.execute(request, VisionClient::parse);
+    }
+
+    /**
+     * 디스크를 거치지 않는 추론 (블로킹)
+     * - 배치 모드면 다른 로봇 프레임과 묶여 /infer/batch로, 아니면 /infer/bytes로
+     * 서버에 엔드포인트가 없으면(404/405) UnsupportedOperationException → 호출 측이 경로 모드로 전환
+     */
+    public JsonObject inferBytes(byte[] jpg, double conf) throws Exception {
+        if (batcher != null && batchSupported) {
+            try {
+                return batcher.submit(jpg, conf).get(YOLO.timeoutMs() + BATCH_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                // 배치 엔드포인트가 없거나, 동시 호출 제한에 걸려 배치를 못 보냈으면 이 프레임은 단건으로
+                // (단건은 호출 스레드에서 자리가 날 때까지 기다림 — 배치 타이머 스레드는 안 막힘)
+                Throwable cause = e.getCause();
+                if (!(cause instanceof UnsupportedOperationException) && !(cause instanceof HttpTransport.BusyException)) {
+                    throw (cause instanceof Exception ex) ? ex : e;
+                }
+            }
+        }
+        return inferSingle(jpg, conf);
+    }
+
+    /** POST /infer/bytes?conf=.. (body = JPEG) */
+    private JsonObject inferSingle(byte[] jpg, double conf) throws Exception {
+        HttpUrl url = HttpUrl.get(baseUrl + "/infer/bytes").newBuilder()
+                .addQueryParameter("conf", String.valueOf(conf))
+                .build();
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(jpg, OCTET))
+                .build();
+
+        return YOLO.execute(request, resp -> {
+            if (resp.code() == 404 || resp.code() == 405) {
+                bytesSupported = false;
+                System.out.println("⚠ YOLO /infer/bytes 미지원 (HTTP " + resp.code() + ") → 경로 모드로 전환");
+                throw new UnsupportedOperationException("infer/bytes not supported");
+            }
+            return parse(resp);
+        });
+    }
+
+    /**
+     * 프레임을 모아 /infer/batch로 보내고, 응답 results[i]를 i번째 호출자의 Future로 돌려줌
+     * - conf가 다른 프레임이 오면 지금까지 모은 것부터 보냄 (한 요청 = 한 conf)
+     * - HTTP는 OkHttp 비동기 호출 → 응답을 기다리는 동안에도 다음 배치를 모음
+     * - 보내는 쪽(타이머/submit 스레드)은 절대 기다리지 않음: YOLO 동시 호출이 꽉 차면 그 배치는
+     *   BusyException으로 바로 실패 → 각 호출자가 자기 스레드에서 단건으로 다시 보냄
+     */
+    private final class Batcher {
+        private record Pending(byte[] jpg, CompletableFuture<JsonObject> future) {}
+        private record Batch(double conf, List<Pending> items) {}
+
+        private final int maxItems;
+        private final long maxWaitMs;
+        private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Vision-Batch");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // this로 동기화
+        private List<Pending> pending = new ArrayList<>();
+        private double pendingConf;
+        private ScheduledFuture<?> flushTask;
+
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong frames = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong busy = new AtomicLong();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        Batcher(int maxItems, long maxWaitMs) {
+            this.maxItems = maxItems;
+            this.maxWaitMs = maxWaitMs;
+
+            Metrics.register("vision.batch", () -> {
+                long b = batches.get();
+                return String.format("batches=%d frames=%d avgBatch=%.2f failed=%d busy=%d latency{%s}",
+                        b, frames.get(), b == 0 ? 0.0 : (double) frames.get() / b, failed.get(), busy.get(), latency.summary());
+            });
+        }
+
+        CompletableFuture<JsonObject> submit(byte[] jpg, double conf) {
+            Pending p = new Pending(jpg, new CompletableFuture<>());
+            Batch before = null, full = null;
 
+            synchronized (this) {
+                if (!pending.isEmpty() && pendingConf != conf) before = drain();
+                if (pending.isEmpty()) {
+                    pendingConf = conf;
+                    flushTask = timer.schedule(this::flushDue, maxWaitMs, TimeUnit.MILLISECONDS);
+                }
+                pending.add(p);
+                if (pending.size() >= maxItems) full = drain();
+            }
+
+            if (before != null) send(before);
+            if (full != null) send(full);
+            return p.future();
+        }
+
+        private void flushDue() {
+            Batch b;
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                b = drain();
+            }
+            send(b);
+        }
+
+        // synchronized 안에서만
+        private Batch drain() {
+            if (flushTask != null) {
+                flushTask.cancel(false);
+                flushTask = null;
+            }
+            Batch b = new Batch(pendingConf, pending);
+            pending = new ArrayList<>();
+            return b;
+        }
+
+        private void send(Batch b) {
+            batches.incrementAndGet();
+            frames.addAndGet(b.items().size());
+
+            // [4바이트 길이][JPEG] 반복 (이미지 소켓 6002와 같은 프레이밍)
+            int total = 0;
+            for (Pending p : b.items()) total += 4 + p.jpg().length;
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(total);
+            try (DataOutputStream out = new DataOutputStream(bos)) {
+                for (Pending p : b.items()) {
+                    out.writeInt(p.jpg().length);
+                    out.write(p.jpg());
+                }
+            } catch (IOException e) {
+                fail(b, e);
+                return;
+            }
+
+            HttpUrl url = HttpUrl.get(baseUrl + "/infer/batch").newBuilder()
+                    .addQueryParameter("conf", String.valueOf(b.conf()))
+                    .build();
+            Request request = new Request.Builder()
+                    .url(url)
+                    .post(RequestBody.create(bos.toByteArray(), OCTET))
+                    .build();
+
+            long t0 = System.nanoTime();
+            YOLO.enqueue(request, new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    latency.recordSince(t0);
+                    fail(b, e);
+                }
+
+                @Override
+                public void onResponse(Call call, Response resp) {
+                    latency.recordSince(t0);
+                    try (resp) {
+                        if (resp.code() == 404 || resp.code() == 405) {
+                            batchSupported = false;
+                            System.out.println("⚠ YOLO /infer/batch 미지원 (HTTP " + resp.code() + ") → 프레임 단위 요청으로 전환");
+                            fail(b, new UnsupportedOperationException("infer/batch not supported"));
+                            return;
+                        }
+                        demux(b, resp);
+                    } catch (Exception e) {
+                        fail(b, e);
+                    }
+                }
+            });
+        }
+
+        private void demux(Batch b, Response resp) throws IOException {
+            String respBody = resp.body() != null ? resp.body().string() : "";
+            System.out.println("🧠 YOLO BATCH RESP " + resp.code() + " n=" + b.items().size());
             if (resp.code() != 200) {
                 throw new RuntimeException("YOLO HTTP " + resp.code() + " body=" + respBody);
             }
-            return JsonParser.parseString(respBody).getAsJsonObject();
+
+            JsonObject o = JsonParser.parseString(respBody).getAsJsonObject();
+            JsonArray results = o.has("results") && o.get("results").isJsonArray() ? o.getAsJsonArray("results") : null;
+            if (results == null || results.size() != b.items().size()) {
+                throw new RuntimeException("YOLO batch result mismatch: sent=" + b.items().size() + " body=" + respBody);
+            }
+            for (int i = 0; i < results.size(); i++) {
+                b.items().get(i).future().complete(results.get(i).getAsJsonObject());
+            }
+        }
+
+        private void fail(Batch b, Exception e) {
+            if (e instanceof HttpTransport.BusyException) busy.incrementAndGet();
+            else if (!(e instanceof UnsupportedOperationException)) failed.incrementAndGet();
+            for (Pending p : b.items()) p.future().completeExceptionally(e);
         }
     }
 
-    
+    private static JsonObject parse(Response resp) throws IOException {
+        String respBody = resp.body() != null ? resp.body().string() : "";
+        System.out.println("🧠 YOLO RESP " + resp.code() + " = " + respBody);
 
+        if (resp.code() != 200) {
+            throw new RuntimeException("YOLO HTTP " + resp.code() + " body=" + respBody);
+        }
+        return JsonParser.parseString(respBody).getAsJsonObject();
+    }
 }
\ No newline at end of file
@@ -2,130 +2,203 @@ package org.example.socket;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import org.example.metrics.Metrics;
+import org.example.robot.RobotRegistry;
+import org.example.robot.RobotSession;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.concurrent.atomic.AtomicBoolean;
+import org.example.socket.nio.ConnectionHandler;
+import org.example.socket.nio.LineCodec;
+import org.example.socket.nio.NioConnection;
+import org.example.socket.nio.NioServer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class GUISocketService {
 
     private final int PORT = 6001;          // GUI 전용 포트
-    private ServerSocket serverSocket;
-    private volatile Socket guiSocket;      // GUI 소켓
+    private static final int MAX_LINE_BYTES = 1024 * 1024;
+    // Base64 IMAGE 폴백까지 고려한 송신 대기 한도 (넘으면 그 메시지는 버림)
+    private static final long MAX_PENDING_BYTES = 4L * 1024 * 1024;
+
+    // 접속한 운영자 콘솔 전부 (클라이언트마다 자체 송신 대기열)
+    private final Set<GuiClient> clients = ConcurrentHashMap.newKeySet();
     private final RobotSocketService robotService; // 로봇으로 명령 전달용
-    private final AtomicBoolean manualLlmTriggered;
+    private final RobotRegistry registry;
 
-    public GUISocketService(RobotSocketService robotService, AtomicBoolean manualLlmTriggered) {
+    public GUISocketService(RobotSocketService robotService, RobotRegistry registry) {
         this.robotService = robotService;
-        this.manualLlmTriggered = manualLlmTriggered;
+        this.registry = registry;
+        Metrics.register("gui.clients", () -> clients.isEmpty() ? "none"
+                : clients.stream().map(GuiClient::stats).collect(Collectors.joining(" | ")));
     }
 
     public boolean isConnected() {
-        Socket s = this.guiSocket;
-        return s != null && !s.isClosed();
+        return !clients.isEmpty();
     }
 
-    public void startServer() {
-        new Thread(() -> {
-            try {
-                serverSocket = new ServerSocket(PORT);
-                System.out.println("💻 GUI 서버 시작! PORT : " + PORT);
-
-                while (true) {
-                    Socket clientSocket = serverSocket.accept();
-                    clientSocket.setTcpNoDelay(true);
-                    System.out.println("💻 새로운 GUI 접속: " + clientSocket.getInetAddress());
-                    handleGuiConnection(clientSocket);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }).start();
+    public void startServer(NioServer nio) throws IOException {
+        nio.listen(PORT, "gui", () -> new LineCodec(MAX_LINE_BYTES), new GuiHandler(),
+                0, MAX_PENDING_BYTES);
+        System.out.println("💻 GUI 서버 시작! PORT : " + PORT);
     }
 
-    // GUI 연결 담당
-    private void handleGuiConnection(Socket socket) {
-        new Thread(() -> {
-            try {
-                synchronized (this) {
-                    guiSocket = socket;
-                }
+    // GUI 연결 담당 (콜백은 NIO 이벤트 루프 스레드)
+    private final class GuiHandler implements ConnectionHandler {
 
-                BufferedReader in = new BufferedReader(
-                        new InputStreamReader(socket.getInputStream())
-                );
-
-                String line;
-                while ((line = in.readLine()) != null) {
-                    System.out.println("💻 GUI -> 서버 수신: " + line);
-
-                    try {
-                        JsonObject json = JsonParser.parseString(line).getAsJsonObject();
-                        String type = json.get("type").getAsString();
-
-                        if ("PAD".equals(type)) {
-                            double lx = json.get("lx").getAsDouble();
-                            double ly = json.get("ly").getAsDouble();
-                            double rx = json.get("rx").getAsDouble();
-                            System.out.printf("🎮 GUI PAD 입력: lx=%.2f, ly=%.2f, rx=%.2f%n", lx, ly, rx);
-
-                            // 그대로 로봇에 전달
-                            robotService.sendToRobot(line);
-
-                        } else if ("KEY".equals(type)) {
-                            String cmd = json.get("cmd").getAsString();
-                            System.out.println("⌨ GUI KEY 명령: " + cmd);
-                            // 이 역시 로봇으로 그대로 전달할 수도 있고,
-                            // 서버에서 변환해서 보낼 수도 있음
-                            robotService.sendToRobot(line);
-                        } else if ("MANUAL_LLM_TRIGGER".equals(type)) {
-                            System.out.println("🔥 MANUAL LLM TRIGGER RECEIVED");
-                            if (this.manualLlmTriggered != null) {
-                                this.manualLlmTriggered.set(true);
-                            }
-                        } else {
-                            // 기타 타입
-                            robotService.sendToRobot(line);
-                        }
-
-                    } catch (Exception ex) {
-                        // JSON 아니면 그냥 raw로 로봇에 포워딩
-                        robotService.sendToRobot(line);
-                    }
-                }
-            } catch (Exception e) {
-                System.out.println("💻 GUI 연결 중 오류 또는 끊김: " + e.getMessage());
-            } finally {
-                try {
-                    synchronized (this) {
-                        if (socket == guiSocket) {
-                            System.out.println("💻 GUI 연결 종료: " + socket.getInetAddress());
-                            guiSocket = null;
-                        }
+        @Override
+        public void onOpen(NioConnection conn) {
+            System.out.println("💻 새로운 GUI 접속: " + conn.remoteAddress() + " (총 " + (clients.size() + 1) + "대)");
+            GuiClient client = new GuiClient(conn);
+            conn.attachment(client);
+            clients.add(client);
+        }
+
+        @Override
+        public void onFrame(NioConnection conn, byte[] frame) {
+            String line = new String(frame, StandardCharsets.UTF_8);
+            System.out.println("💻 GUI -> 서버 수신: " + line);
+
+            try {
+                JsonObject json = JsonParser.parseString(line).getAsJsonObject();
+                String type = json.get("type").getAsString();
+
+                // 대상 로봇: robotId가 있으면 그 로봇, 없으면 기본 로봇
+                String robotId = (json.has("robotId") && !json.get("robotId").isJsonNull())
+                        ? json.get("robotId").getAsString()
+                        : null;
+
+                if ("PAD".equals(type)) {
+                    double lx = json.get("lx").getAsDouble();
+                    double ly = json.get("ly").getAsDouble();
+                    double rx = json.get("rx").getAsDouble();
+                    System.out.printf("🎮 GUI PAD 입력: lx=%.2f, ly=%.2f, rx=%.2f%n", lx, ly, rx);
+
+                    // 그대로 로봇에 전달
+                    robotService.sendToRobot(robotId, line);
+
+                } else if ("KEY".equals(type)) {
+                    String cmd = json.get("cmd").getAsString();
+                    System.out.println("⌨ GUI KEY 명령: " + cmd);
+                    // 이 역시 로봇으로 그대로 전달할 수도 있고,
+                    // 서버에서 변환해서 보낼 수도 있음
+                    robotService.sendToRobot(robotId, line);
+                } else if ("SENSOR_RESYNC".equals(type)) {
+                    // GUI가 SENSOR_DELTA seq 끊김을 감지 → 키프레임 재전송 (robotId 없으면 전체)
+                    GuiClient client = conn.attachment();
+                    if (client != null) client.requestSensorResync(robotId);
+                } else if ("MANUAL_LLM_TRIGGER".equals(type)) {
+                    RobotSession target = registry.resolve(robotId);
+                    System.out.println("🔥 MANUAL LLM TRIGGER RECEIVED -> "
+                            + (target != null ? target.robotId() : "(no robot)"));
+                    if (target != null) {
+                        target.manualLlmTriggered().set(true);
                     }
-                    socket.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
+                } else {
+                    // 기타 타입
+                    robotService.sendToRobot(robotId, line);
                 }
+
+            } catch (Exception ex) {
+                // JSON 아니면 그냥 raw로 로봇에 포워딩
+                robotService.sendToRobot(line);
+            }
+        }
+
+        @Override
+        public void onWritable(NioConnection conn) {
+            GuiClient client = conn.attachment();
+            if (client != null) client.pump();
+        }
+
+        @Override
+        public void onClose(NioConnection conn) {
+            GuiClient client = conn.attachment();
+            if (client != null && clients.remove(client)) {
+                System.out.println("💻 GUI 연결 종료: " + conn.remoteAddress() + " (" + client.stats() + ")");
             }
-        }).start();
+        }
     }
 
-    // 로봇에서 GUI로 데이터 보낼 때 사용
+    // 로봇에서 GUI로 데이터 보낼 때 사용 (type은 메시지에서 읽어냄)
     public void sendToGui(String msg) {
-        try {
-            Socket gui = guiSocket;
-            if (gui != null && !gui.isClosed()) {
-                PrintWriter out = new PrintWriter(gui.getOutputStream(), true);
-                out.println(msg);
-            } else {
-                System.out.println("⚠ GUI 소켓이 없어서 메시지 전송 불가: " + msg);
-            }
-        } catch (Exception e) {
-            System.out.println("⚠ GUI로 데이터 전송 중 오류: " + e.getMessage());
+        if (msg == null) return;
+        sendToGui(sniffStringField(msg, "type"), msg);
+    }
+
+    /**
+     * 모든 GUI 클라이언트 대기열에 넣기만 하고 바로 반환 (소켓 쓰기는 이벤트 루프가)
+     * @param type 드롭 정책 결정용 메시지 타입 (IMAGE/SENSOR는 최신만, GUI_MESSAGE는 보존 ...)
+     */
+    public void sendToGui(String type, String msg) {
+        if (msg == null) return;
+        if (clients.isEmpty()) {
+            System.out.println("⚠ GUI 소켓이 없어서 메시지 전송 불가: " + abbreviate(msg));
+            return;
+        }
+
+        // 로봇이 여러 대면 최신값 슬롯은 로봇별로
+        String robotId = (GuiClient.policyFor(type) == GuiClient.DropPolicy.LATEST_ONLY)
+                ? sniffStringField(msg, "robotId")
+                : null;
+        broadcast(type, robotId, msg.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 로봇 센서 스냅샷 전송: 클라이언트마다 키프레임/델타(SENSOR_DELTA)로 인코딩
+     * @param snapshot 전체 스냅샷 ("type":"SENSOR" 포함). 클라이언트끼리 공유하므로 호출 후 수정 금지
+     */
+    public void sendSensorSnapshot(String robotId, JsonObject snapshot) {
+        if (snapshot == null || clients.isEmpty()) return;
+        for (GuiClient c : clients) {
+            c.enqueueSensor(robotId, snapshot);
+        }
+    }
+
+    /**
+     * 이미 UTF-8 한 줄로 가진 메시지를 그대로 전달 (로봇 raw 포워딩용, 재인코딩 없음)
+     * @param line 개행 없는 JSON 한 줄. 클라이언트끼리 공유하므로 호출 후 수정 금지
+     */
+    public void sendToGui(String type, byte[] line) {
+        if (line == null || clients.isEmpty()) return;
+
+        String robotId = (GuiClient.policyFor(type) == GuiClient.DropPolicy.LATEST_ONLY)
+                ? sniffStringField(new String(line, StandardCharsets.UTF_8), "robotId")
+                : null;
+        broadcast(type, robotId, line);
+    }
+
+    private void broadcast(String type, String robotId, byte[] bytes) {
+        GuiClient.DropPolicy policy = GuiClient.policyFor(type);
+        String latestKey = (policy == GuiClient.DropPolicy.LATEST_ONLY) ? type + "|" + robotId : null;
+
+        for (GuiClient c : clients) {
+            c.enqueue(policy, latestKey, bytes);
         }
     }
+
+    /**
+     * JSON 문자열에서 "field":"value" 값을 트리 파싱 없이 찾는다 (없거나 문자열이 아니면 null)
+     * - 드롭 정책 분류용이라 이스케이프된 값 등은 신경 쓰지 않음
+     */
+    static String sniffStringField(String json, String field) {
+        String needle = "\"" + field + "\"";
+        int i = json.indexOf(needle);
+        if (i < 0) return null;
+
+        i += needle.length();
+        int n = json.length();
+        while (i < n && (json.charAt(i) == ' ' || json.charAt(i) == ':')) i++;
+        if (i >= n || json.charAt(i) != '"') return null;
+
+        int end = json.indexOf('"', i + 1);
+        return end < 0 ? null : json.substring(i + 1, end);
+    }
+
+    private static String abbreviate(String s) {
+        return s.length() <= 200 ? s : s.substring(0, 200) + "...(" + s.length() + " chars)";
+    }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package org.example.socket;
+
+import org.example.metrics.Metrics;
+import org.example.socket.nio.ConnectionHandler;
+import org.example.socket.nio.LengthPrefixedCodec;
+import org.example.socket.nio.NioConnection;
+import org.example.socket.nio.NioServer;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GUI 전용 바이너리 영상 채널 (6004)
+ *
+ * 프로토콜: 6003(로봇 → 서버)과 동일한 [int len(big-endian)][JPEG bytes] 반복
+ * - Base64/JSON 변환 없이 로봇이 보낸 JPEG 바이트를 그대로 전달
+ * - 이전 프레임을 아직 다 못 보낸 클라이언트는 이번 프레임을 건너뜀
+ *   → 느린 GUI는 중간 프레임을 건너뛰고, 이벤트 루프는 절대 막히지 않음
+ */
+public class GUIVideoSocketService {
+
+    private final int PORT = 6004;
+
+    // GUI는 보내기만 하므로 수신 프레임(헬로 등)은 작게 제한
+    private static final int MAX_INBOUND_FRAME_BYTES = 64 * 1024;
+    // 클라이언트당 송신 대기 한도: 이걸 넘는 프레임은 skip
+    private static final long MAX_PENDING_BYTES = 2L * 1024 * 1024;
+
+    private final Set<NioConnection> clients = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong framesRelayed = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong();
+
+    public GUIVideoSocketService() {
+        Metrics.register("gui.video", () -> String.format("clients=%d relayed=%d skipped=%d",
+                clients.size(), framesRelayed.get(), framesSkipped.get()));
+    }
+
+    public void startServer(NioServer nio) throws IOException {
+        nio.listen(PORT, "gui-video", () -> new LengthPrefixedCodec(MAX_INBOUND_FRAME_BYTES), new Handler(),
+                0, MAX_PENDING_BYTES);
+        System.out.println("🎞 GUI video relay started : " + PORT);
+    }
+
+    public boolean hasClients() {
+        return !clients.isEmpty();
+    }
+
+    /**
+     * 영상 수신 쪽에서 호출: 각 클라이언트 송신 큐에 넣기만 한다.
+     * jpg 배열은 공유되므로 호출 후 수정하면 안 됨.
+     */
+    public void relay(byte[] jpg) {
+        for (NioConnection c : clients) {
+            // 최신 프레임 우선: 앞 프레임이 아직 소켓에 남아 있으면 이번 건 건너뜀
+            if (c.pendingBytes() > 0 || !c.send(jpg)) {
+                framesSkipped.incrementAndGet();
+                continue;
+            }
+            framesRelayed.incrementAndGet();
+        }
+    }
+
+    private final class Handler implements ConnectionHandler {
+
+        @Override
+        public void onOpen(NioConnection conn) {
+            System.out.println("🎞 GUI video connected: " + conn.remoteAddress());
+            clients.add(conn);
+        }
+
+        @Override
+        public void onFrame(NioConnection conn, byte[] frame) {
+            // GUI → 서버 방향은 현재 사용하지 않음
+        }
+
+        @Override
+        public void onClose(NioConnection conn) {
+            clients.remove(conn);
+            System.out.println("🎞 GUI video disconnected: " + conn.remoteAddress());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.socket;
+
+import com.google.gson.JsonObject;
+import org.example.socket.nio.NioConnection;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GUI 클라이언트(운영자 콘솔) 하나의 송신 대기열
+ *
+ * - 생산자(스냅샷/비전/영상/LLM)는 enqueue()만 하고 바로 돌아감 → 느린 GUI가 생산자나 다른 GUI를 막지 않음
+ * - 소켓 송신 버퍼(NioConnection)에는 SOCKET_HIGH_WATER만큼만 밀어넣고,
+ *   나머지는 여기서 타입별 정책으로 합치거나 버린다 (소켓이 비면 onWritable → pump)
+ *
+ * 타입별 정책:
+ *   LATEST_ONLY : IMAGE / SENSOR / PERSON_STATUS / GUI_MESSAGE_PARTIAL → (타입, robotId)별 최신 1건만 유지
+ *   NEVER_DROP  : GUI_MESSAGE / VOICE_INSTRUCTION / LLM → 절대 버리지 않음
+ *   DROP_OLDEST : 그 외 → 대기열이 차면 오래된 것부터 버림
+ *
+ * SENSOR 스냅샷은 객체째 받아 두었다가 실제로 소켓에 넣는 순간 SensorDeltaEncoder로 키프레임/델타 인코딩
+ * → 합쳐서 버린 스냅샷이 있어도 델타는 항상 "이 클라이언트가 받은 마지막 상태" 기준
+ */
+final class GuiClient {
+
+    enum DropPolicy { LATEST_ONLY, DROP_OLDEST, NEVER_DROP }
+
+    // 순서 보장 대기열 한도 (NEVER_DROP은 이 한도를 넘어도 들어감)
+    private static final int QUEUE_CAPACITY = 256;
+    // NEVER_DROP까지 이만큼 쌓이면 사실상 죽은 클라이언트 → 연결 종료
+    private static final int HARD_LIMIT = 4_096;
+    // 소켓 송신 대기가 이보다 적을 때만 다음 메시지를 밀어넣음
+    private static final long SOCKET_HIGH_WATER = 256 * 1024;
+
+    static DropPolicy policyFor(String type) {
+        if (type == null) return DropPolicy.DROP_OLDEST;
+        return switch (type) {
+            // GUI_MESSAGE_PARTIAL은 매번 전체 텍스트라 최신 것만 있으면 됨
+            case "IMAGE", "SENSOR", "PERSON_STATUS", "GUI_MESSAGE_PARTIAL" -> DropPolicy.LATEST_ONLY;
+            case "GUI_MESSAGE", "VOICE_INSTRUCTION", "LLM" -> DropPolicy.NEVER_DROP;
+            default -> DropPolicy.DROP_OLDEST;
+        };
+    }
+
+    private record Pending(byte[] bytes, boolean critical) {}
+
+    // 최신값 슬롯에 들어가는 SENSOR 스냅샷 (인코딩은 pump 시점에)
+    private record SensorFrame(String robotId, JsonObject snapshot) {}
+
+    private final NioConnection conn;
+
+    // 아래 두 자료구조는 this로 동기화
+    private final ArrayDeque<Pending> ordered = new ArrayDeque<>();
+    // 값: byte[] (그대로 전송) | SensorFrame (전송 직전 인코딩)
+    private final LinkedHashMap<String, Object> latest = new LinkedHashMap<>();
+    private final SensorDeltaEncoder sensorEncoder = new SensorDeltaEncoder();
+    private boolean preferLatest = false;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    GuiClient(NioConnection conn) {
+        this.conn = conn;
+    }
+
+    NioConnection connection() {
+        return conn;
+    }
+
+    /**
+     * @param latestKey LATEST_ONLY일 때 합칠 기준 (보통 type + robotId)
+     */
+    void enqueue(DropPolicy policy, String latestKey, byte[] bytes) {
+        boolean kill = false;
+
+        synchronized (this) {
+            switch (policy) {
+                case LATEST_ONLY -> {
+                    if (latest.put(latestKey, bytes) != null) coalesced.incrementAndGet();
+                }
+                case NEVER_DROP -> {
+                    if (ordered.size() >= QUEUE_CAPACITY) evictOldestDroppable();
+                    ordered.addLast(new Pending(bytes, true));
+                    kill = ordered.size() > HARD_LIMIT;
+                }
+                case DROP_OLDEST -> {
+                    if (ordered.size() >= QUEUE_CAPACITY && !evictOldestDroppable()) {
+                        // 전부 NEVER_DROP이면 새로 온 쪽을 버림
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    ordered.addLast(new Pending(bytes, false));
+                }
+            }
+        }
+
+        if (kill) {
+            System.out.println("⚠ GUI client too slow (" + conn.remoteAddress() + ") -> disconnect");
+            conn.close();
+            return;
+        }
+        pump();
+    }
+
+    /** SENSOR 스냅샷: 로봇별 최신 1건만 유지, 보낼 때 델타 인코딩 */
+    void enqueueSensor(String robotId, JsonObject snapshot) {
+        synchronized (this) {
+            if (latest.put(sensorKey(robotId), new SensorFrame(robotId, snapshot)) != null) {
+                coalesced.incrementAndGet();
+            }
+        }
+        pump();
+    }
+
+    /**
+     * 클라이언트가 seq 끊김을 보고 요청: 다음 SENSOR는 키프레임으로
+     * - 대기 중인 스냅샷이 없으면 마지막으로 보낸 상태를 키프레임으로 바로 다시 보냄
+     * @param robotId null이면 모든 로봇
+     */
+    void requestSensorResync(String robotId) {
+        synchronized (this) {
+            sensorEncoder.requestKeyframe(robotId);
+            Iterable<String> ids = (robotId != null) ? List.of(robotId) : sensorEncoder.robotIds();
+            for (String id : ids) {
+                JsonObject last = sensorEncoder.lastSent(id);
+                if (last != null) latest.putIfAbsent(sensorKey(id), new SensorFrame(id, last));
+            }
+        }
+        pump();
+    }
+
+    private static String sensorKey(String robotId) {
+        return "SENSOR|" + robotId;
+    }
+
+    private boolean evictOldestDroppable() {
+        Iterator<Pending> it = ordered.iterator();
+        while (it.hasNext()) {
+            if (!it.next().critical()) {
+                it.remove();
+                dropped.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 소켓 송신 버퍼에 여유가 있는 만큼 대기열을 옮긴다
+     * - 순서 보장 대기열과 최신값 슬롯을 번갈아 꺼냄 → 이벤트가 몰려도 SENSOR/IMAGE가 굶지 않음
+     */
+    synchronized void pump() {
+        int burst = 0;
+        long now = System.currentTimeMillis();
+        while (conn.isOpen() && conn.pendingBytes() < SOCKET_HIGH_WATER) {
+            byte[] next = null;
+
+            if (preferLatest || ordered.isEmpty()) next = pollLatest(now);
+            if (next == null) {
+                Pending p = ordered.pollFirst();
+                if (p != null) next = p.bytes();
+            }
+            if (next == null) break;
+            preferLatest = !preferLatest;
+
+            if (!conn.write(next)) {
+                dropped.incrementAndGet();
+                // 버린 게 SENSOR 델타였을 수 있음 → 다음 SENSOR는 키프레임으로
+                sensorEncoder.requestKeyframe(null);
+                break;
+            }
+            sent.incrementAndGet();
+            burst++;
+        }
+
+        // 이번에 옮긴 메시지를 한 번에 flush → 루프가 gathering write로 묶어서 보냄
+        if (burst > 0) conn.flush();
+    }
+
+    private byte[] pollLatest(long now) {
+        Iterator<Object> it = latest.values().iterator();
+        if (!it.hasNext()) return null;
+        Object v = it.next();
+        it.remove();
+        if (v instanceof SensorFrame f) return sensorEncoder.encode(f.robotId(), f.snapshot(), now);
+        return (byte[]) v;
+    }
+
+    synchronized int queued() {
+        return ordered.size() + latest.size();
+    }
+
+    String stats() {
+        String sensor;
+        synchronized (this) {
+            sensor = sensorEncoder.stats();
+        }
+        return String.format("%s sent=%d coalesced=%d dropped=%d queued=%d bytesSent=%d %s",
+                conn.remoteAddress(), sent.get(), coalesced.get(), dropped.get(), queued(), conn.bytesSent(), sensor);
+    }
+}
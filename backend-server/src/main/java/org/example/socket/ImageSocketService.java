@@ -2,18 +2,33 @@ package org.example.socket;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import org.example.metrics.LatencyHistogram;
+import org.example.metrics.Metrics;
+import org.example.robot.RobotRegistry;
+import org.example.robot.RobotSession;
 import org.example.service.*;
 import org.example.state.SensorState;
 import org.example.state.StateUpdater;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
+import org.example.socket.nio.ConnectionHandler;
+import org.example.socket.nio.LengthPrefixedCodec;
+import org.example.socket.nio.NioConnection;
+import org.example.socket.nio.NioServer;
+
 import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
 import java.nio.file.*;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 
 public class ImageSocketService {
 
@@ -21,232 +36,478 @@ public class ImageSocketService {
     private final Path baseDir = Paths.get("./data/images");
 
     private final RobotSocketService robotServer;
-    private final FollowController followController;
+    private final RobotRegistry registry;
 
-    private volatile long personBecameTrueAtMs = 0;
     private final long followWarmupMs = 800;
 
     private final GUISocketService guiService;
     private final VisionClient visionClient;
-    private final SensorState state;
 
     private final double conf = 0.35;
     private final int maxBytes = 5_000_000;
 
-    // LLM 호출 제어
-    private volatile long lastLlmCallAtMs = 0;
+    // 로봇별 처리 대기 큐 (YOLO는 블로킹이라 이벤트 루프가 아닌 전용 실행기에서)
+    // 가득 차면 소켓 읽기를 멈춰서 로봇 쪽 전송을 늦춤
+    private static final int WORKER_QUEUE_CAPACITY = 2;
+    // infer → act 사이 (act는 빠르므로 거의 비어 있음)
+    private static final int ACT_QUEUE_CAPACITY = 4;
+
+    // 수신 이미지를 ./data/images에 남길지 (추론과 무관한 비동기 보관, 밀리면 오래된 것부터 버림)
+    private static final boolean ARCHIVE_IMAGES =
+            Boolean.parseBoolean(System.getProperty("serbot.image.archive", "true"));
+    private static final int ARCHIVE_QUEUE_CAPACITY = 8;
+
+    // 블로킹 단계(infer = YOLO HTTP, archive = 파일 쓰기) 전용 스레드 수
+    // 공유 스케줄러는 스냅샷 발행/llmTick도 돌리므로 짧은 작업(prepare/act)만 올림
+    private static final int BLOCKING_THREADS = Integer.getInteger("serbot.vision.blockingThreads", 8);
+
+    // LLM 호출 제어 (호출 자체는 LlmDispatcher 스레드에서)
     private final long llmCooldownMs = 2000;
+    private final LlmDispatcher llm;
+
+    // robotId → 비전 파이프라인 (follow/LLM 상태도 로봇별)
+    private final ConcurrentHashMap<String, VisionPipeline> pipelines = new ConcurrentHashMap<>();
 
-    private volatile boolean lastPerson = false;
+    // 단계마다 로봇당 최대 1건만 올라오므로 대기 작업 수도 (로봇 수 × 2)를 넘지 않음
+    private final ExecutorService blockingExec;
 
     public ImageSocketService(
             GUISocketService guiService,
             VisionClient visionClient,
-            SensorState state,
-            RobotSocketService robotServer
+            RobotRegistry registry,
+            RobotSocketService robotServer,
+            LlmDispatcher llm
     ) {
         this.guiService = guiService;
         this.visionClient = visionClient;
-        this.state = state;
+        this.registry = registry;
         this.robotServer = robotServer;
-        this.followController = new FollowController(640, 480);
+        this.llm = llm;
+
+        AtomicInteger seq = new AtomicInteger();
+        this.blockingExec = Executors.newFixedThreadPool(BLOCKING_THREADS, r -> {
+            Thread t = new Thread(r, "Vision-IO-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        // 유휴 세션이 정리되면 그 로봇 파이프라인(통계 포함)도 해제
+        registry.onSessionRemoved(session -> {
+            VisionPipeline p = pipelines.get(session.robotId());
+            if (p != null && p.session == session && pipelines.remove(session.robotId(), p)) {
+                Metrics.unregister("vision." + session.robotId());
+            }
+        });
     }
 
-    public void startServer() {
-        new Thread(() -> {
-            try (ServerSocket server = new ServerSocket(PORT)) {
-                Files.createDirectories(baseDir);
-                System.out.println("📷 이미지 서버 시작! PORT : " + PORT);
+    public void startServer(NioServer nio) throws IOException {
+        Files.createDirectories(baseDir);
+        nio.listen(PORT, "image", () -> new LengthPrefixedCodec(maxBytes), new ImageHandler(), 0, 0);
+        System.out.println("📷 이미지 서버 시작! PORT : " + PORT);
+    }
+
+    private final class ImageHandler implements ConnectionHandler {
 
-                while (true) {
-                    Socket sock = server.accept();
-                    sock.setTcpNoDelay(true);
-                    handleClient(sock);
+        @Override
+        public void onFrame(NioConnection conn, byte[] jpg) {
+            VisionPipeline p = conn.attachment();
+            if (p != null && p.session.isClosed()) {
+                // 오래 조용했던 연결이라 세션이 정리됨 → 같은 robotId로 다시 묶음
+                p = bind(conn, p.session.robotId());
+            }
+            if (p == null) {
+                // 첫 프레임이 HELLO(JSON)면 그 로봇, 아니면 기본 로봇
+                String helloId;
+                try {
+                    helloId = RobotRegistry.parseHello(jpg);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("⚠ image handshake rejected: " + e.getMessage());
+                    conn.close();
+                    return;
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+
+                RobotSession session = (helloId != null) ? registry.getOrCreate(helloId) : registry.resolve(null);
+                p = bind(conn, session != null ? session.robotId() : RobotRegistry.DEFAULT_ROBOT_ID);
+                if (helloId != null) return;
             }
-        }, "ImageServer-6002").start();
+            p.session.touch();   // 이미지만 오는 로봇도 유휴 정리 대상이 아님
+            p.offer(conn, jpg);
+        }
+
+        private VisionPipeline bind(NioConnection conn, String robotId) {
+            RobotSession session = registry.getOrCreate(robotId);
+            VisionPipeline p = pipelines.compute(session.robotId(),
+                    (id, old) -> (old != null && old.session == session) ? old : new VisionPipeline(session));
+            conn.attachment(p);
+            System.out.println("📷 image stream bound: " + session.robotId() + " <- " + conn.remoteAddress());
+            return p;
+        }
+
+        @Override
+        public void onClose(NioConnection conn) {
+            VisionPipeline p = conn.attachment();
+            if (p != null) p.release(conn);
+        }
     }
 
-    private void handleClient(Socket sock) {
-        new Thread(() -> {
-            try (DataInputStream in =
-                         new DataInputStream(new BufferedInputStream(sock.getInputStream()))) {
-
-                while (true) {
-                    int len;
-                    try {
-                        len = in.readInt();
-                    } catch (EOFException eof) {
-                        break;
-                    }
+    /**
+     * 주어진 실행기 위에서 한 번에 하나씩만 도는 처리 단계 (단계 전용 스레드 없음)
+     * - kick(): 할 일이 생겼다고 알림. 이미 돌고 있으면 그 실행이 끝난 뒤 hasWork를 다시 확인
+     */
+    private static final class SerialStage {
+        private final Executor executor;
+        private final Runnable body;
+        private final BooleanSupplier hasWork;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        SerialStage(Executor executor, Runnable body, BooleanSupplier hasWork) {
+            this.executor = executor;
+            this.body = body;
+            this.hasWork = hasWork;
+        }
 
-                    if (len <= 0 || len > maxBytes) {
-                        System.out.println("📷 invalid image len=" + len);
-                        break;
-                    }
+        void kick() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::run);
+            }
+        }
 
-                    byte[] jpg = in.readNBytes(len);
-                    if (jpg.length != len) {
-                        System.out.println("📷 truncated image bytes");
-                        break;
-                    }
+        private void run() {
+            try {
+                body.run();
+            } finally {
+                scheduled.set(false);
+            }
+            // 플래그 내리는 사이에 들어온 일
+            if (hasWork.getAsBoolean()) kick();
+        }
+    }
+
+    /**
+     * prepare 단계 결과: 메모리의 프레임
+     * @param archivePath 보관 파일 경로 (보관 끄면 null). 파일은 비동기로 써지므로 아직 없을 수 있음
+     */
+    private record PreparedFrame(byte[] jpg, Path archivePath, int width, int height, long receivedAtNanos) {}
+
+    /** infer 단계 결과 */
+    private record Inferred(PreparedFrame frame, JsonObject yolo) {}
+
+    /**
+     * 로봇 한 대의 비전 처리 파이프라인 (단계마다 따로 돌아서 서로 겹쳐 실행됨)
+     *
+     *   receive(이벤트 루프) ─[큐 2, 차면 읽기 멈춤]→ prepare(크기 + 보관 예약)
+     *     ─[메일박스 1, 최신 프레임만]→ infer(YOLO HTTP, JPEG 바이트 직접 전송)
+     *     ─[큐 4, 차면 오래된 것 버림]→ act(상태/follow/LLM 요청/GUI)
+     *   prepare ─[큐 8, 차면 오래된 것 버림]→ archive(디스크 저장, 선택)
+     *
+     * - infer가 느리면 그 사이 준비된 프레임은 최신 1장만 남기고 건너뜀 → 오래된 프레임이 줄 서지 않음
+     *   → 조향 지연 ≈ infer 1회 시간 (단계 시간의 합이 아님)
+     * - follow/LLM 상태는 act 단계에서만 건드림 (순서 보장)
+     * - LLM은 LlmDispatcher에 넘기기만 함 (응답을 기다리지 않음)
+     * - 추론 서버가 /infer/bytes를 모르면 그때만 infer 단계에서 파일을 먼저 쓰고 경로로 요청
+     */
+    private final class VisionPipeline {
+        final RobotSession session;
+        final SensorState state;
+        final FollowController followController = new FollowController(640, 480);
+
+        // receive → prepare
+        final ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(WORKER_QUEUE_CAPACITY);
+        final AtomicReference<NioConnection> pausedConn = new AtomicReference<>();
+        // prepare → infer (latest wins)
+        final AtomicReference<PreparedFrame> inferMailbox = new AtomicReference<>();
+        // infer → act
+        final ArrayBlockingQueue<Inferred> actQueue = new ArrayBlockingQueue<>(ACT_QUEUE_CAPACITY);
+        // prepare → archive
+        final ArrayBlockingQueue<PreparedFrame> archiveQueue = new ArrayBlockingQueue<>(ARCHIVE_QUEUE_CAPACITY);
+
+        // prepare/act는 짧아서 공유 스케줄러, infer/archive는 블로킹이라 전용 실행기
+        final SerialStage prepareStage = new SerialStage(registry.scheduler(), this::prepareLoop, () -> !queue.isEmpty());
+        final SerialStage inferStage = new SerialStage(blockingExec, this::inferLoop, () -> inferMailbox.get() != null);
+        final SerialStage actStage = new SerialStage(registry.scheduler(), this::actLoop, () -> !actQueue.isEmpty());
+        final SerialStage archiveStage = new SerialStage(blockingExec, this::archiveLoop, () -> !archiveQueue.isEmpty());
+
+        // 단계별 지연 (prepare/infer/act는 처리 시간, e2e는 수신 → act 완료)
+        final LatencyHistogram prepareLatency = new LatencyHistogram();
+        final LatencyHistogram inferLatency = new LatencyHistogram();
+        final LatencyHistogram actLatency = new LatencyHistogram();
+        final LatencyHistogram endToEnd = new LatencyHistogram();
+        final AtomicLong receiveDropped = new AtomicLong();
+        final AtomicLong inferSkipped = new AtomicLong();
+        final AtomicLong actDropped = new AtomicLong();
+        final AtomicLong archiveDropped = new AtomicLong();
+        final AtomicLong pathFallbacks = new AtomicLong();
+
+        // act 단계 전용
+        long personBecameTrueAtMs = 0;
+        long lastLlmCallAtMs = 0;
+        boolean lastPerson = false;
+
+        VisionPipeline(RobotSession session) {
+            this.session = session;
+            this.state = session.state();
+
+            Metrics.register("vision." + session.robotId(), () -> String.format(
+                    "prepare{%s} infer{%s} act{%s} e2e{%s} receiveDropped=%d inferSkipped=%d actDropped=%d archiveDropped=%d pathFallbacks=%d",
+                    prepareLatency.summary(), inferLatency.summary(), actLatency.summary(), endToEnd.summary(),
+                    receiveDropped.get(), inferSkipped.get(), actDropped.get(), archiveDropped.get(), pathFallbacks.get()));
+        }
+
+        /** 이벤트 루프에서 호출: 절대 블로킹하지 않음 */
+        void offer(NioConnection conn, byte[] jpg) {
+            // 읽기를 멈추기 전에 이미 버퍼에 있던 프레임 → 가장 오래된 것 버리고 최신 유지
+            while (!queue.offer(jpg)) {
+                if (queue.poll() != null) receiveDropped.incrementAndGet();
+            }
+            if (queue.remainingCapacity() == 0 && pausedConn.compareAndSet(null, conn)) {
+                conn.pauseReading();
+            }
+            prepareStage.kick();
+        }
 
-                    // 0) 저장
-                    Path saved = saveImage(jpg);
-                    String absPath = saved.toAbsolutePath().toString();
-
-                    // 실제 이미지 크기 반영
-                    int frameW = 640, frameH = 480;
-                    try {
-                        BufferedImage img = ImageIO.read(saved.toFile());
-                        if (img != null) {
-                            frameW = img.getWidth();
-                            frameH = img.getHeight();
-                            followController.updateFrameSize(frameW, frameH);
+        void release(NioConnection conn) {
+            pausedConn.compareAndSet(conn, null);
+        }
+
+        // ===== 1) prepare: 실제 이미지 크기(JPEG 헤더) + 보관 예약 (디스크는 건드리지 않음) =====
+        private void prepareLoop() {
+            byte[] jpg;
+            while ((jpg = queue.poll()) != null) {
+                NioConnection paused = pausedConn.getAndSet(null);
+                if (paused != null) paused.resumeReading();
+
+                long t0 = System.nanoTime();
+                try {
+                    PreparedFrame f = prepare(jpg, t0);
+                    if (inferMailbox.getAndSet(f) != null) inferSkipped.incrementAndGet();
+                    inferStage.kick();
+
+                    if (f.archivePath() != null) {
+                        while (!archiveQueue.offer(f)) {
+                            if (archiveQueue.poll() != null) archiveDropped.incrementAndGet();
                         }
-                    } catch (Exception e) {
-                        System.out.println("⚠️ ImageIO read failed: " + e.getMessage());
+                        archiveStage.kick();
                     }
+                } catch (Exception e) {
+                    System.out.println("📷 이미지 처리 오류 (" + session.robotId() + "): " + e.getMessage());
+                } finally {
+                    prepareLatency.recordSince(t0);
+                }
+            }
+        }
 
-                    // 1) YOLO 추론
-                    JsonObject yolo;
-                    try {
-                        yolo = visionClient.infer(absPath, conf);
-                    } catch (Exception e) {
-                        System.out.println("🧠 YOLO infer failed: " + e.getMessage());
-
-                        JsonObject fail = new JsonObject();
-                        fail.addProperty("type", "VISION");
-                        fail.addProperty("ok", false);
-                        fail.addProperty("error", "yolo_infer_failed");
-                        fail.addProperty("path", absPath);
-
-                        if (guiService != null) guiService.sendToGui(fail.toString());
-                        continue;
-                    }
+        private PreparedFrame prepare(byte[] jpg, long receivedAtNanos) {
+            // 실제 이미지 크기 반영 (SOF 헤더만 읽음, 디코딩 없음)
+            int frameW = 640, frameH = 480;
+            JpegSize.Size size = JpegSize.read(jpg);
+            if (size != null) {
+                frameW = size.width();
+                frameH = size.height();
+            } else {
+                System.out.println("⚠️ JPEG size not found (" + jpg.length + "B)");
+            }
+            Path archivePath = ARCHIVE_IMAGES ? imagePath(session.robotId()) : null;
+            return new PreparedFrame(jpg, archivePath, frameW, frameH, receivedAtNanos);
+        }
+
+        // ===== 보관: 추론 경로와 무관하게 디스크에 남김 =====
+        private void archiveLoop() {
+            PreparedFrame f;
+            while ((f = archiveQueue.poll()) != null) {
+                try {
+                    writeImage(f.archivePath(), f.jpg());
+                } catch (IOException e) {
+                    System.out.println("⚠ image archive failed (" + session.robotId() + "): " + e.getMessage());
+                }
+            }
+        }
 
-                    // best 재선정(가능할 때만)
-                    yolo = rewriteBestToCenterMost(yolo, frameW);
+        // ===== 2) infer: 메일박스의 최신 프레임만 YOLO =====
+        private void inferLoop() {
+            PreparedFrame f;
+            while ((f = inferMailbox.getAndSet(null)) != null) {
+                long t0 = System.nanoTime();
+                JsonObject yolo;
+                try {
+                    yolo = inferFrame(f);
+                } catch (Exception e) {
+                    System.out.println("🧠 YOLO infer failed: " + e.getMessage());
+
+                    JsonObject fail = new JsonObject();
+                    fail.addProperty("type", "VISION");
+                    fail.addProperty("robotId", session.robotId());
+                    fail.addProperty("ok", false);
+                    fail.addProperty("error", "yolo_infer_failed");
+                    if (f.archivePath() != null) fail.addProperty("path", f.archivePath().toAbsolutePath().toString());
+
+                    if (guiService != null) guiService.sendToGui("VISION", fail.toString());
+                    continue;
+                } finally {
+                    inferLatency.recordSince(t0);
+                }
 
-                    // 2) VISION 이벤트
-                    JsonObject visionEvt = new JsonObject();
-                    visionEvt.addProperty("type", "VISION");
-                    visionEvt.addProperty("path", absPath);
-                    visionEvt.addProperty("ts", System.currentTimeMillis());
-                    visionEvt.add("yolo", yolo);
+                // best 재선정(가능할 때만)
+                yolo = rewriteBestToCenterMost(yolo, f.width());
 
-                    // 3) 상태 갱신
-                    StateUpdater.applyJson(visionEvt.toString(), state);
+                Inferred r = new Inferred(f, yolo);
+                while (!actQueue.offer(r)) {
+                    if (actQueue.poll() != null) actDropped.incrementAndGet();
+                }
+                actStage.kick();
+            }
+        }
 
-                    boolean person = yolo.has("person") && yolo.get("person").getAsBoolean();
+        /** 바이트 전송이 기본, 서버가 모르면 파일을 먼저 쓰고 경로로 */
+        private JsonObject inferFrame(PreparedFrame f) throws Exception {
+            if (visionClient.supportsBytes()) {
+                try {
+                    return visionClient.inferBytes(f.jpg(), conf);
+                } catch (UnsupportedOperationException e) {
+                    // 아래 경로 모드로
+                }
+            }
+            pathFallbacks.incrementAndGet();
+            Path p = (f.archivePath() != null) ? f.archivePath() : imagePath(session.robotId());
+            writeImage(p, f.jpg());   // 보관 단계와 겹쳐도 같은 내용으로 원자적 교체
+            return visionClient.infer(p.toAbsolutePath().toString(), conf);
+        }
 
-                    // person false -> true 순간 워밍업 타이머
-                    if (person && !lastPerson) {
-                        personBecameTrueAtMs = System.currentTimeMillis();
-                    }
+        // ===== 3) act: 상태 갱신 → follow → LLM 요청 → GUI =====
+        private void actLoop() {
+            Inferred r;
+            while ((r = actQueue.poll()) != null) {
+                long t0 = System.nanoTime();
+                try {
+                    act(r.frame(), r.yolo());
+                } catch (Exception e) {
+                    System.out.println("📷 vision act error (" + session.robotId() + "): " + e.getMessage());
+                } finally {
+                    actLatency.recordSince(t0);
+                    endToEnd.recordSince(r.frame().receivedAtNanos());
+                }
+            }
+        }
 
-                    // 3.5) FOLLOW 명령: CMD로 통일
-                    if (robotServer != null) {
-                        if (person) {
-                            long now = System.currentTimeMillis();
-
-                            if (now - personBecameTrueAtMs < followWarmupMs) {
-                                sendRobotCmd("STOP");
-                                System.out.println("🤖 FOLLOW WARMUP -> STOP (" + (now - personBecameTrueAtMs) + "ms)");
-                            } else {
-                                String cmd = followController.decideThrottled(yolo);
-                                if (cmd != null) {
-                                    sendRobotCmd(cmd);
-                                    System.out.println("🤖 FOLLOW CMD -> " + cmd);
-                                }
-                            }
-                        } else {
-                            if (lastPerson) {
-                                sendRobotCmd("STOP");
-                                System.out.println("🤖 FOLLOW CMD -> STOP(person_lost)");
-                            }
-                        }
-                    }
+        private void act(PreparedFrame f, JsonObject yolo) {
+            followController.updateFrameSize(f.width(), f.height());
+
+            // 2) VISION 이벤트
+            JsonObject visionEvt = new JsonObject();
+            visionEvt.addProperty("type", "VISION");
+            visionEvt.addProperty("robotId", session.robotId());
+            if (f.archivePath() != null) visionEvt.addProperty("path", f.archivePath().toAbsolutePath().toString());
+            visionEvt.addProperty("ts", System.currentTimeMillis());
+            visionEvt.add("yolo", yolo);
 
-                    lastPerson = person;
-
-                    // 4) person=true → LLM 호출
-                    if (person) {
-                        long now = System.currentTimeMillis();
-                        if (now - lastLlmCallAtMs >= llmCooldownMs) {
-                            lastLlmCallAtMs = now;
-
-                            try {
-                                boolean hasHumanLikeSpeech =
-                                        state.getLastStt() != null && !state.getLastStt().isBlank();
-
-                                boolean visionPerson =
-                                        Boolean.TRUE.equals(state.getVisionPerson());
-
-                                PromptBuilder.Phase phase;
-                                if (!visionPerson && !hasHumanLikeSpeech) {
-                                    phase = PromptBuilder.Phase.SEARCHING;
-                                } else if (visionPerson && !hasHumanLikeSpeech) {
-                                    phase = PromptBuilder.Phase.CONFIRMED_CONTACT;
-                                } else {
-                                    phase = PromptBuilder.Phase.RESCUE_GUIDE;
-                                }
-
-                                String prompt = PromptBuilder.buildSevenKeyFewShotPrompt(
-                                        phase,
-                                        state,
-                                        state.getCo2(),      // ✅ co2(ppm)
-                                        visionPerson,
-                                        hasHumanLikeSpeech,
-                                        false
-                                );
-
-                                String llmRaw = AgentService.ask(prompt);
-                                state.setLastLlmRaw(llmRaw);
-
-                                JsonObject llmEvt = new JsonObject();
-                                llmEvt.addProperty("type", "LLM");
-                                llmEvt.addProperty("ts", System.currentTimeMillis());
-                                llmEvt.addProperty("trigger", "VISION_PERSON_TRUE");
-                                llmEvt.addProperty("raw", llmRaw);
-
-                                if (guiService != null) guiService.sendToGui(llmEvt.toString());
-
-                            } catch (Exception e) {
-                                JsonObject fail = new JsonObject();
-                                fail.addProperty("type", "LLM");
-                                fail.addProperty("ok", false);
-                                fail.addProperty("error", "llm_call_failed");
-                                fail.addProperty("msg", String.valueOf(e.getMessage()));
-
-                                if (guiService != null) guiService.sendToGui(fail.toString());
-                            }
+            // 3) 상태 갱신
+            StateUpdater.apply("VISION", visionEvt, state);
+
+            boolean person = yolo.has("person") && yolo.get("person").getAsBoolean();
+
+            // person false -> true 순간 워밍업 타이머
+            if (person && !lastPerson) {
+                personBecameTrueAtMs = System.currentTimeMillis();
+            }
+
+            // 3.5) FOLLOW 명령: CMD로 통일
+            if (robotServer != null) {
+                if (person) {
+                    long now = System.currentTimeMillis();
+
+                    if (now - personBecameTrueAtMs < followWarmupMs) {
+                        sendRobotCmd("STOP");
+                        System.out.println("🤖 FOLLOW WARMUP -> STOP (" + (now - personBecameTrueAtMs) + "ms)");
+                    } else {
+                        String cmd = followController.decideThrottled(yolo);
+                        if (cmd != null) {
+                            sendRobotCmd(cmd);
+                            System.out.println("🤖 FOLLOW CMD -> " + cmd);
                         }
                     }
-
-                    // ✅ 5) GUI로 VISION 이벤트는 "항상" 전송 (person false도 포함)
-                    if (guiService != null) {
-                        guiService.sendToGui(visionEvt.toString());
+                } else {
+                    if (lastPerson) {
+                        sendRobotCmd("STOP");
+                        System.out.println("🤖 FOLLOW CMD -> STOP(person_lost)");
                     }
                 }
+            }
+
+            lastPerson = person;
+
+            // 4) person=true → LLM 호출 (LLM 전용 실행기로 넘기고 바로 다음 프레임으로)
+            //    로봇당 1건만 실행, 실행 중 트리거는 1건으로 합쳐짐 → follow/YOLO 주기는 LLM 지연과 무관
+            if (person) {
+                long now = System.currentTimeMillis();
+                if (now - lastLlmCallAtMs >= llmCooldownMs) {
+                    lastLlmCallAtMs = now;
+                    llm.submit(session.robotId(), LlmDispatcher.Kind.VISION, this::callLlm);
+                }
+            }
+
+            // ✅ 5) GUI로 VISION 이벤트는 "항상" 전송 (person false도 포함)
+            if (guiService != null) {
+                guiService.sendToGui("VISION", visionEvt.toString());
+            }
+        }
+
+        /** LLM 실행기 스레드에서 실행: 프롬프트는 실행 시점 상태로 만든다 */
+        private void callLlm() {
+            try {
+                SensorState.Snapshot snap = state.snapshot();
+                boolean hasHumanLikeSpeech = snap.hasStt();
+                boolean visionPerson = snap.isVisionPerson();
+
+                PromptBuilder.Phase phase;
+                if (!visionPerson && !hasHumanLikeSpeech) {
+                    phase = PromptBuilder.Phase.SEARCHING;
+                } else if (visionPerson && !hasHumanLikeSpeech) {
+                    phase = PromptBuilder.Phase.CONFIRMED_CONTACT;
+                } else {
+                    phase = PromptBuilder.Phase.RESCUE_GUIDE;
+                }
+
+                String prompt = PromptBuilder.buildSevenKeyFewShotPrompt(
+                        phase,
+                        state,
+                        SensorState.Snapshot.has(snap.co2()) ? snap.co2() : null,      // ✅ co2(ppm)
+                        visionPerson,
+                        hasHumanLikeSpeech,
+                        false
+                );
+
+                // 첫 JSON 객체가 닫히면 바로 반환 (나머지 생성은 중단)
+                String llmRaw = AgentService.askStreaming(prompt, null);
+                state.setLastLlmRaw(llmRaw);
+
+                JsonObject llmEvt = new JsonObject();
+                llmEvt.addProperty("type", "LLM");
+                llmEvt.addProperty("robotId", session.robotId());
+                llmEvt.addProperty("ts", System.currentTimeMillis());
+                llmEvt.addProperty("trigger", "VISION_PERSON_TRUE");
+                llmEvt.addProperty("raw", llmRaw);
+
+                if (guiService != null) guiService.sendToGui("LLM", llmEvt.toString());
 
             } catch (Exception e) {
-                System.out.println("📷 이미지 연결 오류: " + e.getMessage());
-            } finally {
-                try { sock.close(); } catch (Exception ignored) {}
+                JsonObject fail = new JsonObject();
+                fail.addProperty("type", "LLM");
+                fail.addProperty("robotId", session.robotId());
+                fail.addProperty("ok", false);
+                fail.addProperty("error", "llm_call_failed");
+                fail.addProperty("msg", String.valueOf(e.getMessage()));
+
+                if (guiService != null) guiService.sendToGui("LLM", fail.toString());
             }
-        }, "ImageClientHandler").start();
-    }
+        }
 
-    /** ✅ 로봇에 이동 명령은 CMD로 통일 */
-    private void sendRobotCmd(String cmd) {
-        JsonObject o = new JsonObject();
-        o.addProperty("type", "CMD");
-        o.addProperty("cmd", cmd);
-        // ✅ 여기서 \n 붙이지 말 것: RobotSocketService가 println이면 중복 개행 됨
-        robotServer.sendToRobot(o.toString());
+        /** ✅ 로봇에 이동 명령은 CMD로 통일 */
+        private void sendRobotCmd(String cmd) {
+            JsonObject o = new JsonObject();
+            o.addProperty("type", "CMD");
+            o.addProperty("cmd", cmd);
+            // ✅ 여기서 \n 붙이지 말 것: RobotSocketService가 println이면 중복 개행 됨
+            robotServer.sendToRobot(session.robotId(), o.toString());
+        }
     }
 
     private JsonObject rewriteBestToCenterMost(JsonObject yolo, int frameW) {
@@ -288,15 +549,27 @@ public class ImageSocketService {
         return yolo;
     }
 
-    private Path saveImage(byte[] jpg) throws IOException {
+    /**
+     * 수신 시각 기준 보관 경로 (파일은 아직 만들지 않음): {day}/{robotId}/{HHmmss_SSS}.jpg
+     * - 로봇별 폴더 → 같은 ms에 들어온 다른 로봇 프레임이 서로 덮어쓰지 않음
+     * - robotId는 hello로 받은 값이라 경로 문자는 '_'로 바꿔서 씀
+     */
+    private Path imagePath(String robotId) {
         String day = LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE);
-        Path dir = baseDir.resolve(day);
-        Files.createDirectories(dir);
-
+        String dir = robotId.replaceAll("[^A-Za-z0-9_-]", "_");
         String name = LocalTime.now().format(DateTimeFormatter.ofPattern("HHmmss_SSS")) + ".jpg";
-        Path file = dir.resolve(name);
+        return baseDir.resolve(day).resolve(dir).resolve(name);
+    }
 
-        Files.write(file, jpg, StandardOpenOption.CREATE_NEW);
-        return file;
+    /** 임시 파일에 쓴 뒤 이동 → 읽는 쪽(추론 서버)이 반쯤 쓴 파일을 보지 않음 */
+    private static void writeImage(Path file, byte[] jpg) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, jpg);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package org.example.socket;
+
+/**
+ * JPEG 바이트에서 가로/세로만 읽는다 (디코딩 없음)
+ * - 마커 세그먼트를 길이만큼 건너뛰다가 SOFn(SOF0 baseline, SOF2 progressive 등)에서 크기를 꺼냄
+ * - 보통 앞쪽 수백 바이트 안에서 끝남 → 프레임마다 BufferedImage를 만들던 ImageIO.read 대체
+ */
+final class JpegSize {
+
+    /** @param width 픽셀, @param height 픽셀 */
+    record Size(int width, int height) {}
+
+    private JpegSize() {}
+
+    /** @return 크기, JPEG가 아니거나 SOF 전에 잘렸으면 null */
+    static Size read(byte[] jpg) {
+        if (jpg == null || jpg.length < 4) return null;
+        if ((jpg[0] & 0xFF) != 0xFF || (jpg[1] & 0xFF) != 0xD8) return null;   // SOI
+
+        int i = 2;
+        while (i + 3 < jpg.length) {
+            if ((jpg[i] & 0xFF) != 0xFF) return null;   // 세그먼트 경계가 어긋남
+
+            int marker = jpg[i + 1] & 0xFF;
+            if (marker == 0xFF) {   // 채움 바이트
+                i++;
+                continue;
+            }
+            i += 2;
+
+            // 길이 없는 단독 마커 (TEM, RSTn)
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) continue;
+            // SOS/EOI 이후엔 SOF가 나오지 않음
+            if (marker == 0xDA || marker == 0xD9) return null;
+
+            int len = ((jpg[i] & 0xFF) << 8) | (jpg[i + 1] & 0xFF);
+            if (len < 2) return null;
+
+            if (isSof(marker)) {
+                // [len 2][precision 1][height 2][width 2]
+                if (i + 7 > jpg.length) return null;
+                int h = ((jpg[i + 3] & 0xFF) << 8) | (jpg[i + 4] & 0xFF);
+                int w = ((jpg[i + 5] & 0xFF) << 8) | (jpg[i + 6] & 0xFF);
+                // 높이 0은 DNL 마커로 나중에 정해지는 경우 (카메라 스트림에선 안 씀)
+                return (w > 0 && h > 0) ? new Size(w, h) : null;
+            }
+            i += len;
+        }
+        return null;
+    }
+
+    // C4(DHT), C8(JPG 예약), CC(DAC)는 SOF가 아님
+    private static boolean isSof(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF
+                && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.socket;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 프레임 크기 읽기 비교: ImageIO.read(전체 디코딩) vs JpegSize.read(헤더만)
+ *
+ * 실행: java -cp <classes> org.example.socket.JpegSizeBench [jpg 파일...]
+ * - 파일을 안 주면 카메라 프레임과 비슷한 640x480 노이즈 JPEG를 만들어서 씀
+ * - 워밍업 후 프레임당 평균 시간을 출력 (서버 코드에서는 쓰지 않음)
+ *
+ * 참고 (개발 PC, 640x480): ImageIO ≈ 7~12ms/frame, JpegSize ≈ 30~55ns/frame
+ */
+final class JpegSizeBench {
+
+    private static final int WARMUP_ROUNDS = Integer.getInteger("bench.warmup", 3);
+    private static final int IMAGEIO_ITERS = Integer.getInteger("bench.imageioIters", 200);
+    private static final int JPEGSIZE_ITERS = Integer.getInteger("bench.jpegSizeIters", 2_000_000);
+
+    // JIT가 결과를 버리지 않도록 모아둠
+    private static long sink = 0;
+
+    private JpegSizeBench() {}
+
+    public static void main(String[] args) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        for (String a : args) frames.add(Files.readAllBytes(Path.of(a)));
+        if (frames.isEmpty()) {
+            for (int seed = 0; seed < 4; seed++) frames.add(syntheticJpeg(640, 480, seed));
+        }
+
+        for (byte[] f : frames) {
+            JpegSize.Size s = JpegSize.read(f);
+            BufferedImage img = ImageIO.read(new ByteArrayInputStream(f));
+            if (s == null || img == null || s.width() != img.getWidth() || s.height() != img.getHeight()) {
+                System.out.println("⚠ size mismatch: JpegSize=" + s
+                        + " ImageIO=" + (img == null ? null : img.getWidth() + "x" + img.getHeight()));
+                return;
+            }
+        }
+        System.out.println("📷 frames=" + frames.size() + " (" + frames.get(0).length / 1024 + "KB~)");
+
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            runImageIo(frames, IMAGEIO_ITERS / 4);
+            runJpegSize(frames, JPEGSIZE_ITERS / 4);
+        }
+
+        double imageIoNs = runImageIo(frames, IMAGEIO_ITERS);
+        double jpegSizeNs = runJpegSize(frames, JPEGSIZE_ITERS);
+
+        System.out.printf("✅ ImageIO.read : %,.0f ns/frame (%.2f ms)%n", imageIoNs, imageIoNs / 1e6);
+        System.out.printf("✅ JpegSize.read: %,.1f ns/frame%n", jpegSizeNs);
+        System.out.printf("   → %,.0fx (sink=%d)%n", imageIoNs / jpegSizeNs, sink);
+    }
+
+    /** @return 프레임당 평균 ns */
+    private static double runImageIo(List<byte[]> frames, int iters) throws IOException {
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iters; i++) {
+            BufferedImage img = ImageIO.read(new ByteArrayInputStream(frames.get(i % frames.size())));
+            sink += img.getWidth() + img.getHeight();
+        }
+        return (System.nanoTime() - t0) / (double) iters;
+    }
+
+    /** @return 프레임당 평균 ns */
+    private static double runJpegSize(List<byte[]> frames, int iters) {
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iters; i++) {
+            JpegSize.Size s = JpegSize.read(frames.get(i % frames.size()));
+            sink += s.width() + s.height();
+        }
+        return (System.nanoTime() - t0) / (double) iters;
+    }
+
+    /** 압축이 잘 안 되는 노이즈 + 그라데이션 (실제 카메라 프레임 크기에 가깝게) */
+    private static byte[] syntheticJpeg(int w, int h, int seed) throws IOException {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Random rnd = new Random(seed);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int n = rnd.nextInt(64);
+                int r = Math.min(255, x * 255 / w + n);
+                int g = Math.min(255, y * 255 / h + n);
+                int b = Math.min(255, 128 + n);
+                img.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.socket;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON 한 줄에서 "type" 값만 스트리밍으로 읽는다 (트리 생성 없음)
+ * - 보통 type이 맨 앞이라 바로 끝남. 뒤에 있으면 앞 값들은 skipValue로 건너뜀
+ * - LIDAR처럼 큰 배열이 오는 메시지도 파싱 비용 없이 분류 가능
+ */
+final class JsonTypePeek {
+
+    private JsonTypePeek() {}
+
+    /** @return type 문자열, JSON 객체가 아니거나 type이 없으면 null */
+    static String peekType(byte[] line) {
+        if (line == null || line.length == 0) return null;
+
+        try (JsonReader r = new JsonReader(new InputStreamReader(
+                new ByteArrayInputStream(line), StandardCharsets.UTF_8))) {
+
+            if (r.peek() != JsonToken.BEGIN_OBJECT) return null;
+            r.beginObject();
+            while (r.hasNext()) {
+                if ("type".equals(r.nextName()) && r.peek() == JsonToken.STRING) {
+                    return r.nextString();
+                }
+                r.skipValue();
+            }
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
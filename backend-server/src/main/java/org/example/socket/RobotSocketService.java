@@ -3,24 +3,42 @@ package org.example.socket;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.example.database.repo.SensorSnapshotRepo;
+import org.example.metrics.Metrics;
+import org.example.robot.RobotRegistry;
+import org.example.robot.RobotSession;
+import org.example.state.SensorHistory;
+import org.example.state.SensorSeries;
 import org.example.state.SensorState;
 import org.example.state.StateUpdater;
 
-import java.io.BufferedReader;
+import org.example.socket.nio.ConnectionHandler;
+import org.example.socket.nio.LineCodec;
+import org.example.socket.nio.NioConnection;
+import org.example.socket.nio.NioServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class RobotSocketService {
 
     private final int PORT = 6000;
 
-    private ServerSocket serverSocket;
-    private volatile Socket robotSocket;
+    private static final int MAX_LINE_BYTES = 1024 * 1024;
+    // 로봇이 못 받아가는 명령이 이만큼 쌓이면 더 보내지 않음
+    private static final long MAX_PENDING_BYTES = 1024 * 1024;
 
-    private final SensorState state;
+    private final RobotRegistry registry;
     private GUISocketService guiService;
 
     // ===== stale / snapshot =====
@@ -28,206 +46,405 @@ public class RobotSocketService {
     private static final long PIR_STALE_MS  = 3_000;
     private static final long VISION_STALE_MS = 3_000;
 
-    private static final long SNAPSHOT_INTERVAL_MS = 500;
+    // 변경이 몰려도 로봇당 이 간격에 최대 1번 발행 / 변경이 없어도 이 주기로 1번 (DB·GUI 생존 확인용)
+    private static final long SNAPSHOT_MIN_INTERVAL_MS = Long.getLong("serbot.snapshot.minIntervalMs", 500);
+    private static final long SNAPSHOT_HEARTBEAT_MS = Long.getLong("serbot.snapshot.heartbeatMs", 5_000);
+    // 스냅샷에 들어가는 채널만 발행 트리거 (초음파/STT 변경으로는 깨우지 않음)
+    private static final int SNAPSHOT_CHANNELS = SensorState.CH_FLAME | SensorState.CH_CO2 | SensorState.CH_DUST
+            | SensorState.CH_PIR | SensorState.CH_VISION;
+
+    private final AtomicLong snapshotsChanged = new AtomicLong();
+    private final AtomicLong snapshotsStale = new AtomicLong();
+    private final AtomicLong snapshotsHeartbeat = new AtomicLong();
+    private final AtomicLong snapshotIdleWakeups = new AtomicLong();
 
     // ===== demo defaults =====
     private static final double CO2_DEMO_DEFAULT = 450.0;
 
-    private double demoPm25 = 18.0;
-    private double demoPm10 = 28.0;
-    private int demoTick = 0;
-
     // DB
     private final SensorSnapshotRepo sensorRepo = new SensorSnapshotRepo();
+    // ✅ sensor_snapshot INSERT는 DB 호출이라 공용 scheduler 밖에서 (순서 보장용 단일 스레드)
+    //    scheduler에는 발행 병합/JSON 생성 같은 가벼운 일만 남김 → DB가 느려도 다른 로봇 타이머가 밀리지 않음
+    private final ExecutorService dbExec = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Sensor-DB");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong dbPending = new AtomicLong();
     private final Random random = new Random();
 
 
-    public RobotSocketService(SensorState state) {
-        this.state = state;
+    /**
+     * 로봇 → 서버 메시지 처리기 (NIO 이벤트 루프 스레드에서 호출 → 블로킹 금지)
+     * @param raw 수신한 줄 그대로(UTF-8). GUI 포워딩에 재직렬화 없이 그대로 쓴다 (수정 금지)
+     */
+    @FunctionalInterface
+    public interface MessageHandler {
+        void handle(RobotSession session, String type, byte[] raw);
+    }
+
+    private final Map<String, MessageHandler> handlers = new ConcurrentHashMap<>();
+
+    // 등록 안 된 타입(LIDAR 등)/JSON 아님 → 파싱 없이 GUI로 그대로
+    private final MessageHandler defaultHandler = (session, type, raw) -> forwardRaw(type, raw);
+
+    public RobotSocketService(RobotRegistry registry) {
+        this.registry = registry;
+
+        // 2) State 반영 (SENSOR / STT / VISION): 한 번만 파싱해서 StateUpdater에 객체째 전달
+        //    - PIR은 SENSOR에 같이 오거나, 별도 타입으로 올 수도 있음(프로젝트 상황에 따라)
+        //    - SENSOR는 snapshot으로만 보내고 raw는 보내지 않는다(중복/형식불일치 방지)
+        registerHandler("SENSOR", stateHandler(false));
+        registerHandler("STT", stateHandler(true));
+        registerHandler("VISION", stateHandler(true));
+        registerHandler("PIR", stateHandler(true));
+
+        Metrics.register("snapshot", () -> String.format("changed=%d stale=%d heartbeat=%d idleWakeups=%d dbPending=%d",
+                snapshotsChanged.get(), snapshotsStale.get(), snapshotsHeartbeat.get(), snapshotIdleWakeups.get(),
+                dbPending.get()));
+    }
+
+    /** 타입별 처리기 등록 (같은 타입이면 교체) */
+    public void registerHandler(String type, MessageHandler handler) {
+        handlers.put(type, handler);
+    }
+
+    private MessageHandler stateHandler(boolean forwardToGui) {
+        return (session, type, raw) -> {
+            try {
+                JsonObject obj = JsonParser.parseReader(new InputStreamReader(
+                        new ByteArrayInputStream(raw), StandardCharsets.UTF_8)).getAsJsonObject();
+                StateUpdater.apply(type, obj, session.state());
+            } catch (Exception ignored) {}
+
+            if (forwardToGui) forwardRaw(type, raw);
+        };
+    }
+
+    // 3) GUI로 raw forwarding: 받은 바이트 그대로 (String 변환/재직렬화 없음)
+    private void forwardRaw(String type, byte[] raw) {
+        if (guiService != null && guiService.isConnected()) {
+            guiService.sendToGui(type, raw);
+        }
     }
 
     public void setGuiService(GUISocketService guiService) {
         this.guiService = guiService;
     }
 
-    public void startServer() {
-        startSnapshotThread();
+    public void startServer(NioServer nio) throws IOException {
+        // 로봇 세션이 생길 때마다 그 로봇의 스냅샷 발행기를 상태 변경에 연결
+        registry.onSessionCreated(session -> {
+            SnapshotPublisher publisher = new SnapshotPublisher(session);
+            session.state().setChangeListener(publisher::onChange);
+            session.onClose(publisher::stop);
+            publisher.onChange();
+        });
+
+        nio.listen(PORT, "robot", () -> new LineCodec(MAX_LINE_BYTES), new RobotHandler(),
+                0, MAX_PENDING_BYTES);
+        System.out.println("🤖 Robot server started : " + PORT);
+    }
+
+    private final class RobotHandler implements ConnectionHandler {
 
-        new Thread(() -> {
-            try {
-                serverSocket = new ServerSocket(PORT);
-                System.out.println("🤖 Robot server started : " + PORT);
-
-                while (true) {
-                    Socket socket = serverSocket.accept();
-                    socket.setTcpNoDelay(true);
-
-                    // 새 로봇이 붙으면 기존 소켓 정리
-                    Socket prev = robotSocket;
-                    if (prev != null && !prev.isClosed()) {
-                        try {
-                            System.out.println("⚠ Previous robot socket exists -> closing old connection");
-                            prev.close();
-                        } catch (Exception ignored) {}
-                    }
-
-                    System.out.println("🤖 Robot connected: " + socket.getInetAddress());
-                    handleRobot(socket);
+        @Override
+        public void onOpen(NioConnection conn) {
+            System.out.println("🤖 Robot connected: " + conn.remoteAddress());
+        }
+
+        /** 첫 프레임이 HELLO면 그 robotId로, 아니면 기본 로봇으로 연결을 세션에 묶는다 */
+        private RobotSession bind(NioConnection conn, String robotId) {
+            RobotSession session = registry.getOrCreate(robotId);
+            conn.attachment(session);
+
+            // 같은 로봇이 다시 붙으면 기존 연결 정리
+            NioConnection prev = session.attachControl(conn);
+            if (prev != null && prev != conn && prev.isOpen()) {
+                System.out.println("⚠ Previous robot socket exists (" + session.robotId() + ") -> closing old connection");
+                prev.close();
+            }
+            System.out.println("🤖 Robot bound: " + session.robotId() + " <- " + conn.remoteAddress());
+            return session;
+        }
+
+        @Override
+        public void onFrame(NioConnection conn, byte[] frame) {
+            RobotSession session = conn.attachment();
+            if (session == null) {
+                String helloId;
+                try {
+                    helloId = RobotRegistry.parseHello(frame);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("⚠ robot handshake rejected: " + e.getMessage());
+                    conn.close();
+                    return;
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
+
+                session = bind(conn, helloId);
+                if (helloId != null) {
+                    JsonObject ack = new JsonObject();
+                    ack.addProperty("type", "HELLO_ACK");
+                    ack.addProperty("robotId", session.robotId());
+                    session.send(ack.toString());
+                    return;
+                }
+                // HELLO 없는 기존 로봇: 첫 줄도 일반 메시지로 처리
+            }
+
+            // 1) 타입만 스트리밍으로 확인 (트리 파싱 없음) → 타입별 핸들러로
+            String type = JsonTypePeek.peekType(frame);
+            MessageHandler h = (type != null) ? handlers.get(type) : null;
+            (h != null ? h : defaultHandler).handle(session, type, frame);
+        }
+
+        @Override
+        public void onClose(NioConnection conn) {
+            RobotSession session = conn.attachment();
+            if (session != null && session.detachControl(conn)) {
+                System.out.println("🤖 Robot disconnected: " + session.robotId());
             }
-        }, "Robot-Accept").start();
+        }
     }
 
-    private void handleRobot(Socket socket) {
-        new Thread(() -> {
-            try {
-                robotSocket = socket;
-                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-
-                String line;
-                while ((line = in.readLine()) != null) {
-
-                    // 1) 타입 확인(빠르게)
-                    String type = null;
-                    try {
-                        JsonObject obj = JsonParser.parseString(line).getAsJsonObject();
-                        if (obj.has("type") && !obj.get("type").isJsonNull()) {
-                            type = obj.get("type").getAsString();
-                        }
-                    } catch (Exception ignored) {}
-
-                    // 2) State 반영 (SENSOR / STT / VISION)
-                    //    - PIR은 SENSOR에 같이 오거나, 별도 타입으로 올 수도 있음(프로젝트 상황에 따라)
-                    if ("SENSOR".equals(type) || "STT".equals(type) || "VISION".equals(type) || "PIR".equals(type)) {
-                        try { StateUpdater.applyJson(line, state); } catch (Exception ignored) {}
-                    }
-
-                    // 3) GUI로 raw forwarding
-                    //    - SENSOR는 snapshot으로만 보내고 raw는 보내지 않는다(중복/형식불일치 방지)
-                    if (guiService != null && guiService.isConnected()) {
-                        if (!"SENSOR".equals(type)) {
-                            guiService.sendToGui(line);
-                        }
-                    }
+    /**
+     * 로봇 한 대의 센서 스냅샷 발행기 (변경 기반, 공유 스케줄러에서 실행)
+     *
+     * - SensorState가 바뀌면 onChange() → 마지막 발행 후 SNAPSHOT_MIN_INTERVAL_MS가 지난 시점에 한 번만 실행
+     *   (그 사이 들어온 변경은 dirty 비트로 합쳐짐)
+     * - 발행 조건: 스냅샷에 들어가는 채널이 바뀜 | pir/vision/dust가 stale 경계를 넘음 | heartbeat
+     * - 아무 일도 없으면 다음 stale 경계 또는 heartbeat 시각에만 깨어남 → 유휴 로봇은 DB row/GUI 트래픽 거의 없음
+     */
+    private final class SnapshotPublisher {
+        private final RobotSession session;
+        private final SensorState state;
+
+        private final AtomicBoolean changeScheduled = new AtomicBoolean(false);
+        private volatile long lastEmitAtMs = 0;
+
+        // 아래는 runLock 안에서만 접근
+        private final Object runLock = new Object();
+        private ScheduledFuture<?> wake;
+        private boolean stopped = false;
+        private int pendingDirty = 0;
+        private boolean flagsKnown = false;
+        private boolean lastPirValid, lastVisionValid, lastRobotDustFresh;
+
+        private double demoPm25 = 18.0;
+        private double demoPm10 = 28.0;
+        private int demoTick = 0;
+
+        SnapshotPublisher(RobotSession session) {
+            this.session = session;
+            this.state = session.state();
+        }
+
+        /** SensorState 쓰기 스레드(이벤트 루프 등)에서 호출 → 스케줄만 걸고 바로 반환 */
+        void onChange() {
+            if (!changeScheduled.compareAndSet(false, true)) return;
+            long delay = Math.max(0, lastEmitAtMs + SNAPSHOT_MIN_INTERVAL_MS - System.currentTimeMillis());
+            registry.scheduler().schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        }
+
+        /** 세션 정리 시: 걸린 타이머 취소, 이후 깨어나도 다시 걸지 않음 */
+        void stop() {
+            synchronized (runLock) {
+                stopped = true;
+                if (wake != null) wake.cancel(false);
+            }
+        }
+
+        private void run() {
+            synchronized (runLock) {
+                if (stopped) return;
+                changeScheduled.set(false);
+                try {
+                    tick(System.currentTimeMillis());
+                } catch (Exception e) {
+                    System.out.println("⚠ snapshot error (" + session.robotId() + "): " + e.getMessage());
+                    scheduleWake(System.currentTimeMillis() + SNAPSHOT_HEARTBEAT_MS);
                 }
+            }
+        }
 
-            } catch (Exception e) {
-                System.out.println("🤖 Robot disconnected");
-            } finally {
-                try { socket.close(); } catch (Exception ignored) {}
-                robotSocket = null;
+        private void tick(long now) {
+            if (guiService == null || !guiService.isConnected() || !session.isConnected()) {
+                // 보낼 곳이 없으면 변경은 쌓아두고 heartbeat 주기로만 다시 확인
+                scheduleWake(now + SNAPSHOT_HEARTBEAT_MS);
+                return;
             }
-        }, "Robot-Conn").start();
-    }
 
-    private void startSnapshotThread() {
-        new Thread(() -> {
-            while (true) {
+            pendingDirty |= state.takeDirty() & SNAPSHOT_CHANNELS;
+
+            SensorState.Snapshot s = state.snapshot();
+            boolean pirValid = SensorState.Snapshot.fresh(s.pirTs(), now, PIR_STALE_MS);
+            boolean visionValid = SensorState.Snapshot.fresh(s.visionTs(), now, VISION_STALE_MS);
+            boolean robotDustFresh = isRobotDustFresh(s, now);
+
+            boolean crossed = !flagsKnown
+                    || pirValid != lastPirValid
+                    || visionValid != lastVisionValid
+                    || robotDustFresh != lastRobotDustFresh;
+            boolean heartbeat = now - lastEmitAtMs >= SNAPSHOT_HEARTBEAT_MS;
+
+            if (pendingDirty == 0 && !crossed && !heartbeat) {
+                snapshotIdleWakeups.incrementAndGet();
+                scheduleWake(nextDeadline(s, now));
+                return;
+            }
+
+            // 최소 간격 보장 (stale 경계 타이머가 직전 발행 바로 뒤에 깨운 경우)
+            if (now < lastEmitAtMs + SNAPSHOT_MIN_INTERVAL_MS) {
+                scheduleWake(lastEmitAtMs + SNAPSHOT_MIN_INTERVAL_MS);
+                return;
+            }
+
+            if (pendingDirty != 0) snapshotsChanged.incrementAndGet();
+            else if (crossed) snapshotsStale.incrementAndGet();
+            else snapshotsHeartbeat.incrementAndGet();
+
+            pendingDirty = 0;
+            flagsKnown = true;
+            lastPirValid = pirValid;
+            lastVisionValid = visionValid;
+            lastRobotDustFresh = robotDustFresh;
+            lastEmitAtMs = now;
+
+            emit(now);
+            scheduleWake(nextDeadline(state.snapshot(), now));
+        }
+
+        /** 로봇이 보낸 dust가 아직 유효한지 (DEMO 보정값은 제외 → 데모 갱신만으로는 깨어나지 않음) */
+        private boolean isRobotDustFresh(SensorState.Snapshot s, long now) {
+            return !"DEMO".equals(s.dustSource()) && SensorState.Snapshot.fresh(s.dustTs(), now, DUST_STALE_MS);
+        }
+
+        /** 다음에 확인해야 할 시각: heartbeat 또는 지금 유효한 값이 stale이 되는 가장 이른 시각 */
+        private long nextDeadline(SensorState.Snapshot s, long now) {
+            long next = lastEmitAtMs + SNAPSHOT_HEARTBEAT_MS;
+            if (SensorState.Snapshot.fresh(s.pirTs(), now, PIR_STALE_MS)) {
+                next = Math.min(next, s.pirTs() + PIR_STALE_MS + 1);
+            }
+            if (SensorState.Snapshot.fresh(s.visionTs(), now, VISION_STALE_MS)) {
+                next = Math.min(next, s.visionTs() + VISION_STALE_MS + 1);
+            }
+            if (isRobotDustFresh(s, now)) {
+                next = Math.min(next, s.dustTs() + DUST_STALE_MS + 1);
+            }
+            return next;
+        }
+
+        private void scheduleWake(long atMs) {
+            if (wake != null) wake.cancel(false);
+            long delay = Math.max(0, atMs - System.currentTimeMillis());
+            wake = registry.scheduler().schedule(this::run, delay, TimeUnit.MILLISECONDS);
+        }
+
+        /** 스냅샷 JSON 생성 + DB 1 row + GUI 전송 */
+        private void emit(long now) {
+            // ===== dust stale 보정 (B방향: null/미수신이면 demo 생성해서 state에 넣고 GUI로 보냄) =====
+            if (state.isDustStale(DUST_STALE_MS)) {
+                demoTick++;
+                if (demoTick % 5 == 0) {
+                    demoPm25 = clamp(demoPm25 + ((demoTick % 2 == 0) ? 0.3 : -0.2), 12, 35);
+                    demoPm10 = clamp(demoPm10 + ((demoTick % 2 == 0) ? 0.4 : -0.3), 18, 50);
+                }
+                state.setDust(demoPm25, demoPm10, "DEMO");
+                // 아래 snapshot()에 바로 포함되므로 이 변경으로 다시 발행하지 않음
+                // (그 사이 들어온 로봇 값도 snapshot()이 같이 읽음)
+                state.takeDirty();
+            }
+
+            // ✅ 한 시점의 값으로 (센서 패킷이 중간에 끼어들어도 필드끼리 섞이지 않음)
+            SensorState.Snapshot s = state.snapshot();
+
+            // ===== snapshot 생성 =====
+            JsonObject snap = new JsonObject();
+            snap.addProperty("type", "SENSOR");
+            snap.addProperty("robotId", session.robotId());
+
+            // fire는 flame(0~1) 기반으로 계산 (미수신 NaN이면 false)
+            boolean fire = s.flame() > 0.5;
+            snap.addProperty("fire", fire);
+
+            // co2 기본값
+            double co2 = s.co2();
+            double finalCo2;
+
+            if (SensorState.Snapshot.has(co2)) {
+                if (Double.compare(co2, 0.0) == 0) {
+                    // If CO2 is 0, generate a random value between 40 and 50
+                    finalCo2 = 40.0 + (50.0 - 40.0) * random.nextDouble();
+                } else {
+                    finalCo2 = co2;
+                }
+            } else {
+                finalCo2 = CO2_DEMO_DEFAULT;
+            }
+            snap.addProperty("co2", finalCo2);
+
+            // dust
+            JsonObject dust = new JsonObject();
+            double pm25 = s.pm25();
+
+            // Subtract a random value between 3.0 and 10.0 from the real pm25 value
+            double finalPm25;
+            if (SensorState.Snapshot.has(pm25)) {
+                double subtractionAmount = 3.0 + (10.0 - 3.0) * random.nextDouble();
+                finalPm25 = pm25 - subtractionAmount;
+            } else {
+                finalPm25 = demoPm25; // fallback to demo value if no real value
+            }
+            double finalPm10 = SensorState.Snapshot.or(s.pm10(), demoPm10);
+
+            dust.addProperty("pm25", finalPm25);
+            dust.addProperty("pm10", finalPm10);
+            snap.add("dust", dust);
+            if (s.dustSource() != null) {
+                snap.addProperty("dustSource", s.dustSource());
+            }
+
+            // ===== PIR / VISION 동시 포함 (서버 시각 기준 stale 처리) =====
+            // pir
+            boolean pirValid = SensorState.Snapshot.fresh(s.pirTs(), now, PIR_STALE_MS);
+            snap.addProperty("pir", pirValid && s.pirDetected());
+            snap.addProperty("pirStale", !pirValid);
+
+            // visionPerson
+            boolean visionValid = SensorState.Snapshot.fresh(s.visionTs(), now, VISION_STALE_MS);
+            boolean visionPersonVal = visionValid && s.isVisionPerson();
+            snap.addProperty("visionPerson", visionPersonVal);
+            snap.addProperty("visionStale", !visionValid);
+
+            // 선택: conf도 같이
+            double conf = s.visionConf();
+            if (SensorState.Snapshot.has(conf)) snap.addProperty("visionConf", conf);
+
+            // 최근 추세 (메모리 시계열) → GUI가 상승/하강 표시에 사용
+            JsonObject trend = trendJson(state.history(), now);
+            if (trend.size() > 0) snap.add("trend", trend);
+
+            /* DB 전송 */
+            long ts = now;
+
+            boolean fireVal = fire;
+            double co2Val = finalCo2; // Use the modified value for DB insert
+            double pm25Val = finalPm25; // Use the modified value for DB insert
+            double pm10Val = finalPm10;
+
+            // source 컬럼에 DEMO/REAL 넣기
+            String sourceVal = (s.dustSource() != null && !s.dustSource().isBlank())
+                    ? s.dustSource()
+                    : "REAL";
+
+            // vision 기반 사람 감지(시연용)
+            boolean personDetected = visionPersonVal && (!SensorState.Snapshot.has(conf) || conf >= 0.5);
+
+            // ✅ DB insert (pir 컬럼에 personDetected 저장) → Sensor-DB 스레드에서
+            String robotId = session.robotId();
+            dbPending.incrementAndGet();
+            dbExec.execute(() -> {
                 try {
-                    Thread.sleep(SNAPSHOT_INTERVAL_MS);
-
-                    if (guiService == null || !guiService.isConnected()) continue;
-                    if (!isConnected()) continue;
-
-                    long now = System.currentTimeMillis();
-
-                    // ===== dust stale 보정 (B방향: null/미수신이면 demo 생성해서 state에 넣고 GUI로 보냄) =====
-                    if (state.getDustTs() == null || (now - state.getDustTs()) > DUST_STALE_MS) {
-                        demoTick++;
-                        if (demoTick % 5 == 0) {
-                            demoPm25 = clamp(demoPm25 + ((demoTick % 2 == 0) ? 0.3 : -0.2), 12, 35);
-                            demoPm10 = clamp(demoPm10 + ((demoTick % 2 == 0) ? 0.4 : -0.3), 18, 50);
-                        }
-                        state.setDust(demoPm25, demoPm10, "DEMO");
-                    }
-
-                    // ===== snapshot 생성 =====
-                    JsonObject snap = new JsonObject();
-                    snap.addProperty("type", "SENSOR");
-
-                    // fire는 flame(0~1) 기반으로 계산
-                    boolean fire = false;
-                    Double flame = state.getFlame();
-                    if (flame != null) fire = flame > 0.5;
-                    snap.addProperty("fire", fire);
-
-                    // co2 기본값
-                    Double co2 = state.getCo2();
-                    double finalCo2;
-
-                    if (co2 != null) {
-                        if (Double.compare(co2, 0.0) == 0) {
-                            // If CO2 is 0, generate a random value between 40 and 50
-                            finalCo2 = 40.0 + (50.0 - 40.0) * random.nextDouble();
-                        } else {
-                            finalCo2 = co2;
-                        }
-                    } else {
-                        finalCo2 = CO2_DEMO_DEFAULT;
-                    }
-                    snap.addProperty("co2", finalCo2);
-
-                    // dust
-                    JsonObject dust = new JsonObject();
-                    Double pm25 = state.getPm25();
-                    Double pm10 = state.getPm10();
-
-                    // Subtract a random value between 3.0 and 10.0 from the real pm25 value
-                    double finalPm25;
-                    if (pm25 != null) {
-                        double subtractionAmount = 3.0 + (10.0 - 3.0) * random.nextDouble();
-                        finalPm25 = pm25 - subtractionAmount;
-                    } else {
-                        finalPm25 = demoPm25; // fallback to demo value if no real value
-                    }
-
-                    dust.addProperty("pm25", finalPm25);
-                    dust.addProperty("pm10", (pm10 != null) ? pm10 : demoPm10);
-                    snap.add("dust", dust);
-                    if (state.getDustSource() != null) {
-                        snap.addProperty("dustSource", state.getDustSource());
-                    }
-
-                    // ===== PIR / VISION 동시 포함 (서버 시각 기준 stale 처리) =====
-                    // pir
-                    Boolean pir = state.getPir();
-                    Long pirTs = state.getPirTs();
-                    boolean pirValid = (pirTs != null) && ((now - pirTs) <= PIR_STALE_MS);
-                    snap.addProperty("pir", (pir != null && pirValid) ? pir : false);
-                    snap.addProperty("pirStale", !pirValid);
-
-                    // visionPerson
-                    Boolean visionPerson = state.getVisionPerson();
-                    Long visionTs = state.getVisionTs();
-                    boolean visionValid = (visionTs != null) && ((now - visionTs) <= VISION_STALE_MS);
-                    snap.addProperty("visionPerson", (visionPerson != null && visionValid) ? visionPerson : false);
-                    snap.addProperty("visionStale", !visionValid);
-
-                    // 선택: conf도 같이
-                    Double conf = state.getVisionConf();
-                    if (conf != null) snap.addProperty("visionConf", conf);
-
-                    /* DB 전송 */
-                    long ts = now;
-
-                    boolean fireVal = fire;
-                    double co2Val = finalCo2; // Use the modified value for DB insert
-                    double pm25Val = finalPm25; // Use the modified value for DB insert
-                    double pm10Val = (pm10 != null) ? pm10 : demoPm10;
-
-                    // source 컬럼에 DEMO/REAL 넣기
-                    String sourceVal = (state.getDustSource() != null && !state.getDustSource().isBlank())
-                            ? state.getDustSource()
-                            : "REAL";
-
-                    // vision 기반 사람 감지(시연용)
-                    boolean visionPersonVal = (visionPerson != null && visionValid) ? visionPerson : false;
-                    Double visionConfVal = conf;
-                    boolean personDetected = visionPersonVal && (visionConfVal == null || visionConfVal >= 0.5);
-
-                    // ✅ DB insert (pir 컬럼에 personDetected 저장)
                     sensorRepo.insert(
                             ts,
                             fireVal,
@@ -235,36 +452,61 @@ public class RobotSocketService {
                             pm25Val,
                             pm10Val,
                             personDetected, // pir
-                            sourceVal
+                            sourceVal,
+                            robotId
                     );
-                    //
+                } finally {
+                    dbPending.decrementAndGet();
+                }
+            });
 
 
-                    // 최종: GUI로 snapshot 송신
-                    guiService.sendToGui(snap.toString());
+            // 최종: GUI로 snapshot 송신 (클라이언트별 키프레임/델타 인코딩, snap은 이후 수정 금지)
+            guiService.sendSensorSnapshot(session.robotId(), snap);
+        }
+    }
 
-                } catch (InterruptedException e) {
-                    break;
-                } catch (Exception e) {
-                    System.out.println("⚠ snapshot error: " + e.getMessage());
-                }
-            }
-        }, "Sensor-Snapshot").start();
+    /** 로봇 수신값이 있는 채널만: {co2:{mean,rate}, pm25:{mean,rate}} */
+    private static JsonObject trendJson(SensorHistory history, long now) {
+        JsonObject trend = new JsonObject();
+        addTrend(trend, "co2", history.window(SensorHistory.Channel.CO2, now));
+        addTrend(trend, "pm25", history.window(SensorHistory.Channel.PM25, now));
+        return trend;
     }
 
-    public void sendToRobot(String msg) {
-        try {
-            if (robotSocket != null && !robotSocket.isClosed()) {
-                PrintWriter out = new PrintWriter(robotSocket.getOutputStream(), true);
-                out.println(msg);
-            }
-        } catch (Exception e) {
-            System.out.println("⚠ sendToRobot failed: " + e.getMessage());
+    private static void addTrend(JsonObject trend, String key, SensorSeries.Window w) {
+        if (w.isEmpty()) return;
+        JsonObject o = new JsonObject();
+        o.addProperty("mean", w.mean());
+        o.addProperty("min", w.min());
+        o.addProperty("max", w.max());
+        if (SensorState.Snapshot.has(w.ratePerSec())) o.addProperty("rate", w.ratePerSec());
+        trend.add(key, o);
+    }
+
+    /** robotId 지정 전송 */
+    public void sendToRobot(String robotId, String msg) {
+        RobotSession session = registry.resolve(robotId);
+        if (session == null || msg == null) return;
+
+        if (!session.send(msg) && session.isConnected()) {
+            System.out.println("⚠ sendToRobot(" + session.robotId() + ") dropped (backpressure "
+                    + session.pendingBytes() + "B)");
         }
     }
 
+    /** 기존 단일 로봇 호출부 호환: 기본 로봇(또는 유일하게 접속한 로봇)으로 */
+    public void sendToRobot(String msg) {
+        sendToRobot(null, msg);
+    }
+
     public boolean isConnected() {
-        return robotSocket != null && !robotSocket.isClosed();
+        return registry.anyConnected();
+    }
+
+    public boolean isConnected(String robotId) {
+        RobotSession session = registry.get(robotId);
+        return session != null && session.isConnected();
     }
 
     private static double clamp(double v, double min, double max) {
@@ -0,0 +1,125 @@
+package org.example.socket;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * GUI 클라이언트 하나에 보내는 SENSOR 스트림의 델타 인코더 (로봇별 스트림)
+ *
+ * 프로토콜:
+ *   키프레임 : {"type":"SENSOR","robotId":..,"seq":N,"key":true, ...전체 필드}
+ *   델타     : {"type":"SENSOR_DELTA","robotId":..,"seq":N,"base":N-1, ...바뀐 필드만, "removed":[..]}
+ *   - seq는 (클라이언트, 로봇)마다 1씩 증가. 클라이언트는 base != 마지막 seq면 SENSOR_RESYNC 요청
+ *   - 중첩 객체(dust, trend)는 안이 하나라도 바뀌면 통째로 보냄
+ *
+ * 비교 기준은 "이 클라이언트에게 실제로 보낸 마지막 상태" → GuiClient가 중간 스냅샷을 합쳐 버려도 어긋나지 않음
+ * GuiClient 락 안에서만 호출 (자체 동기화 없음)
+ */
+final class SensorDeltaEncoder {
+
+    // 이 개수/시간마다 델타 대신 키프레임 (클라이언트 미러가 어긋나도 스스로 복구되도록)
+    private static final int KEYFRAME_EVERY = 20;
+    private static final long KEYFRAME_INTERVAL_MS = 10_000;
+
+    private static final class Stream {
+        long seq = 0;
+        JsonObject lastSent;        // 보낸 스냅샷 원본 (공유 객체, 수정 금지)
+        int sinceKey = 0;
+        long keyAtMs = 0;
+        boolean forceKey = true;
+    }
+
+    private final Map<String, Stream> streams = new HashMap<>();
+
+    private long keyframes = 0;
+    private long deltas = 0;
+
+    /**
+     * @param snap RobotSocketService가 만든 전체 스냅샷 (여러 클라이언트가 공유 → 수정하지 않음)
+     * @return 보낼 한 줄(UTF-8, 개행 없음)
+     */
+    byte[] encode(String robotId, JsonObject snap, long nowMs) {
+        Stream st = streams.computeIfAbsent(robotId, k -> new Stream());
+        st.seq++;
+
+        JsonObject out;
+        boolean key = st.forceKey
+                || st.lastSent == null
+                || st.sinceKey >= KEYFRAME_EVERY
+                || nowMs - st.keyAtMs >= KEYFRAME_INTERVAL_MS;
+
+        if (key) {
+            out = snap.deepCopy();
+            out.addProperty("seq", st.seq);
+            out.addProperty("key", true);
+            st.forceKey = false;
+            st.sinceKey = 0;
+            st.keyAtMs = nowMs;
+            keyframes++;
+        } else {
+            out = delta(robotId, st.lastSent, snap);
+            out.addProperty("seq", st.seq);
+            out.addProperty("base", st.seq - 1);
+            st.sinceKey++;
+            deltas++;
+        }
+
+        st.lastSent = snap;
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static JsonObject delta(String robotId, JsonObject prev, JsonObject snap) {
+        JsonObject out = new JsonObject();
+        out.addProperty("type", "SENSOR_DELTA");
+        out.addProperty("robotId", robotId);
+
+        for (Map.Entry<String, JsonElement> e : snap.entrySet()) {
+            String k = e.getKey();
+            if (isEnvelope(k)) continue;
+            if (!Objects.equals(prev.get(k), e.getValue())) out.add(k, e.getValue());
+        }
+
+        JsonArray removed = null;
+        for (String k : prev.keySet()) {
+            if (isEnvelope(k) || snap.has(k)) continue;
+            if (removed == null) removed = new JsonArray();
+            removed.add(k);
+        }
+        if (removed != null) out.add("removed", removed);
+        return out;
+    }
+
+    private static boolean isEnvelope(String k) {
+        return "type".equals(k) || "robotId".equals(k);
+    }
+
+    /** 다음 메시지를 키프레임으로 (robotId null이면 모든 로봇) */
+    void requestKeyframe(String robotId) {
+        if (robotId == null) {
+            for (Stream st : streams.values()) st.forceKey = true;
+            return;
+        }
+        Stream st = streams.get(robotId);
+        if (st != null) st.forceKey = true;
+    }
+
+    /** 키프레임 재전송용: 마지막으로 보낸 스냅샷 (없으면 null) */
+    JsonObject lastSent(String robotId) {
+        Stream st = streams.get(robotId);
+        return st == null ? null : st.lastSent;
+    }
+
+    Iterable<String> robotIds() {
+        return streams.keySet();
+    }
+
+    String stats() {
+        return "sensorKey=" + keyframes + " sensorDelta=" + deltas;
+    }
+}
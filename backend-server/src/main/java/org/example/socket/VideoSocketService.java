@@ -1,30 +1,44 @@
 package org.example.socket;
 
 import com.google.gson.JsonObject;
-import org.example.database.Db;
+import org.example.database.repo.VideoFrame;
+import org.example.database.repo.VideoFrameBatchWriter;
+import org.example.database.repo.VideoFrameRefRepo;
+import org.example.database.repo.VideoFrameRepo;
 import org.example.database.repo.VideoSessionRepo;
-
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
+import org.example.database.store.FrameStore;
+import org.example.database.store.SegmentFrameStore;
+import org.example.metrics.Metrics;
+import org.example.robot.RobotRegistry;
+import org.example.robot.RobotSession;
+
+import org.example.socket.nio.ConnectionHandler;
+import org.example.socket.nio.LengthPrefixedCodec;
+import org.example.socket.nio.NioConnection;
+import org.example.socket.nio.NioServer;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class VideoSocketService {
 
     private final int PORT = 6003;
 
-    private ServerSocket serverSocket;
-    private volatile Socket videoSocket;
+    // robotId → 영상 연결 (로봇당 하나, 같은 로봇이 다시 붙으면 이전 연결 교체)
+    private final ConcurrentHashMap<String, NioConnection> videoConns = new ConcurrentHashMap<>();
+    private final RobotRegistry registry;
 
     private GUISocketService guiService;
+    private GUIVideoSocketService guiVideoService;
 
     // ✅ DB 세션
     private final VideoSessionRepo sessionRepo = new VideoSessionRepo();
-    private volatile long currentSessionId = -1;
+    private final Set<Long> openSessionIds = ConcurrentHashMap.newKeySet();
 
     // 시연/기본값
     private static final int DB_FPS = 5;
@@ -33,144 +47,181 @@ public class VideoSocketService {
 
     // ✅ 무한 대기 방지(전송 멈추고 연결만 살아있는 케이스)
     private static final int READ_TIMEOUT_MS = 5_000;
-
-    // ✅ 프레임 저장 SQL (repo 따로 안 만들고 여기서 바로 처리)
-    private static final String INSERT_FRAME_SQL = """
-        INSERT INTO video_frame
-        (session_id, received_at_ms, frame_index, mime, jpeg_bytes, bytes_len)
-        VALUES (?, ?, ?, ?, ?, ?)
-        """;
+    private static final int MAX_FRAME_BYTES = 5_000_000;
+
+    // ✅ 프레임 저장은 전용 writer 스레드가 배치로 처리 (리더 스레드는 큐에 넣기만)
+    private static final int FRAME_QUEUE_CAPACITY = 64;      // 5fps 기준 약 12초 분량
+    private static final int FRAME_BATCH_SIZE = 10;
+    private static final long FRAME_BATCH_MAX_AGE_MS = 1_000;
+    private static final VideoFrameBatchWriter.OverflowPolicy FRAME_OVERFLOW_POLICY =
+            VideoFrameBatchWriter.OverflowPolicy.DROP_OLDEST;
+    private static final long FRAME_WRITER_CLOSE_TIMEOUT_MS = 3_000;
+
+    // ✅ 프레임 저장소 선택: -Dserbot.video.store=segment(기본) | blob
+    //    segment : ./data/video/{sessionId}/seg-*.dat 에 append, DB(video_frame_ref)엔 위치만
+    //    blob    : 기존처럼 video_frame.jpeg_bytes 에 통째로 저장
+    private static final String FRAME_STORE = System.getProperty("serbot.video.store", "segment");
+    private static final String SEGMENT_DIR = System.getProperty("serbot.video.dir", "./data/video");
+    private static final long SEGMENT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final VideoFrameBatchWriter frameWriter = new VideoFrameBatchWriter(
+            createFrameStore(),
+            FRAME_QUEUE_CAPACITY,
+            FRAME_BATCH_SIZE,
+            FRAME_BATCH_MAX_AGE_MS,
+            FRAME_OVERFLOW_POLICY
+    );
+
+    // ✅ video_session INSERT/UPDATE는 DB 호출이라 이벤트 루프 밖에서 (순서 보장용 단일 스레드)
+    private final ExecutorService sessionExec = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "Video-Session");
+        t.setDaemon(true);
+        return t;
+    });
 
     private volatile boolean shutdownHookInstalled = false;
 
+    public VideoSocketService(RobotRegistry registry) {
+        this.registry = registry;
+        Metrics.register("video.frameWriter", frameWriter::stats);
+    }
+
+    private static FrameStore createFrameStore() {
+        if ("blob".equalsIgnoreCase(FRAME_STORE)) {
+            System.out.println("🎥 frame store = video_frame(LONGBLOB)");
+            return new VideoFrameRepo();
+        }
+        System.out.println("🎥 frame store = segment files (" + SEGMENT_DIR + ")");
+        return new SegmentFrameStore(Paths.get(SEGMENT_DIR), SEGMENT_MAX_BYTES, new VideoFrameRefRepo());
+    }
+
     public void setGuiService(GUISocketService guiService) {
         this.guiService = guiService;
     }
 
-    public void startServer() {
+    public void setGuiVideoService(GUIVideoSocketService guiVideoService) {
+        this.guiVideoService = guiVideoService;
+    }
+
+    public void startServer(NioServer nio) throws IOException {
         // ✅ 서버 강제종료/IDE stop 대비: 열려있는 세션 종료
         installShutdownHookOnce();
 
-        new Thread(() -> {
-            try {
-                serverSocket = new ServerSocket(PORT);
-                System.out.println("🎥 Video server started : " + PORT);
-
-                while (true) {
-                    Socket socket = serverSocket.accept();
-                    socket.setTcpNoDelay(true);
+        nio.listen(PORT, "video", () -> new LengthPrefixedCodec(MAX_FRAME_BYTES), new VideoHandler(),
+                READ_TIMEOUT_MS, 0);
+        System.out.println("🎥 Video server started : " + PORT);
+    }
 
-                    // ✅ 무한 대기 방지: 읽기 타임아웃 설정
-                    socket.setSoTimeout(READ_TIMEOUT_MS);
+    /** 연결별 세션 상태 (세션 시작/종료는 sessionExec에서 순서대로) */
+    private static final class VideoConn {
+        final String robotId;
+        volatile long sessionId = -1;
+        volatile String closeReason = "disconnected_or_timeout";
+        int frameIndex = 0; // 이벤트 루프 스레드 전용
 
-                    // ✅ 중복 연결 정리: 이전 소켓 닫기 + 세션 종료
-                    Socket prev = videoSocket;
-                    if (prev != null && !prev.isClosed()) {
-                        try {
-                            System.out.println("⚠ Previous video socket exists -> closing old connection");
-                            prev.close();
-                        } catch (Exception ignored) {}
-                    }
-                    endCurrentSession("replaced");
+        VideoConn(String robotId) {
+            this.robotId = robotId;
+        }
+    }
 
-                    System.out.println("🎥 Video connected: " + socket.getInetAddress());
+    private final class VideoHandler implements ConnectionHandler {
 
-                    // ✅ 새 세션 시작
-                    startNewSession("robot:6003");
+        @Override
+        public void onOpen(NioConnection conn) {
+            System.out.println("🎥 Video connected: " + conn.remoteAddress());
+        }
 
-                    handleVideo(socket);
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
+        /** 첫 프레임 HELLO면 그 robotId, 아니면 기본 로봇으로 묶고 세션 시작 */
+        private VideoConn bind(NioConnection conn, String robotId) {
+            String id = (robotId != null) ? robotId : RobotRegistry.DEFAULT_ROBOT_ID;
+            VideoConn vc = new VideoConn(id);
+            conn.attachment(vc);
+
+            // ✅ 중복 연결 정리: 같은 로봇의 이전 연결 닫기 (세션 종료는 그 연결의 onClose에서)
+            NioConnection prev = videoConns.put(id, conn);
+            if (prev != null && prev != conn && prev.isOpen()) {
+                System.out.println("⚠ Previous video socket exists (" + id + ") -> closing old connection");
+                VideoConn old = prev.attachment();
+                if (old != null) old.closeReason = "replaced";
+                prev.close();
             }
-        }, "Video-Accept").start();
-    }
 
-    private void handleVideo(Socket socket) {
-        new Thread(() -> {
-            DataInputStream in = null;
-            int frameIndex = 0;
+            // ✅ 새 세션 시작 (세션 id가 나오기 전 몇 프레임은 저장 없이 relay만)
+            sessionExec.execute(() -> vc.sessionId = startNewSession("robot:" + id + ":6003"));
+            return vc;
+        }
 
-            try {
-                videoSocket = socket;
-                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
-
-                while (true) {
-                    int len;
-
-                    try {
-                        len = in.readInt(); // big-endian
-                    } catch (SocketTimeoutException te) {
-                        // ✅ 전송이 멈췄는데 연결만 살아있는 상태 -> 세션 종료 처리
-                        System.out.println("⚠ video read timeout (" + READ_TIMEOUT_MS + "ms) -> end session");
-                        break;
-                    } catch (Exception e) {
-                        // 연결 종료 등
-                        break;
-                    }
-
-                    if (len <= 0 || len > 5_000_000) {
-                        System.out.println("⚠ invalid frame length: " + len);
-                        break;
-                    }
-
-                    byte[] jpg = new byte[len];
-                    in.readFully(jpg);
-
-                    long now = System.currentTimeMillis();
-                    long sid = currentSessionId;
-
-                    // ✅ DB(video_frame) 저장
-                    if (sid > 0) {
-                        insertFrame(sid, now, frameIndex, jpg);
-                    }
-
-                    // ✅ GUI로 전송 (기존 그대로)
-                    if (guiService != null && guiService.isConnected()) {
-                        String b64 = Base64.getEncoder().encodeToString(jpg);
-
-                        JsonObject msg = new JsonObject();
-                        msg.addProperty("type", "IMAGE");
-                        msg.addProperty("data", b64);
-
-                        guiService.sendToGui(msg.toString());
-                    }
-
-                    frameIndex++;
+        @Override
+        public void onFrame(NioConnection conn, byte[] jpg) {
+            VideoConn vc = conn.attachment();
+            if (vc == null) {
+                String helloId;
+                try {
+                    helloId = RobotRegistry.parseHello(jpg);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("⚠ video handshake rejected: " + e.getMessage());
+                    conn.close();
+                    return;
                 }
+                vc = bind(conn, helloId);
+                if (helloId != null) return;
+            }
 
-            } catch (Exception e) {
-                System.out.println("🎥 Video disconnected");
-            } finally {
-                try { if (in != null) in.close(); } catch (Exception ignored) {}
-                try { socket.close(); } catch (Exception ignored) {}
-                videoSocket = null;
+            long now = System.currentTimeMillis();
+            long sid = vc.sessionId;
 
-                // ✅ 연결 종료/timeout/에러 -> 세션 종료
-                endCurrentSession("disconnected_or_timeout");
+            // ✅ DB(video_frame) 저장: 큐에 넣고 바로 다음 프레임 읽기
+            if (sid > 0) {
+                frameWriter.submit(new VideoFrame(sid, now, vc.frameIndex, MIME, jpg));
             }
-        }, "Video-Conn").start();
-    }
 
-    private void insertFrame(long sessionId, long receivedAtMs, int frameIndex, byte[] jpg) {
-        try (Connection c = Db.getConnection();
-             PreparedStatement ps = c.prepareStatement(INSERT_FRAME_SQL)) {
+            // ✅ GUI로 전송 (GUI는 아직 카메라 한 화면 → 기본 로봇의 영상만)
+            //    - 바이너리 영상 채널(6004)에 붙은 GUI가 있으면 JPEG 그대로 relay
+            //    - 없으면 기존 방식(6001, Base64 IMAGE JSON) 유지
+            if (isGuiFocused(vc.robotId)) {
+                if (guiVideoService != null && guiVideoService.hasClients()) {
+                    guiVideoService.relay(jpg);
+                } else if (guiService != null && guiService.isConnected()) {
+                    String b64 = Base64.getEncoder().encodeToString(jpg);
+
+                    JsonObject msg = new JsonObject();
+                    msg.addProperty("type", "IMAGE");
+                    msg.addProperty("robotId", vc.robotId);
+                    msg.addProperty("data", b64);
+
+                    guiService.sendToGui("IMAGE", msg.toString());
+                }
+            }
 
-            ps.setLong(1, sessionId);
-            ps.setLong(2, receivedAtMs);
-            ps.setInt(3, frameIndex);
-            ps.setString(4, MIME);
-            ps.setBytes(5, jpg);
-            ps.setInt(6, jpg.length);
+            vc.frameIndex++;
+        }
 
-            ps.executeUpdate();
+        @Override
+        public void onIdle(NioConnection conn) {
+            // ✅ 전송이 멈췄는데 연결만 살아있는 상태 -> 세션 종료 처리
+            System.out.println("⚠ video read timeout (" + READ_TIMEOUT_MS + "ms) -> end session");
+            conn.close();
+        }
 
-        } catch (Exception e) {
-            System.out.println("⚠ DB insert video_frame failed: " + e.getMessage());
+        @Override
+        public void onClose(NioConnection conn) {
+            System.out.println("🎥 Video disconnected");
+
+            // ✅ 연결 종료/timeout/에러 -> 세션 종료
+            VideoConn vc = conn.attachment();
+            if (vc == null) return;
+            videoConns.remove(vc.robotId, conn);
+            sessionExec.execute(() -> endSession(vc.sessionId, vc.closeReason));
         }
     }
 
-    private void startNewSession(String note) {
+    /** GUI 카메라 화면에 띄울 로봇인지 (기본 로봇, 없으면 유일하게 접속한 로봇) */
+    private boolean isGuiFocused(String robotId) {
+        RobotSession focus = registry.resolve(null);
+        return focus == null || focus.robotId().equals(robotId);
+    }
+
+    private long startNewSession(String note) {
         long now = System.currentTimeMillis();
         long sid = sessionRepo.startSession(
                 now,
@@ -180,13 +231,17 @@ public class VideoSocketService {
                 CODEC,
                 note
         );
-        currentSessionId = sid;
-        System.out.println("✅ video_session started id=" + currentSessionId);
+        if (sid > 0) openSessionIds.add(sid);
+        System.out.println("✅ video_session started id=" + sid);
+        return sid;
+    }
+
+    private void endAllSessions(String reason) {
+        for (Long sid : openSessionIds) endSession(sid, reason);
     }
 
-    private void endCurrentSession(String reason) {
-        long sid = currentSessionId;
-        if (sid <= 0) return;
+    private void endSession(long sid, String reason) {
+        if (sid <= 0 || !openSessionIds.remove(sid)) return;
 
         long now = System.currentTimeMillis();
         try {
@@ -194,8 +249,6 @@ public class VideoSocketService {
             System.out.println("✅ video_session ended id=" + sid + " (" + reason + ")");
         } catch (Exception e) {
             System.out.println("⚠ endSession failed id=" + sid + " : " + e.getMessage());
-        } finally {
-            currentSessionId = -1;
         }
     }
 
@@ -205,12 +258,13 @@ public class VideoSocketService {
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try {
-                endCurrentSession("shutdown");
+                frameWriter.close(FRAME_WRITER_CLOSE_TIMEOUT_MS);
+                endAllSessions("shutdown");
             } catch (Exception ignored) {}
         }, "Video-ShutdownHook"));
     }
 
     public boolean isConnected() {
-        return videoSocket != null && !videoSocket.isClosed();
+        return !videoConns.isEmpty();
     }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package org.example.socket.nio;
+
+/**
+ * 포트별 프로토콜 처리기. 모든 콜백은 이벤트 루프 스레드에서 호출된다.
+ * ⚠️ 여기서 DB/HTTP 같은 블로킹 작업을 하면 모든 포트가 멈춘다 → 별도 executor로 넘길 것
+ */
+public interface ConnectionHandler {
+
+    default void onOpen(NioConnection conn) {}
+
+    void onFrame(NioConnection conn, byte[] frame);
+
+    default void onClose(NioConnection conn) {}
+
+    /** 송신 큐를 모두 소켓에 써서 비었을 때 (자체 대기열에서 다음 메시지를 채울 타이밍) */
+    default void onWritable(NioConnection conn) {}
+
+    /** readIdleTimeoutMs 동안 수신이 없을 때. 기본은 연결 종료 */
+    default void onIdle(NioConnection conn) {
+        conn.close();
+    }
+}
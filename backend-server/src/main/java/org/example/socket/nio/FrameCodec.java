@@ -0,0 +1,28 @@
+package org.example.socket.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 바이트 스트림 ↔ 프레임(메시지) 변환
+ * - 연결마다 새 인스턴스를 만든다 (디코딩 중간 상태를 가질 수 있음)
+ */
+public interface FrameCodec {
+
+    /**
+     * in(읽기 모드: position~limit이 미처리 바이트)에서 완성된 프레임 하나를 꺼낸다.
+     * - 완성된 프레임이 없으면 null (position은 그대로 두거나 스캔한 만큼만 기억)
+     * - 프로토콜 위반(길이 초과 등)이면 IOException → 연결 종료
+     */
+    byte[] decode(ByteBuffer in) throws IOException;
+
+    /**
+     * 다음 프레임을 받으려면 읽기 버퍼가 최소 몇 바이트여야 하는지 (버퍼 확장용)
+     */
+    int requiredCapacity(ByteBuffer in);
+
+    /**
+     * 전송용 버퍼 배열. payload는 복사하지 않고 wrap 해서 쓴다 (호출 후 payload 수정 금지)
+     */
+    ByteBuffer[] encode(byte[] payload);
+}
@@ -0,0 +1,46 @@
+package org.example.socket.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * [int len(big-endian)][len bytes] 프레임 - 이미지(6002) / 영상(6003, 6004) 프로토콜
+ */
+public class LengthPrefixedCodec implements FrameCodec {
+
+    private final int maxFrameBytes;
+
+    public LengthPrefixedCodec(int maxFrameBytes) {
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    @Override
+    public byte[] decode(ByteBuffer in) throws IOException {
+        if (in.remaining() < 4) return null;
+
+        int start = in.position();
+        int len = in.getInt(start);
+        if (len <= 0 || len > maxFrameBytes) {
+            throw new IOException("invalid frame length: " + len);
+        }
+        if (in.remaining() < 4 + len) return null;
+
+        byte[] frame = new byte[len];
+        in.get(start + 4, frame);
+        in.position(start + 4 + len);
+        return frame;
+    }
+
+    @Override
+    public int requiredCapacity(ByteBuffer in) {
+        if (in.remaining() < 4) return 4;
+        return 4 + in.getInt(in.position());
+    }
+
+    @Override
+    public ByteBuffer[] encode(byte[] payload) {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(0, payload.length);
+        return new ByteBuffer[]{header, ByteBuffer.wrap(payload)};
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.socket.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 줄 단위(\n) 텍스트 프레임 - 로봇(6000) / GUI(6001)의 JSON 한 줄 프로토콜
+ * - \r\n 도 허용 (\r 제거)
+ */
+public class LineCodec implements FrameCodec {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final int maxLineBytes;
+    // 이미 \n 없음을 확인한 구간은 다시 스캔하지 않음 (position 기준 상대 오프셋)
+    private int scanned = 0;
+
+    public LineCodec(int maxLineBytes) {
+        this.maxLineBytes = maxLineBytes;
+    }
+
+    @Override
+    public byte[] decode(ByteBuffer in) throws IOException {
+        int start = in.position();
+        int limit = in.limit();
+
+        for (int i = start + scanned; i < limit; i++) {
+            if (in.get(i) != '\n') continue;
+
+            int end = i;
+            if (end > start && in.get(end - 1) == '\r') end--;
+
+            byte[] line = new byte[end - start];
+            in.get(start, line);
+            in.position(i + 1);
+            scanned = 0;
+            return line;
+        }
+
+        scanned = limit - start;
+        if (scanned > maxLineBytes) {
+            throw new IOException("line too long (>" + maxLineBytes + " bytes)");
+        }
+        return null;
+    }
+
+    @Override
+    public int requiredCapacity(ByteBuffer in) {
+        // 줄 길이는 미리 알 수 없으니 지금보다 조금 더
+        return Math.min(maxLineBytes + 2, Math.max(in.capacity(), in.remaining() * 2));
+    }
+
+    @Override
+    public ByteBuffer[] encode(byte[] payload) {
+        return new ByteBuffer[]{ByteBuffer.wrap(payload), ByteBuffer.wrap(NEWLINE)};
+    }
+}
@@ -0,0 +1,336 @@
+package org.example.socket.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NioServer가 관리하는 연결 하나
+ *
+ * - 읽기 버퍼: 연결마다 하나 (프레임 길이에 맞춰 커졌다가 비면 다시 작게)
+ * - 쓰기: 어느 스레드에서든 호출 가능 → 프레임 단위로 큐에 넣고 이벤트 루프가 비움
+ *   · write(): 큐에 넣기만, flush(): 루프에 쓰기 요청, send() = write + flush
+ *   · 여러 프레임을 연달아 write() 후 flush() 한 번 → 루프가 gathering write 한 번(syscall 1회)으로 묶어 보냄
+ * - 백프레셔:
+ *   · 송신: 아직 못 보낸 바이트가 maxPendingBytes를 넘으면 send()가 false (호출자가 버릴지 결정)
+ *   · 수신: pauseReading()이면 소켓을 더 읽지 않음 → TCP 윈도우가 차서 보내는 쪽이 느려짐
+ */
+public final class NioConnection {
+
+    private static final int INITIAL_READ_BUFFER = 16 * 1024;
+    // gathering write 한 번에 묶을 최대 버퍼 수 / 바이트
+    private static final int MAX_GATHER_BUFFERS = 64;
+    private static final long MAX_GATHER_BYTES = 256 * 1024;
+
+    /** 큐에 들어간 프레임 하나 (헤더+본문 버퍼, 큐에 넣은 시각) */
+    private record Outbound(ByteBuffer[] buffers, long enqueuedAtNanos) {
+        boolean done() {
+            return !buffers[buffers.length - 1].hasRemaining();
+        }
+    }
+
+    private final NioServer server;
+    private final NioServer.Listener listener;
+    private final SocketChannel channel;
+    private final FrameCodec codec;
+    private final String remote;
+
+    private SelectionKey key;
+    private ByteBuffer readBuf = ByteBuffer.allocate(INITIAL_READ_BUFFER);   // 쓰기 모드로 유지
+    private boolean readPaused;                                              // 루프 스레드 전용
+    long lastReadAtMs = System.currentTimeMillis();
+
+    // 프레임(헤더+본문 버퍼 묶음) 단위 큐 → 여러 스레드가 send 해도 프레임끼리 섞이지 않음
+    private final ConcurrentLinkedQueue<Outbound> outbound = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER_BUFFERS];   // 루프 스레드 전용
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final AtomicLong framesIn = new AtomicLong();
+    private final AtomicLong framesOut = new AtomicLong();
+    private final AtomicLong bytesOut = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile boolean closed;
+    private volatile Object attachment;
+
+    NioConnection(NioServer server, NioServer.Listener listener, SocketChannel channel) {
+        this.server = server;
+        this.listener = listener;
+        this.channel = channel;
+        this.codec = listener.codecFactory().get();
+
+        Socket s = channel.socket();
+        this.remote = String.valueOf(s.getInetAddress()) + ":" + s.getPort();
+    }
+
+    void attach(SelectionKey key) {
+        this.key = key;
+    }
+
+    // =========================================================
+    // 공개 API (아무 스레드)
+    // =========================================================
+
+    /**
+     * 프레임 하나 전송 (write + flush)
+     * @return 큐에 들어갔으면 true, 연결이 닫혔거나 송신 대기 한도를 넘으면 false
+     */
+    public boolean send(byte[] payload) {
+        boolean ok = write(payload);
+        if (ok) flush();
+        return ok;
+    }
+
+    /**
+     * 프레임 하나를 송신 큐에 넣기만 한다 (payload는 복사하지 않으므로 호출 후 수정 금지)
+     * - 묶어 보낼 프레임을 다 넣은 뒤 flush()를 한 번 호출할 것
+     * @return 큐에 들어갔으면 true, 연결이 닫혔거나 송신 대기 한도를 넘으면 false
+     */
+    public boolean write(byte[] payload) {
+        if (closed || payload == null) return false;
+
+        ByteBuffer[] frame = codec.encode(payload);
+        long size = 0;
+        for (ByteBuffer b : frame) size += b.remaining();
+
+        long limit = listener.maxPendingBytes();
+        if (limit > 0 && pendingBytes.get() + size > limit) {
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        pendingBytes.addAndGet(size);
+        outbound.add(new Outbound(frame, System.nanoTime()));
+        return true;
+    }
+
+    /** 지금까지 write()한 프레임을 이벤트 루프가 소켓에 쓰도록 요청 */
+    public void flush() {
+        // 루프 스레드 안(콜백)에서 불려도 바로 쓰지 않고 다음 차례에 → onWritable 재귀 방지
+        if (flushScheduled.compareAndSet(false, true)) {
+            server.executeLater(() -> {
+                flushScheduled.set(false);
+                flushOutbound();
+            });
+        }
+    }
+
+    /** 아직 소켓에 쓰지 못한 바이트 수 */
+    public long pendingBytes() {
+        return pendingBytes.get();
+    }
+
+    public void pauseReading() {
+        server.execute(() -> {
+            if (readPaused || closed) return;
+            readPaused = true;
+            setInterest(SelectionKey.OP_READ, false);
+        });
+    }
+
+    public void resumeReading() {
+        server.execute(() -> {
+            if (!readPaused || closed) return;
+            readPaused = false;
+            setInterest(SelectionKey.OP_READ, true);
+            // 멈춘 동안 버퍼에 이미 들어와 있던 프레임부터 처리
+            try {
+                decodeBuffered();
+            } catch (IOException e) {
+                closeNow(e.getMessage());
+            }
+        });
+    }
+
+    public void close() {
+        server.execute(() -> closeNow(null));
+    }
+
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    public String remoteAddress() {
+        return remote;
+    }
+
+    public int localPort() {
+        return listener.port();
+    }
+
+    /** 핸들러가 연결별 상태를 붙여두는 용도 */
+    @SuppressWarnings("unchecked")
+    public <T> T attachment() {
+        return (T) attachment;
+    }
+
+    public void attachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    public long bytesSent() {
+        return bytesOut.get();
+    }
+
+    public String stats() {
+        return String.format("in=%d out=%d bytesSent=%d rejected=%d pending=%dB",
+                framesIn.get(), framesOut.get(), bytesOut.get(), rejected.get(), pendingBytes.get());
+    }
+
+    // =========================================================
+    // 이벤트 루프 스레드 전용
+    // =========================================================
+
+    ConnectionHandler handler() {
+        return listener.handler();
+    }
+
+    long readIdleTimeoutMs() {
+        return listener.readIdleTimeoutMs();
+    }
+
+    void onReadable() throws IOException {
+        int n = channel.read(readBuf);
+        if (n < 0) throw new EOFException("closed by peer");
+        if (n == 0) return;
+
+        lastReadAtMs = System.currentTimeMillis();
+        server.countRead(n);
+        decodeBuffered();
+    }
+
+    private void decodeBuffered() throws IOException {
+        readBuf.flip();
+        try {
+            while (!readPaused && !closed) {
+                byte[] frame = codec.decode(readBuf);
+                if (frame == null) {
+                    growIfNeeded();
+                    break;
+                }
+                framesIn.incrementAndGet();
+                try {
+                    listener.handler().onFrame(this, frame);
+                } catch (Exception e) {
+                    System.out.println("⚠ [" + listener.name() + "] handler error: " + e.getMessage());
+                }
+            }
+        } finally {
+            readBuf.compact();
+        }
+
+        // 큰 프레임 때문에 커졌던 버퍼는 비었을 때 원래 크기로
+        if (readBuf.position() == 0 && readBuf.capacity() > INITIAL_READ_BUFFER * 4) {
+            readBuf = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+        }
+    }
+
+    /** readBuf(읽기 모드)가 다음 프레임을 담기에 작으면 키운다 */
+    private void growIfNeeded() {
+        int need = codec.requiredCapacity(readBuf);
+        if (need <= readBuf.capacity()) return;
+
+        ByteBuffer bigger = ByteBuffer.allocate(need);
+        bigger.put(readBuf);
+        bigger.flip();
+        readBuf = bigger;
+    }
+
+    void flushOutbound() {
+        if (closed) return;
+        WriteStats ws = listener.writeStats();
+        boolean wrote = false;
+
+        try {
+            while (!outbound.isEmpty()) {
+                // 큐 앞쪽 프레임들을 버퍼 배열 하나로 모아서 gathering write 한 번
+                int count = 0;
+                long bytes = 0;
+                for (Outbound o : outbound) {
+                    ByteBuffer[] bufs = o.buffers();
+                    if (count > 0 && (count + bufs.length > MAX_GATHER_BUFFERS || bytes >= MAX_GATHER_BYTES)) break;
+                    for (ByteBuffer b : bufs) {
+                        gather[count++] = b;
+                        bytes += b.remaining();
+                    }
+                }
+
+                long n = channel.write(gather, 0, count);
+                ws.syscalls.incrementAndGet();
+                Arrays.fill(gather, 0, count, null);
+
+                if (n > 0) {
+                    wrote = true;
+                    pendingBytes.addAndGet(-n);
+                    bytesOut.addAndGet(n);
+                    ws.bytes.addAndGet(n);
+                    server.countWritten(n);
+                }
+
+                // 다 써진 프레임은 큐에서 빼고 지연 기록
+                long now = System.nanoTime();
+                Outbound head;
+                while ((head = outbound.peek()) != null && head.done()) {
+                    outbound.poll();
+                    framesOut.incrementAndGet();
+                    ws.frames.incrementAndGet();
+                    ws.latency.recordNanos(now - head.enqueuedAtNanos());
+                }
+
+                if (n < bytes) {
+                    // 소켓 송신 버퍼가 찼음 → writable 될 때 이어서
+                    setInterest(SelectionKey.OP_WRITE, true);
+                    return;
+                }
+            }
+            setInterest(SelectionKey.OP_WRITE, false);
+        } catch (IOException e) {
+            closeNow(e.getMessage());
+            return;
+        }
+
+        if (wrote) {
+            try {
+                listener.handler().onWritable(this);
+            } catch (Exception e) {
+                System.out.println("⚠ [" + listener.name() + "] onWritable error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void setInterest(int op, boolean on) {
+        if (key == null || !key.isValid()) return;
+        int ops = key.interestOps();
+        int next = on ? (ops | op) : (ops & ~op);
+        if (next != ops) key.interestOps(next);
+    }
+
+    void closeNow(String reason) {
+        if (closed) return;
+        closed = true;
+
+        if (key != null) key.cancel();
+        try { channel.close(); } catch (IOException ignored) {}
+
+        outbound.clear();
+        pendingBytes.set(0);
+        server.onClosed(this);
+
+        if (reason != null) {
+            System.out.println("🔌 [" + listener.name() + "] " + remote + " closed: " + reason);
+        }
+        try {
+            listener.handler().onClose(this);
+        } catch (Exception e) {
+            System.out.println("⚠ [" + listener.name() + "] onClose error: " + e.getMessage());
+        }
+    }
+}
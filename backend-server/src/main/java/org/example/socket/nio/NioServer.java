@@ -0,0 +1,227 @@
+package org.example.socket.nio;
+
+import org.example.metrics.Metrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 셀렉터 하나로 여러 포트/연결을 처리하는 논블로킹 서버 (이벤트 루프 스레드 1개)
+ *
+ * - listen(port, codec, handler ...)으로 포트를 등록 → 6000~6004 전부 같은 루프에서 처리
+ * - 연결당 스레드 없음: accept/read/write 모두 루프 스레드에서 non-blocking으로
+ * - 다른 스레드에서 하는 작업(send, close, 읽기 멈춤/재개)은 execute()로 루프에 넘김
+ * - readIdleTimeoutMs: 그 시간 동안 수신이 없으면 handler.onIdle() (기존 setSoTimeout 대체)
+ */
+public class NioServer {
+
+    private static final long SELECT_TIMEOUT_MS = 1_000;
+    private static final long IDLE_CHECK_INTERVAL_MS = 1_000;
+
+    /** 포트 하나의 설정 */
+    record Listener(int port,
+                    String name,
+                    Supplier<FrameCodec> codecFactory,
+                    ConnectionHandler handler,
+                    long readIdleTimeoutMs,
+                    long maxPendingBytes,
+                    WriteStats writeStats) {}
+
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<NioConnection> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile Thread loopThread;
+    private volatile boolean running = true;
+    private long lastIdleCheckMs = 0;
+
+    // ===== metrics =====
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public NioServer() throws IOException {
+        this.selector = Selector.open();
+        Metrics.register("nio", () -> String.format("conns=%d accepted=%d read=%dB written=%dB",
+                connections.size(), accepted.get(), bytesRead.get(), bytesWritten.get()));
+    }
+
+    /**
+     * 포트 등록 (start 전/후 모두 가능)
+     * @param readIdleTimeoutMs 0이면 타임아웃 없음
+     * @param maxPendingBytes   연결당 송신 대기 한도, 0이면 무제한
+     */
+    public void listen(int port,
+                       String name,
+                       Supplier<FrameCodec> codecFactory,
+                       ConnectionHandler handler,
+                       long readIdleTimeoutMs,
+                       long maxPendingBytes) throws IOException {
+
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.configureBlocking(false);
+        server.bind(new InetSocketAddress(port));
+
+        WriteStats writeStats = new WriteStats();
+        Listener listener = new Listener(port, name, codecFactory, handler, readIdleTimeoutMs, maxPendingBytes, writeStats);
+        Metrics.register("nio." + name, writeStats::summary);
+        execute(() -> {
+            try {
+                server.register(selector, SelectionKey.OP_ACCEPT, listener);
+            } catch (IOException e) {
+                System.out.println("⚠ [" + name + "] register failed: " + e.getMessage());
+            }
+        });
+    }
+
+    public synchronized void start() {
+        if (loopThread != null) return;
+        loopThread = new Thread(this::runLoop, "Nio-EventLoop");
+        loopThread.start();
+        System.out.println("🔌 NIO event loop started");
+    }
+
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /** 루프 스레드에서 실행 (이미 루프 스레드면 바로 실행) */
+    public void execute(Runnable task) {
+        if (Thread.currentThread() == loopThread) {
+            task.run();
+            return;
+        }
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /** 항상 루프의 다음 차례에 실행 (콜백 안에서 재귀 호출을 피할 때) */
+    void executeLater(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    public int connectionCount() {
+        return connections.size();
+    }
+
+    // =========================================================
+    // 이벤트 루프
+    // =========================================================
+
+    private void runLoop() {
+        try {
+            while (running) {
+                selector.select(SELECT_TIMEOUT_MS);
+                runTasks();
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept((ServerSocketChannel) key.channel(), (Listener) key.attachment());
+                        continue;
+                    }
+
+                    NioConnection conn = (NioConnection) key.attachment();
+                    try {
+                        if (key.isReadable()) conn.onReadable();
+                        if (key.isValid() && key.isWritable()) conn.flushOutbound();
+                    } catch (IOException e) {
+                        conn.closeNow(e.getMessage());
+                    } catch (Exception e) {
+                        System.out.println("⚠ nio loop error: " + e.getMessage());
+                        conn.closeNow("error");
+                    }
+                }
+
+                checkIdle();
+            }
+        } catch (ClosedSelectorException ignored) {
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (NioConnection c : connections) c.closeNow("shutdown");
+            try { selector.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    private void runTasks() {
+        Runnable r;
+        while ((r = tasks.poll()) != null) {
+            try {
+                r.run();
+            } catch (Exception e) {
+                System.out.println("⚠ nio task error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel server, Listener listener) {
+        SocketChannel ch;
+        try {
+            while ((ch = server.accept()) != null) {
+                ch.configureBlocking(false);
+                ch.socket().setTcpNoDelay(true);
+
+                NioConnection conn = new NioConnection(this, listener, ch);
+                conn.attach(ch.register(selector, SelectionKey.OP_READ, conn));
+                connections.add(conn);
+                accepted.incrementAndGet();
+
+                try {
+                    listener.handler().onOpen(conn);
+                } catch (Exception e) {
+                    System.out.println("⚠ [" + listener.name() + "] onOpen error: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("⚠ [" + listener.name() + "] accept failed: " + e.getMessage());
+        }
+    }
+
+    private void checkIdle() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheckMs < IDLE_CHECK_INTERVAL_MS) return;
+        lastIdleCheckMs = now;
+
+        for (NioConnection c : connections) {
+            long timeout = c.readIdleTimeoutMs();
+            if (timeout <= 0 || now - c.lastReadAtMs <= timeout) continue;
+
+            c.lastReadAtMs = now; // 같은 idle 구간에서 반복 호출 방지
+            try {
+                c.handler().onIdle(c);
+            } catch (Exception e) {
+                System.out.println("⚠ nio onIdle error: " + e.getMessage());
+            }
+        }
+    }
+
+    void onClosed(NioConnection conn) {
+        connections.remove(conn);
+    }
+
+    void countRead(long n) {
+        bytesRead.addAndGet(n);
+    }
+
+    void countWritten(long n) {
+        bytesWritten.addAndGet(n);
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.socket.nio;
+
+import org.example.metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 포트(리스너)별 송신 통계
+ * - latency: send/write로 큐에 넣은 시점 → 마지막 바이트가 소켓에 써진 시점
+ * - frames/syscall: 한 번의 gathering write에 평균 몇 프레임이 묶였는지 (배치 효과)
+ */
+final class WriteStats {
+
+    final AtomicLong bytes = new AtomicLong();
+    final AtomicLong frames = new AtomicLong();
+    final AtomicLong syscalls = new AtomicLong();
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    String summary() {
+        long f = frames.get();
+        long s = syscalls.get();
+        return String.format("bytesSent=%d frames=%d writes=%d frames/write=%.2f latency{%s}",
+                bytes.get(), f, s, s == 0 ? 0.0 : (double) f / s, latency.summary());
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.state;
+
+import java.util.EnumMap;
+
+/**
+ * 로봇 한 대의 채널별 최근 시계열 (메모리 전용)
+ *
+ * - StateUpdater.applySensor가 로봇에서 실제로 받은 값만 기록 (DEMO 보정값은 넣지 않음)
+ * - "CO2가 오르는 중인가", "최근 30초 PM2.5 평균" 같은 추세를 DB 조회 없이 계산
+ */
+public class SensorHistory {
+
+    public enum Channel { FLAME, CO2, PM25, PM10, ULTRASONIC }
+
+    // 로봇 센서 주기(수 Hz) 기준 윈도우를 넉넉히 담는 크기
+    private static final int CAPACITY = 1_024;
+    private static final long WINDOW_MS = 30_000;
+    private static final long EWMA_TAU_MS = 10_000;
+
+    private final EnumMap<Channel, SensorSeries> series = new EnumMap<>(Channel.class);
+
+    public SensorHistory() {
+        for (Channel c : Channel.values()) {
+            series.put(c, new SensorSeries(CAPACITY, WINDOW_MS, EWMA_TAU_MS));
+        }
+    }
+
+    public void record(Channel channel, long atMs, double value) {
+        series.get(channel).append(atMs, value);
+    }
+
+    public SensorSeries.Window window(Channel channel, long nowMs) {
+        return series.get(channel).window(nowMs);
+    }
+
+    public SensorSeries.Window window(Channel channel) {
+        return window(channel, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.state;
+
+/**
+ * 센서 채널 하나의 최근 값 링버퍼 + 슬라이딩 윈도우 집계
+ *
+ * - (시각, 값)을 primitive 배열에 보관 → append마다 할당 없음
+ * - 윈도우(windowMs)를 벗어난 값은 append/조회 시 앞에서부터 빠짐
+ * - mean : 윈도우 합계를 증분 갱신 → O(1)
+ * - min/max : 단조 덱(monotonic deque) → append 분할상환 O(1), 조회 O(1)
+ * - ewma : 시간 간격 기반 지수이동평균 (샘플 주기가 들쭉날쭉해도 tauMs 기준으로 동일하게 감쇠)
+ *
+ * 여러 스레드(이벤트 루프, 스케줄러)가 접근하므로 this로 동기화 (연산이 전부 짧음)
+ */
+public class SensorSeries {
+
+    /**
+     * 윈도우 집계 결과 (값 없으면 count=0, 나머지 NaN)
+     * @param ratePerSec 윈도우 첫 값 → 마지막 값의 초당 변화량 (값 2개 미만이면 NaN)
+     */
+    public record Window(int count, long windowMs,
+                         double last, double mean, double min, double max,
+                         double ewma, double ratePerSec) {
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+    }
+
+    private final int capacity;
+    private final long windowMs;
+    private final double tauMs;
+
+    // 링버퍼: seq % capacity 위치에 저장. [headSeq, tailSeq)가 윈도우 안의 값
+    private final long[] ts;
+    private final double[] values;
+    private long headSeq = 0;
+    private long tailSeq = 0;
+
+    // 단조 덱: 값이 아니라 seq를 저장 (앞이 윈도우의 min/max)
+    private final long[] minDeque;
+    private final long[] maxDeque;
+    private long minHead, minTail, maxHead, maxTail;
+
+    private double sum = 0.0;
+
+    private double ewma = Double.NaN;
+    private long ewmaTs = 0;
+
+    /**
+     * @param capacity 보관할 최대 샘플 수 (가득 차면 윈도우 안이라도 가장 오래된 값부터 버림)
+     * @param windowMs 집계 윈도우 길이
+     * @param tauMs    EWMA 시간상수 (이 시간만큼 지나면 이전 값 영향이 1/e로 줄어듦)
+     */
+    public SensorSeries(int capacity, long windowMs, long tauMs) {
+        if (capacity <= 0 || windowMs <= 0 || tauMs <= 0) {
+            throw new IllegalArgumentException("capacity/windowMs/tauMs must be > 0");
+        }
+        this.capacity = capacity;
+        this.windowMs = windowMs;
+        this.tauMs = tauMs;
+        this.ts = new long[capacity];
+        this.values = new double[capacity];
+        this.minDeque = new long[capacity];
+        this.maxDeque = new long[capacity];
+    }
+
+    /** 새 샘플 추가 (NaN/무한대는 무시) */
+    public synchronized void append(long atMs, double v) {
+        if (!Double.isFinite(v)) return;
+
+        evictOlderThan(atMs - windowMs);
+        if (tailSeq - headSeq == capacity) evictHead();
+
+        long seq = tailSeq++;
+        int i = slot(seq);
+        ts[i] = atMs;
+        values[i] = v;
+        sum += v;
+
+        // min 덱: 새 값보다 크거나 같은 뒤쪽 값은 더 이상 최소가 될 수 없음
+        while (minTail > minHead && values[slot(minDeque[slot(minTail - 1)])] >= v) minTail--;
+        minDeque[slot(minTail++)] = seq;
+
+        // max 덱: 새 값보다 작거나 같은 뒤쪽 값은 더 이상 최대가 될 수 없음
+        while (maxTail > maxHead && values[slot(maxDeque[slot(maxTail - 1)])] <= v) maxTail--;
+        maxDeque[slot(maxTail++)] = seq;
+
+        if (Double.isNaN(ewma)) {
+            ewma = v;
+        } else {
+            long dt = Math.max(0, atMs - ewmaTs);
+            double alpha = 1.0 - Math.exp(-dt / tauMs);
+            ewma += alpha * (v - ewma);
+        }
+        ewmaTs = atMs;
+    }
+
+    /** nowMs 기준 윈도우 집계 (윈도우를 벗어난 값은 여기서도 정리) */
+    public synchronized Window window(long nowMs) {
+        evictOlderThan(nowMs - windowMs);
+
+        int n = (int) (tailSeq - headSeq);
+        if (n == 0) {
+            return new Window(0, windowMs, Double.NaN, Double.NaN, Double.NaN, Double.NaN, ewma, Double.NaN);
+        }
+
+        int first = slot(headSeq);
+        int last = slot(tailSeq - 1);
+        double rate = Double.NaN;
+        long dt = ts[last] - ts[first];
+        if (n >= 2 && dt > 0) rate = (values[last] - values[first]) * 1000.0 / dt;
+
+        return new Window(
+                n,
+                windowMs,
+                values[last],
+                sum / n,
+                values[slot(minDeque[slot(minHead)])],
+                values[slot(maxDeque[slot(maxHead)])],
+                ewma,
+                rate
+        );
+    }
+
+    public synchronized int size() {
+        return (int) (tailSeq - headSeq);
+    }
+
+    private void evictOlderThan(long cutoffMs) {
+        while (tailSeq > headSeq && ts[slot(headSeq)] < cutoffMs) evictHead();
+    }
+
+    private void evictHead() {
+        long seq = headSeq++;
+        sum -= values[slot(seq)];
+        if (minTail > minHead && minDeque[slot(minHead)] == seq) minHead++;
+        if (maxTail > maxHead && maxDeque[slot(maxHead)] == seq) maxHead++;
+
+        // 비면 누적 오차 제거
+        if (headSeq == tailSeq) sum = 0.0;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % capacity);
+    }
+}
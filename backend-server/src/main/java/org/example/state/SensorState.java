@@ -3,34 +3,71 @@ package org.example.state;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 로봇 한 대의 최신 센서 상태
+ *
+ * - 값은 전부 primitive로 보관 (미수신 = NaN / 시각 0 / 불리언 UNKNOWN) → 센서 갱신마다 Double/Long 박싱 없음
+ * - 쓰기는 StampedLock 쓰기 락으로 묶고, 읽기는 낙관적 읽기(seqlock) → 읽는 쪽은 락을 잡지 않음
+ * - 여러 값을 함께 봐야 하면 getXxx()를 여러 번 부르지 말고 snapshot() 한 번으로
+ *   (getXxx() 사이에 센서 패킷이 끼어들면 pm25는 새 값, pm10은 옛 값처럼 섞일 수 있음)
+ * - 기존 getXxx()는 호환용: 미수신이면 null 반환
+ * - 쓰기마다 바뀐 채널을 dirty 비트로 남기고 changeListener를 깨움 → 스냅샷 발행은 폴링 없이 변경 기반
+ * - 패킷 하나에 여러 채널이 들어오면 setXxx()를 여러 번 부르지 말고 Update에 모아 apply() 한 번으로
+ *   (락 1번 / version 1번 / 알림 1번 → snapshot()에 co2는 새 패킷, dust는 이전 패킷처럼 섞이지 않음)
+ */
 public class SensorState {
 
-    // ===== sensors (nullable 권장: 미수신/null 구분) =====
-    private volatile Double ultrasonic;     // cm
+    // 불리언 3상태 (미수신 / false / true)
+    public static final byte UNKNOWN = -1;
+    public static final byte FALSE = 0;
+    public static final byte TRUE = 1;
+
+    // 시각 미수신
+    public static final long NO_TS = 0L;
+
+    // 변경 채널 비트 (takeDirty()로 꺼내 씀)
+    public static final int CH_FLAME = 1;
+    public static final int CH_CO2 = 1 << 1;
+    public static final int CH_DUST = 1 << 2;
+    public static final int CH_PIR = 1 << 3;
+    public static final int CH_ULTRASONIC = 1 << 4;
+    public static final int CH_VISION = 1 << 5;
+    public static final int CH_STT = 1 << 6;
+
+    private final StampedLock lock = new StampedLock();
+
+    // ===== sensors (미수신: NaN / UNKNOWN) =====
+    // 쓰기는 lock 안에서만. volatile이라 단일 값 getter는 락 없이 읽어도 안전
+    private volatile long version = 0;
+    private volatile int dirty = 0;                     // 마지막 takeDirty() 이후 바뀐 채널
+    private volatile Runnable changeListener;
+
+    private volatile double ultrasonic = Double.NaN;    // cm
     private volatile String lastStt;
     private volatile long lastSttTime;
 
-    private volatile Double flame;          // 0~1 or raw
-    private volatile Double co2;            // ppm (gas 제거, co2로 단일화)
-    private volatile Double pm25;
-    private volatile Double pm10;
+    private volatile double flame = Double.NaN;         // 0~1 or raw
+    private volatile double co2 = Double.NaN;           // ppm (gas 제거, co2로 단일화)
+    private volatile double pm25 = Double.NaN;
+    private volatile double pm10 = Double.NaN;
 
-    private volatile Boolean pir;           // PIR true/false/null
-    private volatile Boolean visionPerson;  // YOLO person true/false/null
+    private volatile byte pir = UNKNOWN;                // PIR
+    private volatile byte visionPerson = UNKNOWN;       // YOLO person
 
-    private volatile Double visionConf;
-    private volatile Long visionTs;
+    private volatile double visionConf = Double.NaN;
+    private volatile long visionTs = NO_TS;
 
-    // ===== timestamps (stale 판단용) =====
-    private volatile long lastSensorUpdateAtMs = 0;
-    private volatile Long flameTs;
-    private volatile Long co2Ts;
-    private volatile Long dustTs;
-    private volatile Long pirTs;
-    private volatile Long ultrasonicTs;
+    // ===== timestamps (stale 판단용, 미수신 = NO_TS) =====
+    private volatile long lastSensorUpdateAtMs = NO_TS;
+    private volatile long flameTs = NO_TS;
+    private volatile long co2Ts = NO_TS;
+    private volatile long dustTs = NO_TS;
+    private volatile long pirTs = NO_TS;
+    private volatile long ultrasonicTs = NO_TS;
 
-    /* LLM */
+    /* LLM (센서와 무관 → 스냅샷/락 밖) */
     private volatile String lastLlmRaw;
     private volatile Long lastLlmTs;
 
@@ -38,9 +75,255 @@ public class SensorState {
     // "ROBOT" | "DEMO" | "CACHE" | null
     private volatile String dustSource;
 
+    // ===== 최근 시계열 (추세/윈도우 집계용) =====
+    private final SensorHistory history = new SensorHistory();
+
+    /**
+     * 한 시점의 일관된 상태 (불변)
+     * - 값 의미는 SensorState 필드와 같음: NaN / NO_TS / UNKNOWN = 미수신
+     * - version은 쓰기마다 1씩 증가 → 이전 스냅샷과 비교해 변경 여부 판단 가능
+     */
+    public record Snapshot(
+            long version,
+            double flame, long flameTs,
+            double co2, long co2Ts,
+            double pm25, double pm10, long dustTs, String dustSource,
+            byte pir, long pirTs,
+            double ultrasonic, long ultrasonicTs,
+            byte visionPerson, double visionConf, long visionTs,
+            String lastStt, long lastSttTime,
+            long lastSensorUpdateAtMs
+    ) {
+        public static boolean has(double v) {
+            return !Double.isNaN(v);
+        }
+
+        public static double or(double v, double fallback) {
+            return Double.isNaN(v) ? fallback : v;
+        }
+
+        /** ts가 now 기준 staleMs 이내인지 (미수신이면 false) */
+        public static boolean fresh(long ts, long now, long staleMs) {
+            return ts != NO_TS && (now - ts) <= staleMs;
+        }
+
+        public boolean pirDetected() {
+            return pir == TRUE;
+        }
+
+        public boolean isVisionPerson() {
+            return visionPerson == TRUE;
+        }
+
+        public boolean hasStt() {
+            return lastStt != null && !lastStt.isBlank();
+        }
+    }
+
+    /**
+     * 일관된 상태 한 벌 (객체 1개만 할당)
+     * - 보통은 락 없이 읽고 끝남. 읽는 도중 쓰기가 끼어들었을 때만 읽기 락으로 다시 읽음
+     */
+    public Snapshot snapshot() {
+        long stamp = lock.tryOptimisticRead();
+        Snapshot s = read();
+        if (lock.validate(stamp)) return s;
+
+        stamp = lock.readLock();
+        try {
+            return read();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Snapshot read() {
+        return new Snapshot(
+                version,
+                flame, flameTs,
+                co2, co2Ts,
+                pm25, pm10, dustTs, dustSource,
+                pir, pirTs,
+                ultrasonic, ultrasonicTs,
+                visionPerson, visionConf, visionTs,
+                lastStt, lastSttTime,
+                lastSensorUpdateAtMs
+        );
+    }
+
+    /** 채널별 최근 시계열 (StateUpdater가 로봇 수신값을 기록) */
+    public SensorHistory history() {
+        return history;
+    }
+
+    /**
+     * 값이 바뀔 때마다 호출될 리스너 (쓴 스레드에서 바로 호출 → 빨리 끝나야 함, 보통 스케줄만 걸고 반환)
+     */
+    public void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    /** 마지막 호출 이후 바뀐 채널 비트(CH_*)를 꺼내고 비운다 */
+    public int takeDirty() {
+        long stamp = lock.writeLock();
+        try {
+            int d = dirty;
+            dirty = 0;
+            return d;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** 쓰기마다 증가하는 버전 (변경 감지용) */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * 패킷 하나에서 나온 값 묶음 (StateUpdater가 채우고 apply()로 한 번에 반영)
+     * - 채우지 않은 채널은 그대로 둠
+     */
+    public static final class Update {
+        private int channels = 0;
+        private double flame = Double.NaN;
+        private double co2 = Double.NaN;
+        private double pm25 = Double.NaN;
+        private double pm10 = Double.NaN;
+        private String dustSource;
+        private byte pir = UNKNOWN;
+        private double ultrasonic = Double.NaN;
+        private byte visionPerson = UNKNOWN;
+        private double visionConf = Double.NaN;
+
+        public Update flame(double v) {
+            flame = v;
+            channels |= CH_FLAME;
+            return this;
+        }
+
+        public Update co2(double v) {
+            co2 = v;
+            channels |= CH_CO2;
+            return this;
+        }
+
+        /** setDust와 같음: pm25/pm10/source를 함께 덮어씀 (NaN = 미수신) */
+        public Update dust(double pm25, double pm10, String source) {
+            this.pm25 = pm25;
+            this.pm10 = pm10;
+            this.dustSource = source;
+            channels |= CH_DUST;
+            return this;
+        }
+
+        public Update dust(Double pm25, Double pm10, String source) {
+            return dust(unboxed(pm25), unboxed(pm10), source);
+        }
+
+        public Update pir(boolean v) {
+            pir = tri(v);
+            channels |= CH_PIR;
+            return this;
+        }
+
+        public Update ultrasonic(double v) {
+            ultrasonic = v;
+            channels |= CH_ULTRASONIC;
+            return this;
+        }
+
+        public Update visionPerson(boolean v) {
+            visionPerson = tri(v);
+            channels |= CH_VISION;
+            return this;
+        }
+
+        public Update visionConf(double v) {
+            visionConf = v;
+            channels |= CH_VISION;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return channels == 0;
+        }
+    }
+
+    /** Update에 담긴 채널을 한 번의 쓰기로 반영 (비어 있으면 아무것도 안 함) */
+    public void apply(Update u) {
+        if (u.isEmpty()) return;
+
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            int ch = u.channels;
+            if ((ch & CH_FLAME) != 0) {
+                this.flame = u.flame;
+                this.flameTs = now;
+            }
+            if ((ch & CH_CO2) != 0) {
+                this.co2 = u.co2;
+                this.co2Ts = now;
+            }
+            if ((ch & CH_DUST) != 0) {
+                this.pm25 = u.pm25;
+                this.pm10 = u.pm10;
+                this.dustSource = u.dustSource;
+                this.dustTs = now;
+            }
+            if ((ch & CH_PIR) != 0) {
+                this.pir = u.pir;
+                this.pirTs = now;
+            }
+            if ((ch & CH_ULTRASONIC) != 0) {
+                this.ultrasonic = u.ultrasonic;
+                this.ultrasonicTs = now;
+            }
+            if ((ch & CH_VISION) != 0) {
+                if (u.visionPerson != UNKNOWN) this.visionPerson = u.visionPerson;
+                if (!Double.isNaN(u.visionConf)) this.visionConf = u.visionConf;
+                this.visionTs = now;
+            }
+            markAnySensorUpdate(now, ch);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
+    }
+
     // ---------- 공통 유틸 ----------
-    private void markAnySensorUpdate() {
-        this.lastSensorUpdateAtMs = System.currentTimeMillis();
+    // 아래 헬퍼는 쓰기 락 안에서만 호출
+    private void markAnySensorUpdate(long now, int channel) {
+        this.lastSensorUpdateAtMs = now;
+        this.version++;
+        this.dirty |= channel;
+    }
+
+    // 쓰기 락 밖에서 호출 (리스너가 락을 잡은 채로 돌지 않게)
+    private void notifyChanged() {
+        Runnable l = changeListener;
+        if (l != null) l.run();
+    }
+
+    private static Double boxed(double v) {
+        return Double.isNaN(v) ? null : v;
+    }
+
+    private static Long boxedTs(long ts) {
+        return ts == NO_TS ? null : ts;
+    }
+
+    private static Boolean boxed(byte b) {
+        return b == UNKNOWN ? null : b == TRUE;
+    }
+
+    private static byte tri(boolean v) {
+        return v ? TRUE : FALSE;
+    }
+
+    private static double unboxed(Double v) {
+        return v == null ? Double.NaN : v;
     }
 
     public long getLastSensorUpdateAtMs() {
@@ -48,38 +331,58 @@ public class SensorState {
     }
 
     // ===== vision =====
-    public void setVisionPerson(Boolean v) {
-        this.visionPerson = v;
-        this.visionTs = System.currentTimeMillis();
-        markAnySensorUpdate();
+    public void setVisionPerson(boolean v) {
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.visionPerson = tri(v);
+            this.visionTs = now;
+            markAnySensorUpdate(now, CH_VISION);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     public Boolean getVisionPerson() {
-        return visionPerson;
-    }
-
-    public void setVisionConf(Double v) {
-        this.visionConf = v;
-        this.visionTs = System.currentTimeMillis();
-        markAnySensorUpdate();
+        return boxed(visionPerson);
+    }
+
+    public void setVisionConf(double v) {
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.visionConf = v;
+            this.visionTs = now;
+            markAnySensorUpdate(now, CH_VISION);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     public Double getVisionConf() {
-        return visionConf;
+        return boxed(visionConf);
     }
 
     public Long getVisionTs() {
-        return visionTs;
+        return boxedTs(visionTs);
     }
 
     // StateUpdater 호환용
     public void setVisionTs(Long ts) {
-        this.visionTs = ts;
-        markAnySensorUpdate();
+        long stamp = lock.writeLock();
+        try {
+            this.visionTs = (ts == null) ? NO_TS : ts;
+            markAnySensorUpdate(System.currentTimeMillis(), CH_VISION);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     public boolean isVisionPerson() {
-        return Boolean.TRUE.equals(this.visionPerson);
+        return visionPerson == TRUE;
     }
 
     // ===== LLM =====
@@ -98,56 +401,83 @@ public class SensorState {
 
     // ===== flame =====
     public Double getFlame() {
-        return flame;
-    }
-
-    public void setFlame(Double flame) {
-        this.flame = flame;
-        this.flameTs = System.currentTimeMillis();
-        markAnySensorUpdate();
+        return boxed(flame);
+    }
+
+    public void setFlame(double flame) {
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.flame = flame;
+            this.flameTs = now;
+            markAnySensorUpdate(now, CH_FLAME);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     public Long getFlameTs() {
-        return flameTs;
+        return boxedTs(flameTs);
     }
 
     // ===== CO2 =====
     public Double getCo2() {
-        return co2;
-    }
-
-    public void setCo2(Double co2) {
-        this.co2 = co2;
-        this.co2Ts = System.currentTimeMillis();
-        markAnySensorUpdate();
+        return boxed(co2);
+    }
+
+    public void setCo2(double co2) {
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.co2 = co2;
+            this.co2Ts = now;
+            markAnySensorUpdate(now, CH_CO2);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     public Long getCo2Ts() {
-        return co2Ts;
+        return boxedTs(co2Ts);
     }
 
     // ===== dust =====
     public Double getPm25() {
-        return pm25;
+        return boxed(pm25);
     }
 
     public Double getPm10() {
-        return pm10;
+        return boxed(pm10);
     }
 
     public Long getDustTs() {
-        return dustTs;
+        return boxedTs(dustTs);
     }
 
     /**
-     * dust는 한 패킷 단위로 들어오기 때문에 묶어서 세팅
+     * dust는 한 패킷 단위로 들어오기 때문에 묶어서 세팅 (NaN = 미수신)
+     * - pm25/pm10/source가 한 번의 쓰기로 바뀜 → snapshot()에서 섞여 보이지 않음
      */
+    public void setDust(double pm25, double pm10, String source) {
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.pm25 = pm25;
+            this.pm10 = pm10;
+            this.dustSource = source;
+            this.dustTs = now;
+            markAnySensorUpdate(now, CH_DUST);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
+    }
+
+    /** null = 미수신 (StateUpdater 호환) */
     public void setDust(Double pm25, Double pm10, String source) {
-        this.pm25 = pm25;
-        this.pm10 = pm10;
-        this.dustSource = source;
-        this.dustTs = System.currentTimeMillis();
-        markAnySensorUpdate();
+        setDust(unboxed(pm25), unboxed(pm10), source);
     }
 
     public String getDustSource() {
@@ -156,32 +486,46 @@ public class SensorState {
 
     // ===== PIR =====
     public Boolean getPir() {
-        return pir;
-    }
-
-    public void setPir(Boolean pir) {
-        this.pir = pir;
-        this.pirTs = System.currentTimeMillis();
-        markAnySensorUpdate();
+        return boxed(pir);
+    }
+
+    public void setPir(boolean pir) {
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.pir = tri(pir);
+            this.pirTs = now;
+            markAnySensorUpdate(now, CH_PIR);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     public Long getPirTs() {
-        return pirTs;
+        return boxedTs(pirTs);
     }
 
     // ===== ultrasonic =====
     public Double getUltrasonic() {
-        return ultrasonic;
-    }
-
-    public void setUltrasonic(Double distance) {
-        this.ultrasonic = distance;
-        this.ultrasonicTs = System.currentTimeMillis();
-        markAnySensorUpdate();
+        return boxed(ultrasonic);
+    }
+
+    public void setUltrasonic(double distance) {
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.ultrasonic = distance;
+            this.ultrasonicTs = now;
+            markAnySensorUpdate(now, CH_ULTRASONIC);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     public Long getUltrasonicTs() {
-        return ultrasonicTs;
+        return boxedTs(ultrasonicTs);
     }
 
     // ===== STT =====
@@ -194,33 +538,62 @@ public class SensorState {
     }
 
     public void setLastStt(String text) {
-        this.lastStt = text;
-        this.lastSttTime = System.currentTimeMillis();
-        markAnySensorUpdate();
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.lastStt = text;
+            this.lastSttTime = now;
+            markAnySensorUpdate(now, CH_STT);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     // ===== 호환성 유지용 =====
+    // 읽고-고치고-쓰기를 한 락 안에서 → 동시에 들어온 setPm10과 서로 덮어쓰지 않음
     public void setPm25(Double pm25) {
-        setDust(pm25, this.pm10, this.dustSource == null ? "ROBOT" : this.dustSource);
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.pm25 = unboxed(pm25);
+            if (this.dustSource == null) this.dustSource = "ROBOT";
+            this.dustTs = now;
+            markAnySensorUpdate(now, CH_DUST);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     public void setPm10(Double pm10) {
-        setDust(this.pm25, pm10, this.dustSource == null ? "ROBOT" : this.dustSource);
+        long stamp = lock.writeLock();
+        try {
+            long now = System.currentTimeMillis();
+            this.pm10 = unboxed(pm10);
+            if (this.dustSource == null) this.dustSource = "ROBOT";
+            this.dustTs = now;
+            markAnySensorUpdate(now, CH_DUST);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        notifyChanged();
     }
 
     // ===== stale 판단 =====
     public boolean isDustStale(long staleMs) {
-        if (dustTs == null) return true;
-        return (System.currentTimeMillis() - dustTs) > staleMs;
+        return !Snapshot.fresh(dustTs, System.currentTimeMillis(), staleMs);
     }
 
     @Override
     public String toString() {
+        Snapshot s = snapshot();
+
         String sttTimeFormatted;
-        if (lastSttTime > 0) {
+        if (s.lastSttTime() > 0) {
             DateTimeFormatter formatter =
                     DateTimeFormatter.ofPattern("MM월dd일 HH시 mm분 ss초");
-            sttTimeFormatted = Instant.ofEpochMilli(lastSttTime)
+            sttTimeFormatted = Instant.ofEpochMilli(s.lastSttTime())
                     .atZone(ZoneId.systemDefault())
                     .toLocalDateTime()
                     .format(formatter);
@@ -229,20 +602,21 @@ public class SensorState {
         }
 
         return "SensorState{" +
-                "flame=" + flame +
-                ", co2=" + co2 +
-                ", pm25=" + pm25 +
-                ", pm10=" + pm10 +
-                ", pir=" + pir +
-                ", ultrasonic=" + ultrasonic +
-                ", visionPerson=" + visionPerson +
-                ", visionConf=" + visionConf +
-                ", visionTs=" + visionTs +
-                ", dustSource=" + dustSource +
-                ", dustTs=" + dustTs +
-                ", lastStt='" + lastStt + '\'' +
+                "flame=" + boxed(s.flame()) +
+                ", co2=" + boxed(s.co2()) +
+                ", pm25=" + boxed(s.pm25()) +
+                ", pm10=" + boxed(s.pm10()) +
+                ", pir=" + boxed(s.pir()) +
+                ", ultrasonic=" + boxed(s.ultrasonic()) +
+                ", visionPerson=" + boxed(s.visionPerson()) +
+                ", visionConf=" + boxed(s.visionConf()) +
+                ", visionTs=" + boxedTs(s.visionTs()) +
+                ", dustSource=" + s.dustSource() +
+                ", dustTs=" + boxedTs(s.dustTs()) +
+                ", lastStt='" + s.lastStt() + '\'' +
                 ", lastSttTime=" + sttTimeFormatted +
-                ", lastSensorUpdateAtMs=" + lastSensorUpdateAtMs +
+                ", lastSensorUpdateAtMs=" + s.lastSensorUpdateAtMs() +
+                ", version=" + s.version() +
                 '}';
     }
-}
\ No newline at end of file
+}
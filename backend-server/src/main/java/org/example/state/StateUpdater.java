@@ -2,6 +2,7 @@ package org.example.state;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import org.example.state.SensorHistory.Channel;
 
 public class StateUpdater {
 
@@ -14,7 +15,14 @@ public class StateUpdater {
         }
 
         if (!obj.has("type") || obj.get("type").isJsonNull()) return;
-        String type = obj.get("type").getAsString();
+        apply(obj.get("type").getAsString(), obj, state);
+    }
+
+    /**
+     * 이미 파싱된 메시지 반영 (호출부에서 type을 알고 있으면 다시 파싱하지 않음)
+     */
+    public static void apply(String type, JsonObject obj, SensorState state) {
+        if (type == null || obj == null) return;
 
         switch (type) {
             case "SENSOR" -> applySensor(obj, state);
@@ -31,6 +39,16 @@ public class StateUpdater {
     }
 
     private static void applySensor(JsonObject obj, SensorState state) {
+        SensorHistory history = state.history();
+        long now = System.currentTimeMillis();
+
+        // 패킷 하나 = 쓰기 한 번 (채널별 setter로 나눠 쓰면 snapshot()에 이전 패킷 값과 섞여 보임)
+        SensorState.Update update = new SensorState.Update();
+        collectSensor(obj, update, history, now);
+        state.apply(update);
+    }
+
+    private static void collectSensor(JsonObject obj, SensorState.Update update, SensorHistory history, long now) {
 
         // ===== 1) 기존 단일 센서 포맷 =====
         if (obj.has("name") && !obj.get("name").isJsonNull()) {
@@ -39,12 +57,16 @@ public class StateUpdater {
             switch (name) {
                 case "FLAME" -> {
                     if (obj.has("value") && !obj.get("value").isJsonNull()) {
-                        state.setFlame(obj.get("value").getAsDouble());
+                        double v = obj.get("value").getAsDouble();
+                        update.flame(v);
+                        history.record(Channel.FLAME, now, v);
                     }
                 }
                 case "CO2" -> {
                     if (obj.has("value") && !obj.get("value").isJsonNull()) {
-                        state.setCo2(obj.get("value").getAsDouble());
+                        double v = obj.get("value").getAsDouble();
+                        update.co2(v);
+                        history.record(Channel.CO2, now, v);
                     }
                 }
                 case "DUST" -> {
@@ -56,17 +78,20 @@ public class StateUpdater {
 
                     // ✅ 둘 다 null이면 덮어쓰지 않음
                     if (pm25 != null || pm10 != null) {
-                        state.setDust(pm25, pm10, "ROBOT");
+                        update.dust(pm25, pm10, "ROBOT");
+                        recordDust(history, now, pm25, pm10);
                     }
                 }
                 case "PIR" -> {
                     if (obj.has("detected") && !obj.get("detected").isJsonNull()) {
-                        state.setPir(obj.get("detected").getAsBoolean());
+                        update.pir(obj.get("detected").getAsBoolean());
                     }
                 }
                 case "ULTRASONIC" -> {
                     if (obj.has("distance") && !obj.get("distance").isJsonNull()) {
-                        state.setUltrasonic(obj.get("distance").getAsDouble());
+                        double v = obj.get("distance").getAsDouble();
+                        update.ultrasonic(v);
+                        history.record(Channel.ULTRASONIC, now, v);
                     }
                 }
             }
@@ -79,16 +104,22 @@ public class StateUpdater {
         // fire → flame(double) 임시 매핑
         if (obj.has("fire") && !obj.get("fire").isJsonNull()) {
             boolean fire = obj.get("fire").getAsBoolean();
-            state.setFlame(fire ? 1.0 : 0.0);
+            update.flame(fire ? 1.0 : 0.0);
+            history.record(Channel.FLAME, now, fire ? 1.0 : 0.0);
         }
 
         // co2 단일화 (우선순위)
+        double co2 = Double.NaN;
         if (obj.has("co2") && !obj.get("co2").isJsonNull()) {
-            state.setCo2(obj.get("co2").getAsDouble());
+            co2 = obj.get("co2").getAsDouble();
         } else if (obj.has("co2_ppm") && !obj.get("co2_ppm").isJsonNull()) {
-            state.setCo2(obj.get("co2_ppm").getAsDouble());
+            co2 = obj.get("co2_ppm").getAsDouble();
         } else if (obj.has("gas") && !obj.get("gas").isJsonNull()) {
-            state.setCo2(obj.get("gas").getAsDouble());
+            co2 = obj.get("gas").getAsDouble();
+        }
+        if (!Double.isNaN(co2)) {
+            update.co2(co2);
+            history.record(Channel.CO2, now, co2);
         }
 
         // dust 묶음
@@ -103,25 +134,34 @@ public class StateUpdater {
 
             // ✅ 둘 다 null이면 업데이트 안 함
             if (pm25 != null || pm10 != null) {
-                state.setDust(pm25, pm10, "ROBOT");
+                update.dust(pm25, pm10, "ROBOT");
+                recordDust(history, now, pm25, pm10);
             }
         }
     }
 
+    private static void recordDust(SensorHistory history, long now, Double pm25, Double pm10) {
+        if (pm25 != null) history.record(Channel.PM25, now, pm25);
+        if (pm10 != null) history.record(Channel.PM10, now, pm10);
+    }
+
     private static void applyVision(JsonObject obj, SensorState state) {
 
         if (!obj.has("yolo") || !obj.get("yolo").isJsonObject()) return;
         JsonObject yolo = obj.getAsJsonObject("yolo");
 
+        // person/conf는 같은 추론 결과 → 한 번에 (새 person + 이전 conf 조합이 보이지 않게)
+        SensorState.Update update = new SensorState.Update();
         if (yolo.has("person") && !yolo.get("person").isJsonNull()) {
-            state.setVisionPerson(yolo.get("person").getAsBoolean());
+            update.visionPerson(yolo.get("person").getAsBoolean());
         }
 
         if (yolo.has("best") && yolo.get("best").isJsonObject()) {
             JsonObject best = yolo.getAsJsonObject("best");
             if (best.has("conf") && !best.get("conf").isJsonNull()) {
-                state.setVisionConf(best.get("conf").getAsDouble());
+                update.visionConf(best.get("conf").getAsDouble());
             }
         }
+        state.apply(update);
     }
 }
\ No newline at end of file
@@ -8,11 +8,9 @@ import javafx.scene.Parent;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Paths;
 import javafx.scene.Scene;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
@@ -34,10 +32,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 
@@ -93,8 +93,8 @@ public class BlackBoxPanel {
     }
 
     // ====== 원본 필드들(그대로) ======
-    private XYChart.Series<Number, Number> tempSeries;
-    private XYChart.Series<Number, Number> co2Series;
+    private SensorChart tempChart;
+    private SensorChart co2Chart;
     private Label tempValueLabel;
     private Label co2ValueLabel;
     private Label flameValueLabel;
@@ -107,18 +107,17 @@ public class BlackBoxPanel {
     private boolean isPanelVisible = false;
     private Button playBtn;
 
-    private int timeCounter = 0;
     private int videoTime = 120;
     private boolean isPlaying = false;
     private final Random random = new Random();
     private double currentTemp = 24.0;
     private double currentCO2 = 420.0;
     private static final int MAX_DATA_POINTS = 15;
-    private NumberAxis tempXAxis;
-    private NumberAxis co2XAxis;
 
     // ====== camera video view (추가: 기존 Camera 화면 위에 영상만 덮어씀) ======
     private ImageView cameraImageView;
+    private Label cameraStatsLabel;
+    private JpegFrameDecoder cameraDecoder;
     private VBox cameraPlaceholderBox;
 
     // ====== DB playback (추가) ======
@@ -137,6 +136,11 @@ public class BlackBoxPanel {
             "SERBOT_DB_PASS",
             System.getenv().getOrDefault("SERBOT_DB_PASS", "")
     );
+    // 세그먼트 저장 모드(video_frame_ref)일 때 백엔드의 ./data/video 위치
+    private static final String VIDEO_DIR = System.getProperty(
+            "SERBOT_VIDEO_DIR",
+            System.getenv().getOrDefault("SERBOT_VIDEO_DIR", "./data/video")
+    );
     // 외부에서 주입 가능(없으면 환경변수/기본값 사용)
     private String dbUrlOverride = null;
     private String dbUserOverride = null;
@@ -147,17 +151,49 @@ public class BlackBoxPanel {
     private volatile int sessionFps = 5;
     private volatile int sessionDurationSec = 300; // slider max 기본
 
+    /** 프레임 메타데이터만 (JPEG는 frameCache/프리페치로 필요할 때 읽음) */
     private static final class DbFrame {
         final long tsMs;
         final int frameIndex;
-        final byte[] jpeg;
-        DbFrame(long tsMs, int frameIndex, byte[] jpeg) {
+        final int segmentNo;    // video_frame_ref(세그먼트 파일) 모드, video_frame(LONGBLOB) 모드면 -1
+        final long byteOffset;
+        final int bytesLen;
+        DbFrame(long tsMs, int frameIndex) {
+            this(tsMs, frameIndex, -1, 0, 0);
+        }
+        DbFrame(long tsMs, int frameIndex, int segmentNo, long byteOffset, int bytesLen) {
             this.tsMs = tsMs;
             this.frameIndex = frameIndex;
-            this.jpeg = jpeg;
+            this.segmentNo = segmentNo;
+            this.byteOffset = byteOffset;
+            this.bytesLen = bytesLen;
         }
     }
 
+    private volatile SegmentFrameReader segmentReader;
+
+    // ====== 재생 버퍼: 재생 위치 주변만 미리 읽고, 바이트 합계로 제한된 LRU에 보관 ======
+    private static final long FRAME_CACHE_BYTES = Long.getLong("serbot.blackbox.cacheMb", 64) * 1024 * 1024;
+    private static final int PREFETCH_AHEAD = 25;   // 5fps 기준 5초 앞
+    private static final int PREFETCH_BEHIND = 5;   // 살짝 뒤로 감기 대비
+    private static final int PREFETCH_CHUNK = 8;    // 쿼리 1번에 읽는 프레임 수 (현재 프레임이 빨리 뜨도록 작게)
+
+    private final FrameCache frameCache = new FrameCache(FRAME_CACHE_BYTES);
+    private final ExecutorService prefetchExec = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "BlackBox-Prefetch");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicInteger prefetchCenter = new AtomicInteger(-1);   // 최신 요청만 (탐색하면 덮어씀)
+    private final AtomicBoolean prefetchScheduled = new AtomicBoolean(false);
+    private volatile int waitingIdx = -1;      // 캐시에 없어 프리페치가 도착하면 바로 띄울 프레임
+    private volatile boolean blobMode = false; // video_frame(LONGBLOB) 세션이면 DB에서 읽음
+    private volatile long loadGeneration = 0;  // 세션이 바뀌면 진행 중 프리페치 결과 무시
+
+    // 프리페치 스레드 전용
+    private Connection prefetchConn;
+    private long prefetchConnGeneration = -1;
+
     private static final class DbSensor {
         final long tsMs;
         final boolean fire;
@@ -179,7 +215,11 @@ public class BlackBoxPanel {
     private final List<DbSensor> sensors = Collections.synchronizedList(new ArrayList<>());
 
     private volatile int framePtr = 0;
-    private volatile int sensorPtr = 0;
+    private volatile int sensorPtr = 0;   // 마지막으로 화면에 반영한 센서 행 + 1
+
+    // 시간 인덱스: 로드가 끝나면 한 번 만들어 교체 (이후 읽기 전용) → 탐색은 이진 탐색, 락 없음
+    private volatile long[] frameTs = new long[0];
+    private volatile long[] sensorTs = new long[0];
 
     private final AtomicBoolean sliderIsDragging = new AtomicBoolean(false);
     private final AtomicBoolean internalSliderUpdate = new AtomicBoolean(false);
@@ -249,6 +289,17 @@ public class BlackBoxPanel {
     public void dispose() {
         try { dataScheduler.shutdownNow(); } catch (Exception ignored) {}
         try { videoScheduler.shutdownNow(); } catch (Exception ignored) {}
+        try { prefetchExec.execute(this::closePrefetchConn); } catch (Exception ignored) {}
+        prefetchExec.shutdown();
+        if (cameraDecoder != null) cameraDecoder.close();
+        closeSegmentReader();
+        frameCache.clear();
+    }
+
+    private void closeSegmentReader() {
+        SegmentFrameReader r = segmentReader;
+        segmentReader = null;
+        if (r != null) r.close();
     }
 
     // ====================== 원본 메서드들(그대로) ======================
@@ -294,6 +345,12 @@ public class BlackBoxPanel {
         cameraImageView.setFitWidth(1100);
         cameraImageView.setFitHeight(600);
 
+        // 디코딩은 별도 스레드 (재생/탐색이 빨라도 FX 스레드는 최신 1장만 그림)
+        cameraStatsLabel = new Label();
+        cameraStatsLabel.setFont(Font.font("Arial", 11));
+        cameraStatsLabel.setTextFill(Color.web("#9CA3AF"));
+        cameraDecoder = new JpegFrameDecoder("BlackBox-Decode", cameraImageView, cameraStatsLabel);
+
         // ✅ 기존 "Camera" 플레이스홀더 UI (원본 유지)
         Label cameraIcon = new Label("📷");
         cameraIcon.setFont(Font.font(100));
@@ -313,7 +370,8 @@ public class BlackBoxPanel {
         // ✅ 겹치기: 영상 + 플레이스홀더
         StackPane cameraStack = new StackPane();
         cameraStack.setAlignment(Pos.CENTER);
-        cameraStack.getChildren().addAll(cameraImageView, cameraPlaceholderBox);
+        cameraStack.getChildren().addAll(cameraImageView, cameraPlaceholderBox, cameraStatsLabel);
+        StackPane.setAlignment(cameraStatsLabel, Pos.BOTTOM_LEFT);
 
         // 이미지가 없을 때만 플레이스홀더 보이게
         cameraPlaceholderBox.setVisible(cameraImageView.getImage() == null);
@@ -473,26 +531,11 @@ public class BlackBoxPanel {
         tempValueLabel = new Label("온도: -- °C");
         tempValueLabel.setFont(Font.font("Arial", FontWeight.BOLD, 20));
 
-        tempXAxis = new NumberAxis(0, MAX_DATA_POINTS, 1);
-        tempXAxis.setAutoRanging(false);
-        tempXAxis.setTickLabelsVisible(false);
-        tempXAxis.setTickMarkVisible(false);
-
-        NumberAxis yAxis = new NumberAxis(24, 28, 0.5);
-        yAxis.setAutoRanging(false);
-        yAxis.setTickLabelsVisible(false);
+        tempChart = new SensorChart(null, MAX_DATA_POINTS, 24, 28);
+        tempChart.setAxisVisible(false);
+        tempChart.setPrefHeight(100);
 
-        LineChart<Number, Number> chart = new LineChart<>(tempXAxis, yAxis);
-        chart.setAnimated(false);
-        chart.setCreateSymbols(false);
-        chart.setLegendVisible(false);
-        chart.setPrefHeight(100);
-        chart.setStyle("-fx-background-color: transparent;");
-
-        tempSeries = new XYChart.Series<>();
-        chart.getData().add(tempSeries);
-
-        widget.getChildren().addAll(title, tempValueLabel, chart);
+        widget.getChildren().addAll(title, tempValueLabel, tempChart);
 
         return widget;
     }
@@ -509,26 +552,11 @@ public class BlackBoxPanel {
         co2ValueLabel = new Label("420 ppm");
         co2ValueLabel.setFont(Font.font("Arial", FontWeight.BOLD, 20));
 
-        co2XAxis = new NumberAxis(0, MAX_DATA_POINTS, 1);
-        co2XAxis.setAutoRanging(false);
-        co2XAxis.setTickLabelsVisible(false);
-        co2XAxis.setTickMarkVisible(false);
-
-        NumberAxis yAxis = new NumberAxis(0, 500, 100);
-        yAxis.setAutoRanging(false);
-        yAxis.setTickLabelsVisible(false);
-
-        LineChart<Number, Number> chart = new LineChart<>(co2XAxis, yAxis);
-        chart.setAnimated(false);
-        chart.setCreateSymbols(false);
-        chart.setLegendVisible(false);
-        chart.setPrefHeight(100);
-        chart.setStyle("-fx-background-color: transparent;");
+        co2Chart = new SensorChart(null, MAX_DATA_POINTS, 0, 500);
+        co2Chart.setAxisVisible(false);
+        co2Chart.setPrefHeight(100);
 
-        co2Series = new XYChart.Series<>();
-        chart.getData().add(co2Series);
-
-        widget.getChildren().addAll(title, co2ValueLabel, chart);
+        widget.getChildren().addAll(title, co2ValueLabel, co2Chart);
 
         return widget;
     }
@@ -606,28 +634,8 @@ public class BlackBoxPanel {
                     co2ValueLabel.setText(String.format("%.0f ppm", currentCO2));
                 }
 
-                if (tempSeries != null) {
-                    tempSeries.getData().add(new XYChart.Data<>(timeCounter, currentTemp));
-                    if (tempSeries.getData().size() > MAX_DATA_POINTS) {
-                        tempSeries.getData().remove(0);
-                    }
-                }
-
-                if (co2Series != null) {
-                    co2Series.getData().add(new XYChart.Data<>(timeCounter, currentCO2));
-                    if (co2Series.getData().size() > MAX_DATA_POINTS) {
-                        co2Series.getData().remove(0);
-                    }
-                }
-
-                if (timeCounter >= MAX_DATA_POINTS) {
-                    tempXAxis.setLowerBound(timeCounter - MAX_DATA_POINTS + 1);
-                    tempXAxis.setUpperBound(timeCounter);
-                    co2XAxis.setLowerBound(timeCounter - MAX_DATA_POINTS + 1);
-                    co2XAxis.setUpperBound(timeCounter);
-                }
-
-                timeCounter++;
+                if (tempChart != null) tempChart.addValue(currentTemp);
+                if (co2Chart != null) co2Chart.addValue(currentCO2);
             }
         }), 0, 1, TimeUnit.SECONDS);
     }
@@ -680,23 +688,79 @@ public class BlackBoxPanel {
         this.currentSessionId = sessionId;
         this.framePtr = 0;
         this.sensorPtr = 0;
-        this.timeCounter = 0;
+        this.frameTs = new long[0];
+        this.sensorTs = new long[0];
 
-        frames.clear();
+        if (loadGeneration > 0) System.out.println("🎞 frame cache (prev session): " + frameCache.stats());
+        long gen;
+        synchronized (frames) {
+            // 세대 변경과 목록 비우기를 한 번에 → frames를 읽은 쪽이 보는 세대와 내용이 항상 짝이 맞음
+            gen = ++loadGeneration;
+            frames.clear();
+        }
         sensors.clear();
+        frameCache.reset(gen);
+        waitingIdx = -1;
+        blobMode = false;
+        closeSegmentReader();
 
+        // 로더는 지역 변수에만 채우고, 끝났을 때 세대가 그대로일 때만 한 번에 반영
+        // (로딩 중 다른 세션을 고르면 이전 로더 결과는 frames/sensors/reader에 섞이지 않고 버려짐)
         new Thread(() -> {
             try {
-                loadSessionMeta(sessionId);
-                loadFrames(sessionId);
-                loadSensorsForSessionWindow();
+                SessionMeta meta = loadSessionMeta(sessionId);
+                if (gen != loadGeneration) return;
+
+                boolean blobs = true;
+                List<DbFrame> loadedFrames = loadFrames(sessionId);
+                if (loadedFrames.isEmpty()) {
+                    // ✅ blob 프레임이 없으면 세그먼트 저장 모드: 위치(ref)만 읽고 바이트는 재생 시 mmap으로
+                    blobs = false;
+                    loadedFrames = loadFrameRefs(sessionId);
+                }
+                System.out.println("✅ loaded frames: " + loadedFrames.size() + " (session=" + sessionId + ")");
+                if (gen != loadGeneration) return;
+
+                int durationSec = meta.durationSec();
+                long endTs;
+                if (!loadedFrames.isEmpty()) {
+                    endTs = loadedFrames.get(loadedFrames.size() - 1).tsMs;
+                    if (endTs > meta.startMs()) {
+                        durationSec = (int) Math.max(durationSec, (endTs - meta.startMs()) / 1000L);
+                    }
+                } else {
+                    endTs = meta.startMs() + (long) durationSec * 1000L;
+                }
+
+                List<DbSensor> loadedSensors = loadSensors(meta.startMs(), endTs);
+                long[] ft = frameTimes(loadedFrames);
+                long[] st = sensorTimes(loadedSensors);
+
+                boolean useBlobs = blobs && !loadedFrames.isEmpty();
+                boolean useSegments = !blobs && !loadedFrames.isEmpty();
+                List<DbFrame> fs = loadedFrames;
+                int dur = durationSec;
 
                 Platform.runLater(() -> {
+                    if (gen != loadGeneration) {
+                        System.out.println("🎞 stale session load dropped (session=" + sessionId + ")");
+                        return;
+                    }
+                    sessionStartMs = meta.startMs();
+                    sessionFps = meta.fps();
+                    sessionDurationSec = dur;
+                    frames.addAll(fs);
+                    sensors.addAll(loadedSensors);
+                    frameTs = ft;
+                    sensorTs = st;
+                    blobMode = useBlobs;
+                    if (useSegments) segmentReader = new SegmentFrameReader(Paths.get(VIDEO_DIR), sessionId);
+
                     if (videoSlider != null) {
                         internalSliderUpdate.set(true);
                         try {
                             videoSlider.setMin(0);
-                            videoSlider.setMax(sessionDurationSec);
+                            videoSlider.setMax(dur);
                             videoSlider.setValue(0);
                         } finally {
                             internalSliderUpdate.set(false);
@@ -716,11 +780,15 @@ public class BlackBoxPanel {
         pause();
         dbMode = false;
         currentSessionId = -1;
+        long gen;
+        synchronized (frames) {
+            gen = ++loadGeneration;   // 아직 로딩 중인 세션이 있으면 반영하지 않음
+        }
+        frameCache.reset(gen);        // 진행 중 프리페치 결과도 받지 않음
         clearCameraImage();
 
-        timeCounter = 0;
-        if (tempSeries != null) tempSeries.getData().clear();
-        if (co2Series != null) co2Series.getData().clear();
+        if (tempChart != null) tempChart.clear();
+        if (co2Chart != null) co2Chart.clear();
     }
 
     private Connection openDb() throws SQLException {
@@ -730,55 +798,83 @@ public class BlackBoxPanel {
         return DriverManager.getConnection(url, user, pass);
     }
 
-    private void loadSessionMeta(long sessionId) throws SQLException {
+    /** video_session 한 행 (로더 스레드에서 읽고 FX 스레드에서 필드로 반영) */
+    private record SessionMeta(long startMs, int fps, int durationSec) {}
+
+    private SessionMeta loadSessionMeta(long sessionId) throws SQLException {
         String sql = "SELECT started_at_ms, ended_at_ms, fps FROM video_session WHERE id=?";
         try (Connection c = openDb(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setLong(1, sessionId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (!rs.next()) throw new SQLException("video_session not found: id=" + sessionId);
-                sessionStartMs = rs.getLong("started_at_ms");
-                sessionFps = rs.getInt("fps");
+                long startMs = rs.getLong("started_at_ms");
+                int fps = rs.getInt("fps");
 
                 long ended = rs.getLong("ended_at_ms");
                 boolean endedIsNull = rs.wasNull();
 
-                sessionDurationSec = 300;
-                if (!endedIsNull && ended > sessionStartMs) {
-                    sessionDurationSec = (int) Math.max(1, (ended - sessionStartMs) / 1000L);
+                int durationSec = 300;
+                if (!endedIsNull && ended > startMs) {
+                    durationSec = (int) Math.max(1, (ended - startMs) / 1000L);
                 }
+                return new SessionMeta(startMs, fps, durationSec);
             }
         }
     }
 
-    private void loadFrames(long sessionId) throws SQLException {
-        String sql = "SELECT frame_index, received_at_ms, jpeg_bytes FROM video_frame WHERE session_id=? ORDER BY frame_index ASC";
+    /** 메타데이터(번호/시각)만 읽음: 세션 길이와 무관하게 첫 프레임이 바로 뜨도록 JPEG는 나중에 */
+    private List<DbFrame> loadFrames(long sessionId) throws SQLException {
+        List<DbFrame> out = new ArrayList<>();
+        String sql = "SELECT frame_index, received_at_ms FROM video_frame WHERE session_id=? ORDER BY frame_index ASC";
         try (Connection c = openDb(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setLong(1, sessionId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
                     int idx = rs.getInt("frame_index");
                     long ts = rs.getLong("received_at_ms");
-                    byte[] jpeg = rs.getBytes("jpeg_bytes");
-                    frames.add(new DbFrame(ts, idx, jpeg));
+                    out.add(new DbFrame(ts, idx));
                 }
             }
         }
+        return out;
+    }
 
-        if (!frames.isEmpty()) {
-            long endTs = frames.get(frames.size() - 1).tsMs;
-            if (endTs > sessionStartMs) {
-                sessionDurationSec = (int) Math.max(sessionDurationSec, (endTs - sessionStartMs) / 1000L);
+    private List<DbFrame> loadFrameRefs(long sessionId) throws SQLException {
+        List<DbFrame> out = new ArrayList<>();
+        String sql = "SELECT frame_index, received_at_ms, segment_no, byte_offset, bytes_len FROM video_frame_ref WHERE session_id=? ORDER BY frame_index ASC";
+        try (Connection c = openDb(); PreparedStatement ps = c.prepareStatement(sql)) {
+            ps.setLong(1, sessionId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new DbFrame(
+                            rs.getLong("received_at_ms"),
+                            rs.getInt("frame_index"),
+                            rs.getInt("segment_no"),
+                            rs.getLong("byte_offset"),
+                            rs.getInt("bytes_len")));
+                }
             }
+        } catch (SQLException e) {
+            // video_frame_ref 테이블이 없는 DB(구버전)면 그냥 프레임 없음
+            System.out.println("⚠ video_frame_ref load skipped: " + e.getMessage());
         }
+        return out;
+    }
 
-        System.out.println("✅ loaded frames: " + frames.size() + " (session=" + sessionId + ")");
+    /** 세그먼트 모드: mmap에서 바로 잘라 읽음 (DB 왕복 없음 → 캐시 미스여도 즉시) */
+    private byte[] segmentBytes(DbFrame f) {
+        SegmentFrameReader r = segmentReader;
+        if (r == null || f.segmentNo < 0) return null;
+        try {
+            return r.read(f.segmentNo, f.byteOffset, f.bytesLen);
+        } catch (IOException e) {
+            System.out.println("⚠ segment frame read failed: " + e.getMessage());
+            return null;
+        }
     }
 
-    private void loadSensorsForSessionWindow() throws SQLException {
-        long start = sessionStartMs;
-        long end;
-        if (!frames.isEmpty()) end = frames.get(frames.size() - 1).tsMs;
-        else end = sessionStartMs + (long) sessionDurationSec * 1000L;
+    private List<DbSensor> loadSensors(long start, long end) throws SQLException {
+        List<DbSensor> out = new ArrayList<>();
 
         String sql = "SELECT received_at_ms, fire, co2, pm25, pm10, pir FROM sensor_snapshot WHERE received_at_ms BETWEEN ? AND ? ORDER BY received_at_ms ASC";
         try (Connection c = openDb(); PreparedStatement ps = c.prepareStatement(sql)) {
@@ -795,43 +891,83 @@ public class BlackBoxPanel {
                     int pirInt = rs.getInt("pir");
                     Boolean pir = rs.wasNull() ? null : (pirInt == 1);
 
-                    sensors.add(new DbSensor(ts, fire, co2, pm25, pm10, pir));
+                    out.add(new DbSensor(ts, fire, co2, pm25, pm10, pir));
                 }
             }
         }
-        System.out.println("✅ loaded sensors: " + sensors.size());
+        System.out.println("✅ loaded sensors: " + out.size());
+        return out;
     }
 
-    private void showFrameBySecond(int sec) {
-        if (!dbMode) return;
-        if (frames.isEmpty()) return;
+    /** frames/sensors는 시각순으로 로드됨 → 시각만 primitive 배열로 복사 (반영 전 로더 스레드에서) */
+    private static long[] frameTimes(List<DbFrame> fs) {
+        long[] ts = new long[fs.size()];
+        for (int i = 0; i < ts.length; i++) ts[i] = fs.get(i).tsMs;
+        return ts;
+    }
 
-        long targetTs = sessionStartMs + (long) sec * 1000L;
+    private static long[] sensorTimes(List<DbSensor> ss) {
+        long[] ts = new long[ss.size()];
+        for (int i = 0; i < ts.length; i++) ts[i] = ss.get(i).tsMs;
+        return ts;
+    }
 
-        int bestIdx = 0;
-        synchronized (frames) {
-            for (int i = 0; i < frames.size(); i++) {
-                if (frames.get(i).tsMs <= targetTs) bestIdx = i;
-                else break;
+    /** @return ts[i] <= target 인 마지막 i (없으면 -1). ts는 오름차순 */
+    private static int floorIndex(long[] ts, long target) {
+        int lo = 0, hi = ts.length - 1, ans = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ts[mid] <= target) {
+                ans = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
             }
         }
-        showFrameAt(bestIdx);
+        return ans;
+    }
+
+    private void showFrameBySecond(int sec) {
+        if (!dbMode) return;
+        long[] ts = frameTs;
+        if (ts.length == 0) return;
+
+        long targetTs = sessionStartMs + (long) sec * 1000L;
+        showFrameAt(Math.max(0, floorIndex(ts, targetTs)));
     }
 
     /** frames 리스트의 인덱스(0-based) 기준으로 화면 표시 */
     private void showFrameAt(int frameIndex0Based) {
         if (!dbMode) return;
         DbFrame f;
+        long gen;
         synchronized (frames) {
             if (frames.isEmpty()) return;
             int idx = Math.max(0, Math.min(frameIndex0Based, frames.size() - 1));
             f = frames.get(idx);
+            gen = loadGeneration;
             framePtr = idx;
         }
 
-        if (f.jpeg != null && f.jpeg.length > 0) {
-            showCameraJpeg(f.jpeg);
+        int idx = framePtr;
+        byte[] jpeg = frameCache.get(idx);
+        if (jpeg == null && !blobMode) {
+            jpeg = segmentBytes(f);
+            if (jpeg != null) frameCache.put(idx, jpeg, gen);
         }
+        if (jpeg != null && jpeg.length > 0) {
+            waitingIdx = -1;
+            showCameraJpeg(jpeg);
+        } else if (blobMode) {
+            // DB 조회는 프리페치 스레드에서 (FX 스레드를 막지 않음), 도착하면 바로 표시
+            waitingIdx = idx;
+            byte[] late = frameCache.get(idx);   // 위 조회와 waitingIdx 설정 사이에 도착했을 수 있음
+            if (late != null) {
+                waitingIdx = -1;
+                showCameraJpeg(late);
+            }
+        }
+        requestPrefetch(idx);
 
         advanceSensorTo(f.tsMs);
 
@@ -849,17 +985,151 @@ public class BlackBoxPanel {
         }
     }
 
+    // ====================== 프리페치 ======================
+
+    private void requestPrefetch(int center) {
+        prefetchCenter.set(center);
+        if (prefetchScheduled.compareAndSet(false, true)) {
+            try {
+                prefetchExec.execute(this::prefetchLoop);
+            } catch (Exception e) {
+                prefetchScheduled.set(false);   // dispose 이후
+            }
+        }
+    }
+
+    private void prefetchLoop() {
+        try {
+            int center;
+            while ((center = prefetchCenter.getAndSet(-1)) >= 0) {
+                prefetchAround(center, loadGeneration);
+            }
+        } finally {
+            prefetchScheduled.set(false);
+        }
+        // 플래그 내리는 사이에 들어온 요청
+        if (prefetchCenter.get() >= 0) requestPrefetch(prefetchCenter.get());
+    }
+
+    /** center부터 앞쪽, 그다음 뒤쪽 순서로 비어 있는 프레임을 PREFETCH_CHUNK씩 채움 */
+    private void prefetchAround(int center, long gen) {
+        int n = frames.size();
+        if (n == 0) return;
+        int lo = Math.max(0, center - PREFETCH_BEHIND);
+        int hi = Math.min(n - 1, center + PREFETCH_AHEAD);
+
+        if (!fillRange(center, hi, gen)) return;
+        fillRange(lo, center - 1, gen);
+    }
+
+    /** @return 계속 진행해도 되면 true (새 탐색 요청/세션 변경이면 false) */
+    private boolean fillRange(int from, int to, long gen) {
+        int i = from;
+        while (i <= to) {
+            if (gen != loadGeneration || prefetchCenter.get() >= 0) return false;
+            if (frameCache.contains(i)) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < to && end - i + 1 < PREFETCH_CHUNK && !frameCache.contains(end + 1)) end++;
+
+            try {
+                if (blobMode) fetchBlobs(i, end, gen);
+                else fetchSegments(i, end, gen);
+            } catch (Exception e) {
+                System.out.println("⚠ blackbox prefetch failed [" + i + ".." + end + "]: " + e.getMessage());
+                return false;
+            }
+            i = end + 1;
+        }
+        return true;
+    }
+
+    private void fetchSegments(int from, int to, long gen) {
+        for (int i = from; i <= to; i++) {
+            DbFrame f;
+            synchronized (frames) {
+                if (gen != loadGeneration || i >= frames.size()) return;
+                f = frames.get(i);
+            }
+            deliver(i, segmentBytes(f), gen);
+        }
+    }
+
+    /** frames[from..to]를 frame_index 범위 쿼리 1번으로 */
+    private void fetchBlobs(int from, int to, long gen) throws SQLException {
+        DbFrame first, last;
+        synchronized (frames) {
+            if (gen != loadGeneration || to >= frames.size()) return;
+            first = frames.get(from);
+            last = frames.get(to);
+        }
+
+        String sql = "SELECT frame_index, jpeg_bytes FROM video_frame WHERE session_id=? AND frame_index BETWEEN ? AND ? ORDER BY frame_index ASC";
+        try (PreparedStatement ps = prefetchConnection(gen).prepareStatement(sql)) {
+            ps.setLong(1, currentSessionId);
+            ps.setInt(2, first.frameIndex);
+            ps.setInt(3, last.frameIndex);
+            try (ResultSet rs = ps.executeQuery()) {
+                // frames는 frame_index 오름차순 → 포인터 하나로 리스트 인덱스에 맞춤
+                int i = from;
+                while (rs.next()) {
+                    int frameIndex = rs.getInt("frame_index");
+                    synchronized (frames) {
+                        if (gen != loadGeneration) return;
+                        while (i <= to && frames.get(i).frameIndex < frameIndex) i++;
+                        if (i > to) break;
+                        if (frames.get(i).frameIndex != frameIndex) continue;
+                    }
+                    deliver(i, rs.getBytes("jpeg_bytes"), gen);
+                }
+            }
+        } catch (SQLException e) {
+            closePrefetchConn();   // 끊긴 연결이면 다음에 다시 맺음
+            throw e;
+        }
+    }
+
+    private void deliver(int idx, byte[] jpeg, long gen) {
+        if (jpeg == null || gen != loadGeneration) return;
+        frameCache.put(idx, jpeg, gen);   // 그 사이 세션이 바뀌었으면 캐시가 세대를 보고 버림
+        if (waitingIdx == idx) {
+            waitingIdx = -1;
+            showCameraJpeg(jpeg);
+        }
+    }
+
+    private Connection prefetchConnection(long gen) throws SQLException {
+        if (prefetchConn == null || prefetchConnGeneration != gen || prefetchConn.isClosed()) {
+            closePrefetchConn();
+            prefetchConn = openDb();
+            prefetchConnGeneration = gen;
+        }
+        return prefetchConn;
+    }
+
+    private void closePrefetchConn() {
+        if (prefetchConn != null) {
+            try { prefetchConn.close(); } catch (SQLException ignored) {}
+        }
+        prefetchConn = null;
+        prefetchConnGeneration = -1;
+    }
+
     private void advanceSensorTo(long targetTsMs) {
         if (!dbMode) return;
 
-        DbSensor last = null;
+        // 앞/뒤 어느 쪽으로 탐색해도 그 시각 직전의 센서 행으로 맞춤
+        int idx = floorIndex(sensorTs, targetTsMs);
+        if (idx < 0 || idx == sensorPtr - 1) return;   // 아직 행이 없거나 이미 반영됨
+
+        DbSensor last;
         synchronized (sensors) {
-            while (sensorPtr < sensors.size() && sensors.get(sensorPtr).tsMs <= targetTsMs) {
-                last = sensors.get(sensorPtr);
-                sensorPtr++;
-            }
+            if (idx >= sensors.size()) return;
+            last = sensors.get(idx);
         }
-        if (last == null) return;
+        sensorPtr = idx + 1;
 
         // Generate random temperature between 25 and 27
         currentTemp = 25.0 + (27.0 - 25.0) * random.nextDouble();
@@ -892,46 +1162,24 @@ public class BlackBoxPanel {
             pm10ValueLabel.setText(String.format("PM10: %.1f μg/m³", last.pm10));
         }
 
-        if (tempSeries != null) {
-            tempSeries.getData().add(new XYChart.Data<>(timeCounter, currentTemp));
-            if (tempSeries.getData().size() > MAX_DATA_POINTS) tempSeries.getData().remove(0);
-        }
-        if (co2Series != null) {
-            co2Series.getData().add(new XYChart.Data<>(timeCounter, currentCO2));
-            if (co2Series.getData().size() > MAX_DATA_POINTS) co2Series.getData().remove(0);
-        }
-
-        if (timeCounter >= MAX_DATA_POINTS) {
-            tempXAxis.setLowerBound(timeCounter - MAX_DATA_POINTS + 1);
-            tempXAxis.setUpperBound(timeCounter);
-            co2XAxis.setLowerBound(timeCounter - MAX_DATA_POINTS + 1);
-            co2XAxis.setUpperBound(timeCounter);
-        }
-        timeCounter++;
+        if (tempChart != null) tempChart.addValue(currentTemp);
+        if (co2Chart != null) co2Chart.addValue(currentCO2);
     }
 
     /**
      * 소켓/DB에서 받은 JPEG 바이트를 카메라 영역에 표시한다.
      * - 기존 Camera 플레이스홀더 UI는 유지하고, 프레임이 들어오면 자동으로 영상이 올라간다.
+     * - 어느 스레드에서 불러도 됨: 디코딩 스레드로 넘기고 바로 반환 (밀리면 최신 프레임만 표시)
      */
     public void showCameraJpeg(byte[] jpegBytes) {
         if (jpegBytes == null || jpegBytes.length == 0) return;
-        Platform.runLater(() -> {
-            try {
-                if (cameraImageView == null) return;
-                Image img = new Image(new ByteArrayInputStream(jpegBytes));
-                cameraImageView.setImage(img);
-                if (cameraPlaceholderBox != null) cameraPlaceholderBox.setVisible(false);
-            } catch (Exception e) {
-                System.out.println("⚠ showCameraJpeg failed: " + e.getMessage());
-            }
-        });
+        if (cameraDecoder != null) cameraDecoder.offer(jpegBytes);
     }
 
     /** 프레임이 없을 때 다시 기본 Camera 화면만 보이게 하고 싶으면 호출 */
     public void clearCameraImage() {
         Platform.runLater(() -> {
-            if (cameraImageView != null) cameraImageView.setImage(null);
+            if (cameraDecoder != null) cameraDecoder.clear();
             if (cameraPlaceholderBox != null) cameraPlaceholderBox.setVisible(true);
         });
     }
@@ -0,0 +1,75 @@
+package org.example;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 블랙박스 재생용 JPEG 캐시 (바이트 합계 기준 LRU)
+ * - 키: frames 리스트 인덱스 (0-based)
+ * - 총 바이트가 maxBytes를 넘으면 가장 오래 안 쓴 프레임부터 버림 → 세션 길이와 무관하게 메모리 고정
+ * - 세대(generation): reset(gen) 이후엔 같은 세대로 put한 것만 받음
+ *   → 이전 세션 프리페치가 늦게 도착해도 세대 확인과 저장이 한 락 안이라 새 세션 캐시에 섞이지 않음
+ */
+class FrameCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<Integer, byte[]> map = new LinkedHashMap<>(256, 0.75f, true);
+    private long bytes = 0;
+    private long generation = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evicted = 0;
+
+    FrameCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /** @return 캐시된 JPEG (없으면 null). 찾으면 최근 사용으로 갱신 */
+    synchronized byte[] get(int idx) {
+        byte[] b = map.get(idx);
+        if (b != null) hits++;
+        else misses++;
+        return b;
+    }
+
+    /** 통계/최근 사용 순서를 건드리지 않고 있는지만 확인 (프리페치 판단용) */
+    synchronized boolean contains(int idx) {
+        return map.containsKey(idx);
+    }
+
+    /** @param generation 이 프레임을 읽어온 세션 세대 (현재 세대가 아니면 버림) */
+    synchronized void put(int idx, byte[] jpeg, long generation) {
+        if (generation != this.generation) return;
+        if (jpeg == null || jpeg.length > maxBytes) return;
+        byte[] prev = map.put(idx, jpeg);
+        if (prev != null) bytes -= prev.length;
+        bytes += jpeg.length;
+
+        Iterator<Map.Entry<Integer, byte[]>> it = map.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Integer, byte[]> e = it.next();
+            if (e.getKey() == idx) continue;   // 방금 넣은 건 남김
+            bytes -= e.getValue().length;
+            it.remove();
+            evicted++;
+        }
+    }
+
+    synchronized void clear() {
+        map.clear();
+        bytes = 0;
+    }
+
+    /** 비우고 세대 변경 (이후 다른 세대의 put은 무시) */
+    synchronized void reset(long generation) {
+        clear();
+        this.generation = generation;
+    }
+
+    synchronized String stats() {
+        return String.format("frames=%d bytes=%dKB/%dKB hits=%d misses=%d evicted=%d",
+                map.size(), bytes / 1024, maxBytes / 1024, hits, misses, evicted);
+    }
+}
@@ -0,0 +1,172 @@
+package org.example;
+
+import javafx.application.Platform;
+import javafx.scene.control.Label;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 카메라 JPEG를 FX 스레드 밖에서 디코딩해서 ImageView에 올린다 (MainFx / BlackBoxPanel 공용)
+ *
+ * - offer(): 어느 스레드에서나. 디코딩 대기는 최신 1장만 (밀리면 이전 프레임은 버림)
+ * - 디코딩 스레드에서 픽셀을 int[]로 뽑아두고, FX 스레드는 재사용 WritableImage에 복사만 함
+ *   → runLater가 프레임 수만큼 쌓이지 않음 (FX 반영 대기도 최대 1장)
+ * - statsLabel이 있으면 디코딩 시간/버린 프레임 수를 0.5초마다 표시
+ */
+final class JpegFrameDecoder {
+
+    private static final long STATS_INTERVAL_MS = 500;
+
+    /** 디코딩 결과 (pixels는 두 버퍼 중 하나, 쓰기/복사는 pixels로 동기화) */
+    private record Decoded(int[] pixels, int width, int height, long epoch) {}
+
+    private final ImageView view;
+    private final Label statsLabel;
+
+    private final ExecutorService worker;
+    private final AtomicReference<byte[]> inbox = new AtomicReference<>();
+    private final AtomicBoolean decodeScheduled = new AtomicBoolean(false);
+    private final AtomicReference<Decoded> renderSlot = new AtomicReference<>();
+    private final AtomicLong epoch = new AtomicLong();   // clear()마다 증가 → 그 전에 디코딩 중이던 프레임은 버림
+
+    // 디코딩 스레드 전용: 번갈아 쓰는 픽셀 버퍼 두 개
+    private final int[][] buffers = new int[2][];
+    private int nextBuffer = 0;
+
+    // FX 스레드 전용
+    private WritableImage target;
+    private long statsAtMs = 0;
+
+    private final AtomicLong decoded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong decodeNanosTotal = new AtomicLong();
+    private volatile long lastDecodeNanos = 0;
+
+    /**
+     * @param name       디코딩 스레드 이름
+     * @param statsLabel null이면 통계 표시 안 함
+     */
+    JpegFrameDecoder(String name, ImageView view, Label statsLabel) {
+        this.view = view;
+        this.statsLabel = statsLabel;
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** 바로 반환. 아직 디코딩 안 된 이전 프레임이 있으면 버림 */
+    void offer(byte[] jpg) {
+        if (jpg == null || jpg.length == 0) return;
+        if (inbox.getAndSet(jpg) != null) dropped.incrementAndGet();
+        if (decodeScheduled.compareAndSet(false, true)) {
+            try {
+                worker.execute(this::decodeLoop);
+            } catch (Exception e) {
+                decodeScheduled.set(false);   // close 이후
+            }
+        }
+    }
+
+    private void decodeLoop() {
+        try {
+            byte[] jpg;
+            while ((jpg = inbox.getAndSet(null)) != null) {
+                decode(jpg);
+            }
+        } finally {
+            decodeScheduled.set(false);
+        }
+        if (inbox.get() != null && decodeScheduled.compareAndSet(false, true)) {
+            worker.execute(this::decodeLoop);
+        }
+    }
+
+    private void decode(byte[] jpg) {
+        long t0 = System.nanoTime();
+        long ep = epoch.get();
+        Image img = new Image(new ByteArrayInputStream(jpg));
+        if (img.isError() || img.getPixelReader() == null) {
+            failed.incrementAndGet();
+            System.out.println("카메라 이미지 디코딩 실패");
+            return;
+        }
+
+        int w = (int) img.getWidth();
+        int h = (int) img.getHeight();
+        int[] buf = buffers[nextBuffer];
+        if (buf == null || buf.length != w * h) {
+            buf = new int[w * h];
+            buffers[nextBuffer] = buf;
+        }
+        nextBuffer ^= 1;
+
+        synchronized (buf) {   // FX 스레드가 이 버퍼를 복사 중이면 끝날 때까지
+            img.getPixelReader().getPixels(0, 0, w, h, PixelFormat.getIntArgbPreInstance(), buf, 0, w);
+        }
+
+        long dt = System.nanoTime() - t0;
+        lastDecodeNanos = dt;
+        decodeNanosTotal.addAndGet(dt);
+        decoded.incrementAndGet();
+
+        // FX가 아직 안 가져간 프레임이 있으면 교체만 (runLater는 이미 걸려 있음)
+        if (renderSlot.getAndSet(new Decoded(buf, w, h, ep)) != null) {
+            dropped.incrementAndGet();
+        } else {
+            Platform.runLater(this::render);
+        }
+    }
+
+    /** FX 스레드 */
+    private void render() {
+        Decoded d = renderSlot.getAndSet(null);
+        if (d == null || d.epoch() != epoch.get()) return;
+
+        if (target == null || (int) target.getWidth() != d.width() || (int) target.getHeight() != d.height()) {
+            target = new WritableImage(d.width(), d.height());
+        }
+        synchronized (d.pixels()) {
+            target.getPixelWriter().setPixels(0, 0, d.width(), d.height(),
+                    PixelFormat.getIntArgbPreInstance(), d.pixels(), 0, d.width());
+        }
+        if (view.getImage() != target) view.setImage(target);
+
+        updateStats();
+    }
+
+    private void updateStats() {
+        if (statsLabel == null) return;
+        long now = System.currentTimeMillis();
+        if (now - statsAtMs < STATS_INTERVAL_MS) return;
+        statsAtMs = now;
+
+        long n = decoded.get();
+        double avgMs = (n == 0) ? 0 : decodeNanosTotal.get() / 1e6 / n;
+        statsLabel.setText(String.format("decode %.1fms (avg %.1f) · dropped %d",
+                lastDecodeNanos / 1e6, avgMs, dropped.get()));
+    }
+
+    /** 대기 중 프레임을 버리고 화면을 비움 (FX 스레드에서 호출) */
+    void clear() {
+        epoch.incrementAndGet();
+        inbox.set(null);
+        renderSlot.set(null);
+        view.setImage(null);
+    }
+
+    void close() {
+        worker.shutdownNow();
+    }
+}
@@ -1,7 +1,8 @@
 package org.example;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
@@ -12,6 +13,7 @@ import java.util.*;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.text.DecimalFormat;
 
 import javafx.scene.control.*;
@@ -30,11 +32,10 @@ import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.KeyCode;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
@@ -56,16 +57,25 @@ import java.util.Optional;
  * JavaFX 기반 관제 UI
  *
  * 수신 JSON(한 줄에 JSON 1개 + \n 필수):
- * - SENSOR: {"type":"SENSOR","temp":..,"gas":..,"fire":..,"dust":..,"pir":..}
+ * - SENSOR: {"type":"SENSOR","robotId":..,"seq":N,"key":true,"fire":..,"co2":..,"dust":..,"pir":..} (키프레임)
+ * - SENSOR_DELTA: {"type":"SENSOR_DELTA","robotId":..,"seq":N,"base":N-1, ...바뀐 필드만, "removed":[..]}
+ *   → 로봇별 미러에 덮어써서 그림. base가 마지막 seq와 다르면 SENSOR_RESYNC 요청 후 키프레임까지 무시
  * - IMAGE: {"type":"IMAGE","data":"base64..."}
  * - LIDAR:
  *   {"type":"LIDAR","robotX":..,"robotY":..,"robotTheta":..,"points":[[x,y],...]}
  *   or [{"x":..,"y":..},...]
  * - STT: {"type":"STT","text":"..."}
+ * - GUI_MESSAGE_PARTIAL: {"type":"GUI_MESSAGE_PARTIAL","robotId":..,"stream":..,"text":"지금까지 생성된 전체"}
+ *   → 맨 끝 미리보기 줄을 덮어씀. 같은 stream의 GUI_MESSAGE {"text":..,"stream":..}가 오면 확정
+ *
+ * 영상 전용 바이너리 채널(VIDEO_PORT):
+ * - [int len(big-endian)][JPEG bytes] 반복 (Base64/JSON 없음)
+ * - 이 채널이 연결돼 있으면 서버는 IMAGE JSON 대신 여기로 보낸다
  *
  * 송신 JSON:
  * - KEY: {"type":"KEY","cmd":"FORWARD|BACKWARD|LEFT|RIGHT|STOP"}
  * - PAD: {"type":"PAD","lx":..,"ly":..,"rx":..}
+ * - SENSOR_RESYNC: {"type":"SENSOR_RESYNC","robotId":..}
  */
 public class MainFx extends Application {
 
@@ -82,6 +92,11 @@ public class MainFx extends Application {
     // --- 서버 연결 정보 ---
     private static final String SERVER_IP = "192.168.0.31";
     private static final int SERVER_PORT = 6001;
+    private static final int VIDEO_PORT = 6004;
+    private static final long VIDEO_RECONNECT_MS = 2_000;
+
+    // 센서 그래프에 남기는 샘플 수 (가로 폭보다 많으면 픽셀 열마다 min/max로 줄여 그림)
+    private static final int CHART_POINTS = Integer.getInteger("serbot.chart.points", 300);
 
     // JVM 옵션으로 덮어쓰기 가능: -DSERBOT_DB_URL=... -DSERBOT_DB_USER=... -DSERBOT_DB_PASS=...
     // 환경변수로도 가능: SERBOT_DB_URL / SERBOT_DB_USER / SERBOT_DB_PASS
@@ -100,6 +115,18 @@ public class MainFx extends Application {
     private PrintWriter out;
     private BufferedReader in;
 
+    // --- SENSOR 델타 미러 (수신 스레드 전용) ---
+    private final Map<String, JSONObject> sensorMirror = new HashMap<>();
+    private final Map<String, Long> sensorSeq = new HashMap<>();
+    private final Set<String> sensorResyncPending = new HashSet<>();
+
+    // --- GUI_MESSAGE 스트리밍 미리보기 (FX 스레드 전용) ---
+    // 미리보기는 항상 텍스트 영역 맨 끝 한 줄. 같은 stream의 GUI_MESSAGE가 오면 그 내용으로 확정
+    private String guiPartialStream;
+    private String guiPartialText;
+    private int guiPartialStart = -1;
+    private final Map<String, String> guiFinishedStream = new HashMap<>();   // robotId → 확정된 마지막 stream
+
     // --- 루트 / 화면 전환 ---
     private StackPane root;
     private StackPane introView;
@@ -113,12 +140,14 @@ public class MainFx extends Application {
     private Label lblConnStatus;
     private Circle connStatusCircle;
 
-    private LineChartWithApi tempChart;
-    private LineChartWithApi gasChart;
+    private SensorChart tempChart;
+    private SensorChart gasChart;
     private Label lblFireStatus;
 
     // 카메라
     private ImageView cameraView;
+    private Label cameraStatsLabel;
+    private JpegFrameDecoder cameraDecoder;
 
     // PIR 별도 패널 (카메라 위)
     private Label lblPirPanel;
@@ -126,7 +155,7 @@ public class MainFx extends Application {
     // LiDAR + STT + Dust
     private LidarView lidarView;
     private TextArea sttTextArea;
-    private LineChartWithApi dustChart;
+    private SensorChart dustChart;
 
     // 하단 메시지 패널
     private TextArea guiMessageTextArea;
@@ -295,7 +324,13 @@ public class MainFx extends Application {
         cameraView.setSmooth(true);
         cameraView.setFitHeight(430);
 
-        StackPane cameraWrapper = new StackPane(cameraView);
+        // JPEG 디코딩은 별도 스레드, 밀리면 최신 프레임만 (수신 속도와 무관하게 FX 큐가 쌓이지 않음)
+        cameraStatsLabel = new Label();
+        cameraStatsLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #D1D5DB;");
+        cameraDecoder = new JpegFrameDecoder("Camera-Decode", cameraView, cameraStatsLabel);
+
+        StackPane cameraWrapper = new StackPane(cameraView, cameraStatsLabel);
+        StackPane.setAlignment(cameraStatsLabel, Pos.BOTTOM_LEFT);
         cameraWrapper.setPadding(new Insets(10));
         cameraWrapper.setStyle("-fx-background-color: rgba(0,0,0,0.35); -fx-background-radius: 12;");
 
@@ -328,12 +363,12 @@ public class MainFx extends Application {
         HBox connBox = new HBox(8, lblConnStatus, connStatusCircle);
         connBox.setAlignment(Pos.CENTER_LEFT);
 
-        tempChart = new LineChartWithApi("온도 (°C)");
-        TitledPane tempPane = new TitledPane("온도 그래프", tempChart.getChart());
+        tempChart = new SensorChart("온도 (°C)", CHART_POINTS);
+        TitledPane tempPane = new TitledPane("온도 그래프", tempChart);
         tempPane.setCollapsible(false);
 
-        gasChart = new LineChartWithApi("가스 (ppm)");
-        TitledPane gasPane = new TitledPane("가스 그래프", gasChart.getChart());
+        gasChart = new SensorChart("가스 (ppm)", CHART_POINTS, 0, 500);
+        TitledPane gasPane = new TitledPane("가스 그래프", gasChart);
         gasPane.setCollapsible(false);
 
         lblFireStatus = new Label("화재 상태: 정상");
@@ -354,7 +389,7 @@ public class MainFx extends Application {
         rightBox.setStyle("-fx-background-color: rgba(255,255,255,0.78); -fx-background-radius: 12;");
 
         lidarView = new LidarView();
-        TitledPane lidarPane = new TitledPane("LiDAR (Latest Scan, Robot Centered)", lidarView);
+        TitledPane lidarPane = new TitledPane("LiDAR (Occupancy Map, Robot Centered)", lidarView);
         lidarPane.setCollapsible(false);
 
         sttTextArea = new TextArea();
@@ -365,10 +400,10 @@ public class MainFx extends Application {
         TitledPane sttPane = new TitledPane("로봇 음성 인식 결과", sttTextArea);
         sttPane.setCollapsible(false);
 
-        dustChart = new LineChartWithApi("Dust (µg/m³)");
-        dustChart.getChart().setMinHeight(120);
-        dustChart.getChart().setPrefHeight(120);
-        TitledPane dustPane = new TitledPane("Dust 센서 그래프", dustChart.getChart());
+        dustChart = new SensorChart("Dust (µg/m³)", CHART_POINTS);
+        dustChart.setMinHeight(120);
+        dustChart.setPrefHeight(120);
+        TitledPane dustPane = new TitledPane("Dust 센서 그래프", dustChart);
         dustPane.setCollapsible(false);
 
         rightBox.getChildren().addAll(lidarPane, sttPane, dustPane);
@@ -466,6 +501,8 @@ public class MainFx extends Application {
             if (!success)
                 return;
 
+            startVideoConnection();
+
             try {
                 String line;
                 while ((line = in.readLine()) != null) {
@@ -481,6 +518,41 @@ public class MainFx extends Application {
         t.start();
     }
 
+    /** 바이너리 영상 채널: 끊기면 잠시 후 다시 연결 */
+    private void startVideoConnection() {
+        Thread t = new Thread(() -> {
+            while (true) {
+                try (Socket vs = new Socket(SERVER_IP, VIDEO_PORT)) {
+                    vs.setTcpNoDelay(true);
+                    System.out.println("🎞 영상 채널 연결됨: " + VIDEO_PORT);
+
+                    DataInputStream vin = new DataInputStream(new BufferedInputStream(vs.getInputStream(), 64 * 1024));
+                    while (true) {
+                        int len = vin.readInt();
+                        if (len <= 0 || len > 5_000_000) {
+                            System.out.println("⚠ invalid video frame length: " + len);
+                            break;
+                        }
+                        byte[] jpg = new byte[len];
+                        vin.readFully(jpg);
+                        updateCameraImage(jpg);
+                    }
+                } catch (Exception e) {
+                    System.out.println("🎞 영상 채널 끊김: " + e.getMessage());
+                }
+
+                try {
+                    Thread.sleep(VIDEO_RECONNECT_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }, "Video-Receiver");
+
+        t.setDaemon(true);
+        t.start();
+    }
+
     private void showMainView() {
         root.getChildren().setAll(mainView);
     }
@@ -495,44 +567,36 @@ public class MainFx extends Application {
             System.out.println("GUI RECV: " + line + " (Type: " + type + ")"); // Debug log
 
             if ("SENSOR".equalsIgnoreCase(type)) {
-
-                // 새 표준: fire(boolean), co2(number), dust(object{pm25,pm10}), pir(optional)
-                boolean fire = json.optBoolean("fire", false);
-
-                double co2 = json.optDouble("co2", Double.NaN);
-
-                JSONObject dustObj = json.optJSONObject("dust");
-                double pm25;
-                if (dustObj != null) {
-                    pm25 = dustObj.optDouble("pm25", Double.NaN);
-                } else {
-                    pm25 = Double.NaN;
+                // 키프레임 (seq 없는 예전 서버 포맷도 여기로): 로봇별 미러를 통째로 교체
+                String robotId = json.optString("robotId", "");
+                sensorMirror.put(robotId, json);
+                sensorSeq.put(robotId, json.optLong("seq", -1));
+                sensorResyncPending.remove(robotId);
+                applySensor(json);
+                return;
+            } else if ("SENSOR_DELTA".equalsIgnoreCase(type)) {
+                String robotId = json.optString("robotId", "");
+                JSONObject mirror = sensorMirror.get(robotId);
+                Long lastSeq = sensorSeq.get(robotId);
+
+                // 중간 메시지를 놓침 → 키프레임 다시 요청 (같은 끊김에 한 번만)
+                if (mirror == null || lastSeq == null || json.optLong("base", -1) != lastSeq) {
+                    if (sensorResyncPending.add(robotId)) requestSensorResync(robotId);
+                    return;
                 }
 
-                boolean hasPir = json.has("pir");
-                boolean pir = json.optBoolean("pir", false);
-
-                // Generate random temperature for the chart
-                double randomTemp = 15.0 + (18.0 - 15.0) * random.nextDouble();
-
-                Platform.runLater(() -> {
-                    // Always add the random temperature to the temp chart
-                    if (tempChart != null) {
-                        tempChart.addValue(randomTemp);
+                for (String k : json.keySet()) {
+                    switch (k) {
+                        case "type", "robotId", "seq", "base", "removed" -> { }
+                        default -> mirror.put(k, json.get(k));
                     }
-
-                    // gasChart를 co2 그래프로 쓰기
-                    if (!Double.isNaN(co2)) gasChart.addValue(co2);
-
-                    updateFireStatus(fire);
-
-                    // dustChart는 pm25만 그리기
-                    if (!Double.isNaN(pm25) && dustChart != null) {
-                        dustChart.addValue(pm25);
-                    }
-
-                });
-
+                }
+                JSONArray removed = json.optJSONArray("removed");
+                if (removed != null) {
+                    for (int i = 0; i < removed.length(); i++) mirror.remove(removed.optString(i));
+                }
+                sensorSeq.put(robotId, json.optLong("seq", -1));
+                applySensor(mirror);
                 return;
             } else if ("LIDAR".equalsIgnoreCase(type)) {
 
@@ -568,7 +632,8 @@ public class MainFx extends Application {
                     localPoints.add(new LidarPoint(x, y));
                 }
 
-                Platform.runLater(() -> lidarView.addScan(localPoints, robotX, robotY, robotTheta));
+                // 격자 갱신은 수신 스레드에서 (그리기만 FX로)
+                if (lidarView != null) lidarView.addScan(localPoints, robotX, robotY, robotTheta);
 
             } else if ("IMAGE".equalsIgnoreCase(type)) {
 
@@ -577,7 +642,7 @@ public class MainFx extends Application {
                     return;
 
                 byte[] bytes = Base64.getDecoder().decode(base64);
-                Platform.runLater(() -> updateCameraImage(bytes));
+                updateCameraImage(bytes);
 
             } else if ("STT".equalsIgnoreCase(type)) {
 
@@ -585,10 +650,17 @@ public class MainFx extends Application {
                 if (!text.isEmpty()) {
                     Platform.runLater(() -> sttTextArea.appendText(text + System.lineSeparator()));
                 }
+            } else if ("GUI_MESSAGE_PARTIAL".equalsIgnoreCase(type)) {
+                String robotId = json.optString("robotId", "");
+                String stream = json.optString("stream", "");
+                String text = json.optString("text", "");
+                Platform.runLater(() -> showGuiMessagePartial(robotId, stream, text));
             } else if ("GUI_MESSAGE".equalsIgnoreCase(type)) {
+                String robotId = json.optString("robotId", "");
+                String stream = json.optString("stream", null);
                 String text = json.optString("text", "");
                 if (!text.isEmpty()) {
-                    Platform.runLater(() -> guiMessageTextArea.appendText(text + System.lineSeparator()));
+                    Platform.runLater(() -> finishGuiMessage(robotId, stream, text));
                 }
             } else if ("VOICE_INSTRUCTION".equalsIgnoreCase(type)) {
                 String text = json.optString("text", "");
@@ -613,6 +685,94 @@ public class MainFx extends Application {
         }
     }
 
+    /** SENSOR 미러(키프레임 + 델타 적용 결과)를 화면에 반영 */
+    private void applySensor(JSONObject json) {
+        // 새 표준: fire(boolean), co2(number), dust(object{pm25,pm10}), pir(optional)
+        boolean fire = json.optBoolean("fire", false);
+
+        double co2 = json.optDouble("co2", Double.NaN);
+
+        JSONObject dustObj = json.optJSONObject("dust");
+        double pm25;
+        if (dustObj != null) {
+            pm25 = dustObj.optDouble("pm25", Double.NaN);
+        } else {
+            pm25 = Double.NaN;
+        }
+
+        boolean hasPir = json.has("pir");
+        boolean pir = json.optBoolean("pir", false);
+
+        // Generate random temperature for the chart
+        double randomTemp = 15.0 + (18.0 - 15.0) * random.nextDouble();
+
+        // 차트는 수신 스레드에서 바로 추가 (다시 그리기는 SensorChart가 합쳐서 FX로 넘김)
+        // Always add the random temperature to the temp chart
+        if (tempChart != null) {
+            tempChart.addValue(randomTemp);
+        }
+
+        // gasChart를 co2 그래프로 쓰기
+        if (!Double.isNaN(co2) && gasChart != null) gasChart.addValue(co2);
+
+        // dustChart는 pm25만 그리기
+        if (!Double.isNaN(pm25) && dustChart != null) {
+            dustChart.addValue(pm25);
+        }
+
+        Platform.runLater(() -> updateFireStatus(fire));
+    }
+
+    /** LLM이 생성 중인 gui_message 미리보기 (매번 전체 텍스트로 덮어씀) */
+    private void showGuiMessagePartial(String robotId, String stream, String text) {
+        // 확정 뒤에 늦게 도착한 미리보기는 무시
+        if (stream.equals(guiFinishedStream.get(robotId))) return;
+
+        clearGuiPartial();
+        guiPartialStream = stream;
+        guiPartialText = text;
+        guiPartialStart = guiMessageTextArea.getLength();
+        guiMessageTextArea.appendText("✍ " + text);
+    }
+
+    /** 최종 GUI_MESSAGE: 같은 stream 미리보기를 지우고 확정 줄로 추가 */
+    private void finishGuiMessage(String robotId, String stream, String text) {
+        if (stream != null) guiFinishedStream.put(robotId, stream);
+
+        // 다른 로봇 미리보기가 진행 중이면 확정 줄 뒤로 다시 붙임
+        String otherStream = (guiPartialStart >= 0 && !guiPartialStream.equals(stream)) ? guiPartialStream : null;
+        String otherText = guiPartialText;
+        clearGuiPartial();
+
+        guiMessageTextArea.appendText(text + System.lineSeparator());
+
+        if (otherStream != null) {
+            guiPartialStream = otherStream;
+            guiPartialText = otherText;
+            guiPartialStart = guiMessageTextArea.getLength();
+            guiMessageTextArea.appendText("✍ " + otherText);
+        }
+    }
+
+    private void clearGuiPartial() {
+        if (guiPartialStart >= 0) {
+            guiMessageTextArea.deleteText(guiPartialStart, guiMessageTextArea.getLength());
+        }
+        guiPartialStart = -1;
+        guiPartialStream = null;
+        guiPartialText = null;
+    }
+
+    private void requestSensorResync(String robotId) {
+        if (out == null)
+            return;
+        JSONObject req = new JSONObject();
+        req.put("type", "SENSOR_RESYNC");
+        req.put("robotId", robotId);
+        out.println(req.toString());
+        System.out.println("🔁 SENSOR resync 요청: " + robotId);
+    }
+
     private void updateFireStatus(boolean fire) {
         if (fire) {
             lblFireStatus.setText("화재 상태: 🚨 비상!");
@@ -647,13 +807,9 @@ public class MainFx extends Application {
         }
     }
 
+    /** 수신 스레드에서 바로 호출: 디코딩 스레드로 넘기고 반환 */
     private void updateCameraImage(byte[] imageBytes) {
-        Image img = new Image(new ByteArrayInputStream(imageBytes));
-        if (!img.isError()) {
-            cameraView.setImage(img);
-        } else {
-            System.out.println("카메라 이미지 디코딩 실패");
-        }
+        if (cameraDecoder != null) cameraDecoder.offer(imageBytes);
     }
 
     // ==========================
@@ -929,22 +1085,41 @@ class LidarPoint {
 }
 
 /**
- * LiDAR 뷰 (로봇 고정, 최신 스캔 1프레임만 표시)
- *  - 로봇은 항상 화면 중앙 빨간 점
- *  - 서버에서 받은 local 좌표(points)만 사용
- *  - robotX / robotY / robotTheta 는 인터페이스 맞추기용으로만 받고 무시
+ * LiDAR 뷰 (로봇 고정, 누적 점유 격자 + 최신 스캔)
+ *  - 로봇은 항상 화면 중앙 빨간 점, 로봇 앞(local +x)이 화면 오른쪽
+ *  - 스캔마다 robotX / robotY / robotTheta 로 월드 좌표에 옮겨 OccupancyGrid에 누적
+ *    → 지나온 곳의 벽/빈 공간이 남는 지도 (스캔 점만 다시 찍던 깜빡임 없음)
+ *  - 바뀐 타일만 타일별 WritableImage에 다시 쓰고, 화면에는 보이는 타일만 drawImage
+ *  - 최신 스캔 점(연두색)은 그 위에 덧그림
  *  - zoomFactor 는 LB/RB 패드 입력으로 조절
  */
 class LidarView extends Canvas {
 
+    private static final double CELL_M = Double.parseDouble(System.getProperty("serbot.lidar.cellM", "0.05"));
+    private static final double MAX_RANGE_M = Double.parseDouble(System.getProperty("serbot.lidar.maxRangeM", "12"));
+    // zoom x1.0일 때 화면 짧은 변에 들어가는 거리 (m)
+    private static final double VIEW_M = Double.parseDouble(System.getProperty("serbot.lidar.viewM", "8"));
+
+    private static final int COLOR_FREE = 0x4A5A78;    // 지나간 빈 공간 (어두운 청회색)
+    private static final int COLOR_OCC = 0xFFFFFF;     // 장애물 (흰색)
+
     private final Object lock = new Object();
 
-    // 최신 스캔 (로봇 기준 local 좌표)
-    private List<LidarPoint> latestScanLocal = new ArrayList<>();
+    // lock으로 보호
+    private final OccupancyGrid grid = new OccupancyGrid(CELL_M, MAX_RANGE_M);
+    private double[] scanX = new double[0];   // 최신 스캔 (로봇 기준 local 좌표)
+    private double[] scanY = new double[0];
+    private int scanCount = 0;
+    private double robotX, robotY, robotTheta;
+    private long scans = 0;
 
     // 줌 배율 (LB/RB 로 조절)
     double zoomFactor = 1.0;
 
+    // FX 스레드 전용: 타일 → 픽셀 변환 버퍼
+    private final int[] tilePixels = new int[OccupancyGrid.TILE * OccupancyGrid.TILE];
+    private final AtomicBoolean drawScheduled = new AtomicBoolean(false);
+
     public LidarView() {
         setWidth(360);
         setHeight(180); // Adjusted height to make STT bigger
@@ -955,19 +1130,35 @@ class LidarView extends Canvas {
     }
 
     /**
-     * 서버에서 받은 LiDAR 스캔 추가
-     * - localPoints : 로봇 기준 (x,y)
-     * - robotX/Y/Theta 는 현재 뷰에서는 사용하지 않음 (인터페이스 유지용)
+     * 서버에서 받은 LiDAR 스캔 추가 (아무 스레드에서나)
+     * - localPoints : 로봇 기준 (x,y) [m]
+     * - robotX/Y : 월드 좌표 [m], robotTheta : 라디안
+     * - 격자 갱신은 호출 스레드에서, 그리기는 runLater 1건으로 합쳐짐
      */
     public void addScan(List<LidarPoint> localPoints,
                         double robotX,
                         double robotY,
                         double robotTheta) {
         synchronized (lock) {
-            // 항상 "마지막 스캔"만 보관
-            latestScanLocal = new ArrayList<>(localPoints);
+            int n = localPoints.size();
+            if (scanX.length < n) {
+                scanX = new double[n];
+                scanY = new double[n];
+            }
+            for (int i = 0; i < n; i++) {
+                LidarPoint p = localPoints.get(i);
+                scanX[i] = p.x;
+                scanY[i] = p.y;
+            }
+            scanCount = n;
+            this.robotX = robotX;
+            this.robotY = robotY;
+            this.robotTheta = robotTheta;
+            scans++;
+
+            grid.integrate(robotX, robotY, robotTheta, scanX, scanY, n);
         }
-        draw();
+        requestDraw();
     }
 
     // === 패드 LB/RB 에서 호출하는 줌 기능 ===
@@ -977,10 +1168,18 @@ class LidarView extends Canvas {
             if (zoomFactor < 0.2) zoomFactor = 0.2;
             if (zoomFactor > 10.0) zoomFactor = 10.0;
         }
-        draw();
+        requestDraw();
+    }
+
+    private void requestDraw() {
+        if (drawScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::draw);
+        }
     }
 
     private void draw() {
+        drawScheduled.set(false);
+
         GraphicsContext g2 = getGraphicsContext2D();
         double w = getWidth();
         double h = getHeight();
@@ -989,132 +1188,92 @@ class LidarView extends Canvas {
         g2.setFill(Color.BLACK);
         g2.fillRect(0, 0, w, h);
 
-        List<LidarPoint> scanSnapshot;
-        double zf;
-
         synchronized (lock) {
-            scanSnapshot = new ArrayList<>(latestScanLocal);
-            zf = zoomFactor;
-        }
-
-        if (scanSnapshot.isEmpty()) {
-            g2.setFill(Color.GRAY);
-            g2.fillText("LiDAR 데이터 대기중...", 10, 20);
-            return;
-        }
-
-        double padding = 20;
-        double centerX = w / 2.0;
-        double centerY = h / 2.0;
-
-        // 스캔 점들의 범위를 이용해 자동 스케일 계산 (local 좌표 기준)
-        double minX = 0, maxX = 0, minY = 0, maxY = 0;
-        boolean first = true;
-        for (LidarPoint p : scanSnapshot) {
-            if (first) {
-                minX = maxX = p.x;
-                minY = maxY = p.y;
-                first = false;
-            } else {
-                if (p.x < minX) minX = p.x;
-                if (p.x > maxX) maxX = p.x;
-                if (p.y < minY) minY = p.y;
-                if (p.y > maxY) maxY = p.y;
+            if (scans == 0) {
+                g2.setFill(Color.GRAY);
+                g2.fillText("LiDAR 데이터 대기중...", 10, 20);
+                return;
             }
-        }
-
-        double margin = 0.1;
-        double worldW = (maxX - minX);
-        double worldH = (maxY - minY);
-        if (worldW == 0) worldW = 1;
-        if (worldH == 0) worldH = 1;
-        worldW *= (1.0 + margin);
-        worldH *= (1.0 + margin);
-
-        double scaleX = (w - 2.0 * padding) / worldW;
-        double scaleY = (h - 2.0 * padding) / worldH;
-        double scale = Math.min(scaleX, scaleY);
-        scale *= zf;
-
-        int pointSize = 2;
-
-        // 1) 최신 스캔 점 (로봇 기준 local 좌표) – 연두색
-        g2.setFill(Color.LIME);
-        for (LidarPoint p : scanSnapshot) {
-            double sx = centerX + p.x * scale;
-            double sy = centerY - p.y * scale; // y 반전 (화면 좌표계)
-
-            g2.fillOval(
-                    sx - pointSize,
-                    sy - pointSize,
-                    pointSize * 2,
-                    pointSize * 2
-            );
-        }
-
-        // 2) 로봇 위치 (항상 중앙 빨간 점)
-        double robotSX = centerX;
-        double robotSY = centerY;
-        int rPix = 6;
-        g2.setFill(Color.RED);
-        g2.fillOval(robotSX - rPix, robotSY - rPix, rPix * 2, rPix * 2);
-
-        // 3) 외곽 박스
-        g2.setStroke(Color.DARKGRAY);
-        g2.setLineWidth(1.0);
-        g2.strokeRect(padding, padding, w - 2 * padding, h - 2 * padding);
-
-        // 4) 현재 줌 배율 표시
-        g2.setFill(Color.WHITE);
-        g2.fillText(String.format(Locale.US, "Zoom: x%.2f", zf),
-                padding + 5, h - padding - 5);
-    }
-}
-
-// ============================================
-// 그래프 유틸
-// ============================================
-
-class LineChartWithApi {
 
-    private final LineChart<Number, Number> chart;
-    private final XYChart.Series<Number, Number> series;
-    private int xIndex = 0;
+            // 1) 바뀐 타일만 이미지에 다시 씀
+            grid.drainDirty(this::paintTile);
+
+            double padding = 20;
+            double centerX = w / 2.0;
+            double centerY = h / 2.0;
+            double zf = zoomFactor;
+            double scale = Math.min(w, h) / VIEW_M * zf;   // px / m
+
+            // 2) 누적 지도: 로봇 기준으로 옮기고 -theta 회전 (y 위쪽이 +가 되도록 뒤집음)
+            double tileM = OccupancyGrid.TILE * grid.cellM();
+            double visibleM = Math.hypot(w, h) / 2.0 / scale + tileM;
+
+            g2.save();
+            g2.setImageSmoothing(false);
+            g2.translate(centerX, centerY);
+            g2.scale(scale, -scale);
+            g2.rotate(Math.toDegrees(-robotTheta));
+            g2.translate(-robotX, -robotY);
+            for (OccupancyGrid.Tile t : grid.tiles()) {
+                if (t.image == null) continue;
+                double tx = t.tx * tileM;
+                double ty = t.ty * tileM;
+                // 화면 밖 타일은 건너뜀 (타일 중심 ~ 로봇 거리)
+                if (Math.abs(tx + tileM / 2 - robotX) > visibleM || Math.abs(ty + tileM / 2 - robotY) > visibleM) continue;
+                g2.drawImage(t.image, tx, ty, tileM, tileM);
+            }
+            g2.restore();
+
+            // 3) 최신 스캔 점 (로봇 기준 local 좌표) – 연두색
+            int pointSize = 2;
+            g2.setFill(Color.LIME);
+            for (int i = 0; i < scanCount; i++) {
+                double sx = centerX + scanX[i] * scale;
+                double sy = centerY - scanY[i] * scale; // y 반전 (화면 좌표계)
+                g2.fillOval(sx - pointSize, sy - pointSize, pointSize * 2, pointSize * 2);
+            }
 
-    LineChartWithApi(String yLabel) {
-        NumberAxis xAxis = new NumberAxis();
-        xAxis.setLabel("시간");
+            // 4) 로봇 위치 (항상 중앙 빨간 점)
+            int rPix = 6;
+            g2.setFill(Color.RED);
+            g2.fillOval(centerX - rPix, centerY - rPix, rPix * 2, rPix * 2);
 
-        NumberAxis yAxis = new NumberAxis();
-        yAxis.setLabel(yLabel);
-        // Format y-axis labels to one decimal place
-        yAxis.setTickLabelFormatter(new NumberAxis.DefaultFormatter(yAxis));
+            // 5) 외곽 박스
+            g2.setStroke(Color.DARKGRAY);
+            g2.setLineWidth(1.0);
+            g2.strokeRect(padding, padding, w - 2 * padding, h - 2 * padding);
 
-        // If this is the CO2/Gas chart, set a fixed range to ensure visibility
-        if ("가스 (ppm)".equals(yLabel)) {
-            yAxis.setAutoRanging(false);
-            yAxis.setLowerBound(0);
-            yAxis.setUpperBound(500);
-            yAxis.setTickUnit(100);
+            // 6) 현재 줌 배율 / 지도 크기 표시
+            g2.setFill(Color.WHITE);
+            g2.fillText(String.format(Locale.US, "Zoom: x%.2f  tiles: %d", zf, grid.tileCount()),
+                    padding + 5, h - padding - 5);
         }
-
-        chart = new LineChart<>(xAxis, yAxis);
-        chart.setAnimated(false);
-        chart.setLegendVisible(false);
-        chart.setCreateSymbols(false);
-
-        series = new XYChart.Series<>();
-        chart.getData().add(series);
     }
 
-    LineChart<Number, Number> getChart() {
-        return chart;
-    }
-
-    void addValue(double value) {
-        series.getData().add(new XYChart.Data<>(xIndex++, value));
-        if (series.getData().size() > 300) {
-            series.getData().remove(0);
+    /** 타일 log-odds → ARGB (모르는 곳은 투명, 확신할수록 진하게) */
+    private void paintTile(OccupancyGrid.Tile t) {
+        float[] lo = t.logOdds;
+        for (int i = 0; i < lo.length; i++) {
+            float l = lo[i];
+            if (l == 0f) {
+                tilePixels[i] = 0;
+                continue;
+            }
+            double p = 1.0 / (1.0 + Math.exp(-l));
+            int alpha;
+            int rgb;
+            if (l > 0) {
+                alpha = (int) (255 * (2 * p - 1));
+                rgb = COLOR_OCC;
+            } else {
+                alpha = (int) (255 * (1 - 2 * p));
+                rgb = COLOR_FREE;
+            }
+            tilePixels[i] = (alpha << 24) | rgb;
         }
+
+        int size = OccupancyGrid.TILE;
+        if (t.image == null) t.image = new WritableImage(size, size);
+        t.image.getPixelWriter().setPixels(0, 0, size, size, PixelFormat.getIntArgbInstance(), tilePixels, 0, size);
     }
-}
\ No newline at end of file
+}
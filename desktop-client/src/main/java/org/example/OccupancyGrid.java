@@ -0,0 +1,171 @@
+package org.example;
+
+import javafx.scene.image.WritableImage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * LiDAR 누적 점유 격자 (log-odds)
+ *
+ * - 월드 좌표(m)를 cellM 크기 셀로 나누고, TILE x TILE 셀 묶음(float[])을 필요할 때만 만듦
+ *   → 로봇이 어디로 가든 맵이 늘어나고, 안 간 곳은 메모리 0
+ * - 스캔 1회: 점마다 로봇→점 광선을 Bresenham으로 따라가며 지나간 셀은 free, 끝 셀은 occupied
+ *   → 비용은 (점 수 × 광선 길이)로 고정, 누적 맵 크기와 무관
+ * - 값이 바뀐 타일만 dirty 목록에 올림 (그리는 쪽은 그 타일 이미지만 다시 씀)
+ *
+ * 스레드 안전하지 않음 (LidarView의 lock 안에서만 사용)
+ */
+final class OccupancyGrid {
+
+    static final int TILE = 64;
+
+    // log-odds 증감 (한 번 보인 벽은 빨리 occupied, 지나간 자리는 천천히 free)
+    private static final float L_FREE = -0.4f;
+    private static final float L_OCC = 0.85f;
+    private static final float L_MIN = -4.0f;
+    private static final float L_MAX = 4.0f;
+
+    /** 타일 1장: logOdds[row * TILE + col], row는 월드 y 증가 방향 */
+    static final class Tile {
+        final int tx;
+        final int ty;
+        final float[] logOdds = new float[TILE * TILE];
+        boolean dirty = false;
+        WritableImage image;   // FX 스레드 전용 (LidarView가 관리)
+
+        Tile(int tx, int ty) {
+            this.tx = tx;
+            this.ty = ty;
+        }
+    }
+
+    private final double cellM;
+    private final double maxRangeM;
+    private final HashMap<Long, Tile> tiles = new HashMap<>();
+    private final List<Tile> dirty = new ArrayList<>();
+
+    // 광선은 대부분 같은 타일 안에서 이어지므로 직전 타일을 캐시 (HashMap 조회/박싱 줄임)
+    private Tile lastTile;
+
+    /**
+     * @param cellM     셀 한 변 (m)
+     * @param maxRangeM 이보다 먼 점은 장애물로 안 찍고 그 거리까지만 free 처리
+     */
+    OccupancyGrid(double cellM, double maxRangeM) {
+        this.cellM = cellM;
+        this.maxRangeM = maxRangeM;
+    }
+
+    double cellM() {
+        return cellM;
+    }
+
+    /**
+     * 스캔 1회 반영
+     * - lx/ly: 로봇 기준 local 좌표(m), 앞에서 n개만 사용
+     * - robotTheta: 라디안 (local x축이 월드에서 향하는 방향)
+     */
+    void integrate(double robotX, double robotY, double robotTheta, double[] lx, double[] ly, int n) {
+        double c = Math.cos(robotTheta);
+        double s = Math.sin(robotTheta);
+        int x0 = cell(robotX);
+        int y0 = cell(robotY);
+
+        for (int i = 0; i < n; i++) {
+            double px = lx[i];
+            double py = ly[i];
+            double range = Math.hypot(px, py);
+            if (range < 1e-3 || Double.isNaN(range)) continue;
+
+            boolean hit = range <= maxRangeM;
+            if (!hit) {
+                double k = maxRangeM / range;
+                px *= k;
+                py *= k;
+            }
+
+            double wx = robotX + c * px - s * py;
+            double wy = robotY + s * px + c * py;
+            traceRay(x0, y0, cell(wx), cell(wy), hit);
+        }
+    }
+
+    private int cell(double m) {
+        return (int) Math.floor(m / cellM);
+    }
+
+    /** Bresenham: 시작~끝 직전까지 free, 끝 셀은 hit면 occupied */
+    private void traceRay(int x0, int y0, int x1, int y1, boolean hit) {
+        int dx = Math.abs(x1 - x0);
+        int dy = -Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+        int err = dx + dy;
+
+        int x = x0;
+        int y = y0;
+        while (x != x1 || y != y1) {
+            update(x, y, L_FREE);
+            int e2 = 2 * err;
+            if (e2 >= dy) {
+                err += dy;
+                x += sx;
+            }
+            if (e2 <= dx) {
+                err += dx;
+                y += sy;
+            }
+        }
+        update(x1, y1, hit ? L_OCC : L_FREE);
+    }
+
+    private void update(int cx, int cy, float delta) {
+        Tile t = tile(Math.floorDiv(cx, TILE), Math.floorDiv(cy, TILE));
+        int idx = Math.floorMod(cy, TILE) * TILE + Math.floorMod(cx, TILE);
+
+        float prev = t.logOdds[idx];
+        float next = Math.max(L_MIN, Math.min(L_MAX, prev + delta));
+        if (next == prev) return;   // 이미 포화 → 다시 그릴 필요 없음
+
+        t.logOdds[idx] = next;
+        if (!t.dirty) {
+            t.dirty = true;
+            dirty.add(t);
+        }
+    }
+
+    private Tile tile(int tx, int ty) {
+        Tile t = lastTile;
+        if (t != null && t.tx == tx && t.ty == ty) return t;
+
+        long key = ((long) tx << 32) | (ty & 0xffffffffL);
+        t = tiles.get(key);
+        if (t == null) {
+            t = new Tile(tx, ty);
+            tiles.put(key, t);
+        }
+        lastTile = t;
+        return t;
+    }
+
+    /** 마지막 호출 이후 바뀐 타일만 painter에 넘기고 dirty 해제 */
+    void drainDirty(Consumer<Tile> painter) {
+        for (Tile t : dirty) {
+            t.dirty = false;
+            painter.accept(t);
+        }
+        dirty.clear();
+    }
+
+    Collection<Tile> tiles() {
+        return tiles.values();
+    }
+
+    int tileCount() {
+        return tiles.size();
+    }
+}
@@ -0,0 +1,54 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 백엔드 SegmentFrameStore가 만든 세그먼트 파일에서 프레임을 읽는다.
+ * - 세그먼트 파일을 통째로 mmap 해두고 (segment, offset, len)으로 바로 잘라 읽음 → 탐색 O(1)
+ * - 경로: {baseDir}/{sessionId}/seg-000000.dat
+ */
+class SegmentFrameReader implements AutoCloseable {
+
+    private final Path sessionDir;
+    private final Map<Integer, MappedByteBuffer> mapped = new HashMap<>();
+
+    SegmentFrameReader(Path baseDir, long sessionId) {
+        this.sessionDir = baseDir.resolve(Long.toString(sessionId));
+    }
+
+    /** 프레임 JPEG 바이트를 복사해서 반환 (Image 디코딩용) */
+    synchronized byte[] read(int segmentNo, long offset, int len) throws IOException {
+        MappedByteBuffer buf = mapped.get(segmentNo);
+        if (buf == null || offset + len > buf.capacity()) {
+            // 녹화 중인 세션이면 파일이 자랐을 수 있으니 다시 매핑
+            buf = map(segmentNo);
+            mapped.put(segmentNo, buf);
+        }
+        if (offset < 0 || offset + len > buf.capacity()) {
+            throw new IOException("frame out of segment range: seg=" + segmentNo + " off=" + offset + " len=" + len);
+        }
+
+        byte[] out = new byte[len];
+        buf.get((int) offset, out);
+        return out;
+    }
+
+    private MappedByteBuffer map(int segmentNo) throws IOException {
+        Path p = sessionDir.resolve(String.format("seg-%06d.dat", segmentNo));
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        // MappedByteBuffer는 GC 때 해제됨 → 참조만 끊는다
+        mapped.clear();
+    }
+}
@@ -0,0 +1,244 @@
+package org.example;
+
+import javafx.application.Platform;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 센서 값 한 채널을 Canvas에 그리는 가벼운 라인 차트 (LineChart 대체)
+ *
+ * - 값은 double[] 원형 버퍼에만 쌓음 → 샘플마다 노드 생성/remove(0) 없음, 할당 없음
+ * - addValue()는 어느 스레드에서나. 다시 그리기는 runLater 1건으로 합쳐짐 (샘플 수와 무관)
+ * - 샘플이 가로 픽셀보다 많으면 픽셀 열마다 min/max만 그림 → 튀는 값(화재/급등)이 사라지지 않음
+ */
+class SensorChart extends Region {
+
+    private static final Color LINE_COLOR = Color.web("#f3622d");   // 기존 LineChart 첫 시리즈 색
+    private static final Color GRID_COLOR = Color.web("#9CA3AF", 0.35);
+    private static final Color TEXT_COLOR = Color.web("#6B7280");
+    private static final Font LABEL_FONT = Font.font("Arial", 10);
+    private static final int Y_TICKS = 4;
+
+    private final String yLabel;
+    private final double fixedMin;   // NaN이면 보이는 값으로 자동 범위
+    private final double fixedMax;
+    private boolean axisVisible = true;
+
+    // 원형 버퍼 (this로 동기화)
+    private final double[] values;
+    private int head = 0;      // 다음에 쓸 위치
+    private int size = 0;
+
+    // FX 스레드 전용 작업 버퍼 (다시 그릴 때 재사용)
+    private final double[] scratch;
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] colMin = new double[0];
+    private double[] colMax = new double[0];
+
+    private final Canvas canvas = new Canvas();
+    private final AtomicBoolean redrawScheduled = new AtomicBoolean(false);
+
+    /** @param capacity 화면에 보이는 최대 샘플 수 (가장 오래된 것부터 밀려남) */
+    SensorChart(String yLabel, int capacity) {
+        this(yLabel, capacity, Double.NaN, Double.NaN);
+    }
+
+    /** y축 범위 고정 (벗어난 값은 가장자리에 붙여 그림) */
+    SensorChart(String yLabel, int capacity, double yMin, double yMax) {
+        this.yLabel = yLabel;
+        this.values = new double[capacity];
+        this.scratch = new double[capacity];
+        this.fixedMin = yMin;
+        this.fixedMax = yMax;
+
+        getChildren().add(canvas);
+        setMinSize(60, 40);
+        setPrefSize(300, 150);
+        widthProperty().addListener((o, a, b) -> requestRedraw());
+        heightProperty().addListener((o, a, b) -> requestRedraw());
+    }
+
+    void setAxisVisible(boolean visible) {
+        this.axisVisible = visible;
+        requestRedraw();
+    }
+
+    /** 아무 스레드에서나 호출 (NaN은 무시) */
+    void addValue(double v) {
+        if (Double.isNaN(v)) return;
+        synchronized (this) {
+            values[head] = v;
+            head = (head + 1) % values.length;
+            if (size < values.length) size++;
+        }
+        requestRedraw();
+    }
+
+    void clear() {
+        synchronized (this) {
+            head = 0;
+            size = 0;
+        }
+        requestRedraw();
+    }
+
+    private void requestRedraw() {
+        // FX 스레드에서 불려도 바로 그리지 않고 미룸 → 같은 틱에 들어온 샘플은 한 번에 그림
+        if (redrawScheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::redraw);
+        }
+    }
+
+    @Override
+    protected void layoutChildren() {
+        double w = snapSizeX(getWidth());
+        double h = snapSizeY(getHeight());
+        if (canvas.getWidth() != w || canvas.getHeight() != h) {
+            canvas.setWidth(w);
+            canvas.setHeight(h);
+            redraw();
+        }
+    }
+
+    private void redraw() {
+        redrawScheduled.set(false);
+
+        double w = canvas.getWidth();
+        double h = canvas.getHeight();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, w, h);
+        if (w <= 0 || h <= 0) return;
+
+        // 오래된 것 → 최신 순서로 복사 (락은 복사 동안만)
+        int n;
+        synchronized (this) {
+            n = size;
+            int start = (head - size + values.length) % values.length;
+            for (int i = 0; i < n; i++) scratch[i] = values[(start + i) % values.length];
+        }
+
+        double left = axisVisible ? 40 : 4;
+        double top = axisVisible ? 16 : 4;
+        double plotW = Math.max(1, w - left - 6);
+        double plotH = Math.max(1, h - top - 6);
+
+        // y 범위
+        double lo = fixedMin, hi = fixedMax;
+        if (Double.isNaN(lo) || Double.isNaN(hi)) {
+            lo = Double.POSITIVE_INFINITY;
+            hi = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                lo = Math.min(lo, scratch[i]);
+                hi = Math.max(hi, scratch[i]);
+            }
+            if (n == 0) {
+                lo = 0;
+                hi = 1;
+            }
+            double pad = (hi - lo) * 0.1;
+            if (pad == 0) pad = Math.max(1, Math.abs(hi) * 0.1);
+            lo -= pad;
+            hi += pad;
+        }
+
+        drawAxis(gc, left, top, plotW, plotH, lo, hi);
+        if (n == 0) return;
+
+        // x: 버퍼 전체 길이가 가로 폭 (가득 차면 왼쪽으로 흘러감)
+        double step = plotW / Math.max(1, values.length - 1);
+        double yScale = plotH / (hi - lo);
+
+        int count;
+        if (values.length <= plotW) {
+            ensurePoints(n);
+            for (int i = 0; i < n; i++) {
+                xs[i] = left + i * step;
+                ys[i] = top + plotH - (clamp(scratch[i], lo, hi) - lo) * yScale;
+            }
+            count = n;
+        } else {
+            // 픽셀 열마다 min/max → 열 하나에 점 두 개 (세로 선분)
+            int cols = (int) Math.ceil(plotW) + 1;
+            ensureColumns(cols);
+            ensurePoints(cols * 2);
+            int lastCol = -1;
+            for (int i = 0; i < n; i++) {
+                int c = (int) (i * step);
+                double v = scratch[i];
+                if (c != lastCol) {
+                    colMin[c] = v;
+                    colMax[c] = v;
+                    lastCol = c;
+                } else {
+                    if (v < colMin[c]) colMin[c] = v;
+                    if (v > colMax[c]) colMax[c] = v;
+                }
+            }
+            count = 0;
+            for (int c = 0; c <= lastCol; c++) {
+                double x = left + c;
+                xs[count] = x;
+                ys[count++] = top + plotH - (clamp(colMin[c], lo, hi) - lo) * yScale;
+                xs[count] = x;
+                ys[count++] = top + plotH - (clamp(colMax[c], lo, hi) - lo) * yScale;
+            }
+        }
+
+        gc.setStroke(LINE_COLOR);
+        gc.setLineWidth(1.5);
+        gc.strokePolyline(xs, ys, count);
+    }
+
+    private void drawAxis(GraphicsContext gc, double left, double top, double plotW, double plotH, double lo, double hi) {
+        gc.setStroke(GRID_COLOR);
+        gc.setLineWidth(1);
+        gc.setFill(TEXT_COLOR);
+        gc.setFont(LABEL_FONT);
+
+        for (int t = 0; t <= Y_TICKS; t++) {
+            double y = Math.round(top + plotH * t / Y_TICKS) + 0.5;
+            gc.strokeLine(left, y, left + plotW, y);
+            if (axisVisible) {
+                double v = hi - (hi - lo) * t / Y_TICKS;
+                gc.setTextAlign(TextAlignment.RIGHT);
+                gc.setTextBaseline(VPos.CENTER);
+                gc.fillText(formatTick(v, hi - lo), left - 4, y);
+            }
+        }
+        if (axisVisible && yLabel != null) {
+            gc.setTextAlign(TextAlignment.LEFT);
+            gc.setTextBaseline(VPos.TOP);
+            gc.fillText(yLabel, left, 1);
+        }
+    }
+
+    private static String formatTick(double v, double range) {
+        return range >= 20 ? String.valueOf(Math.round(v)) : String.format("%.1f", v);
+    }
+
+    private static double clamp(double v, double lo, double hi) {
+        return v < lo ? lo : (v > hi ? hi : v);
+    }
+
+    private void ensurePoints(int n) {
+        if (xs.length < n) {
+            xs = new double[n];
+            ys = new double[n];
+        }
+    }
+
+    private void ensureColumns(int n) {
+        if (colMin.length < n) {
+            colMin = new double[n];
+            colMax = new double[n];
+        }
+    }
+}